@@ -32,6 +32,18 @@ dependencies {
     // Embedded runtime dependencies for SQL persistence backends.
     bundledRuntime("org.xerial:sqlite-jdbc:3.49.1.0")
     bundledRuntime("com.mysql:mysql-connector-j:9.3.0")
+
+    // Unit tests run the pure-Java services directly; the server jar only supplies the logger and Gson.
+    testImplementation(files(hytaleServerJar))
+    testImplementation(platform("org.junit:junit-bom:5.11.4"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    // SQL persistence tests run against a real SQLite file.
+    testRuntimeOnly("org.xerial:sqlite-jdbc:3.49.1.0")
+}
+
+tasks.named<Test>("test") {
+    useJUnitPlatform()
 }
 
 tasks.named<Jar>("jar") {
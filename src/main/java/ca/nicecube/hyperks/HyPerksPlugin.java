@@ -1,6 +1,7 @@
 package ca.nicecube.hyperks;
 
 import ca.nicecube.hyperks.command.HyPerksCommand;
+import ca.nicecube.hyperks.component.HyPerksRigMarker;
 import ca.nicecube.hyperks.event.PlayerLifecycleListener;
 import ca.nicecube.hyperks.event.PlayerReadyListener;
 import ca.nicecube.hyperks.service.HyPerksCoreService;
@@ -10,6 +11,7 @@ import ca.nicecube.hyperks.service.LocalizationService;
 import ca.nicecube.hyperks.service.PlayerStateService;
 import com.hypixel.hytale.server.core.event.events.player.AddPlayerToWorldEvent;
 import com.hypixel.hytale.server.core.event.events.player.DrainPlayerFromWorldEvent;
+import com.hypixel.hytale.server.core.event.events.player.PlayerConnectEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerReadyEvent;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
@@ -29,6 +31,7 @@ public class HyPerksPlugin extends JavaPlugin {
     protected void setup() {
         Path dataDirectory = HyPerksPaths.resolveDataDirectory(this.getDataDirectory(), "HyPerks");
         HyPerksPaths paths = HyPerksPaths.fromRoot(dataDirectory);
+        HyPerksRigMarker.register(this.getEntityStoreRegistry());
 
         JsonConfigStore configStore = new JsonConfigStore(this.getLogger());
         LocalizationService localization = new LocalizationService(this.getLogger(), paths.getLangDirectory());
@@ -51,6 +54,7 @@ public class HyPerksPlugin extends JavaPlugin {
         this.getCommandRegistry().registerCommand(new HyPerksCommand(this.coreService));
         this.getEventRegistry().registerGlobal(PlayerReadyEvent.class, new PlayerReadyListener(this.coreService)::onPlayerReady);
         PlayerLifecycleListener lifecycleListener = new PlayerLifecycleListener(this.coreService);
+        this.getEventRegistry().registerGlobal(PlayerConnectEvent.class, lifecycleListener::onPlayerConnect);
         this.getEventRegistry().registerGlobal(PlayerDisconnectEvent.class, lifecycleListener::onPlayerDisconnect);
         this.getEventRegistry().registerGlobal(DrainPlayerFromWorldEvent.class, lifecycleListener::onDrainPlayerFromWorld);
         this.getEventRegistry().registerGlobal(AddPlayerToWorldEvent.class, lifecycleListener::onAddPlayerToWorld);
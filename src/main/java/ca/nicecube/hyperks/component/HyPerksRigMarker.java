@@ -0,0 +1,47 @@
+package ca.nicecube.hyperks.component;
+
+import com.hypixel.hytale.codec.Codec;
+import com.hypixel.hytale.codec.KeyedCodec;
+import com.hypixel.hytale.codec.builder.BuilderCodec;
+import com.hypixel.hytale.component.Component;
+import com.hypixel.hytale.component.ComponentRegistryProxy;
+import com.hypixel.hytale.component.ComponentType;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+public class HyPerksRigMarker implements Component<EntityStore> {
+    public static final BuilderCodec<HyPerksRigMarker> CODEC = BuilderCodec.builder(HyPerksRigMarker.class, HyPerksRigMarker::new)
+        .append(new KeyedCodec<>("RigId", Codec.STRING), (marker, value) -> marker.rigId = value, marker -> marker.rigId)
+        .add()
+        .build();
+
+    private static volatile ComponentType<EntityStore, HyPerksRigMarker> componentType;
+
+    private String rigId = "";
+
+    public HyPerksRigMarker() {
+    }
+
+    public HyPerksRigMarker(String rigId) {
+        this.rigId = rigId == null ? "" : rigId;
+    }
+
+    public static void register(ComponentRegistryProxy<EntityStore> registry) {
+        if (registry == null) {
+            return;
+        }
+        componentType = registry.registerComponent(HyPerksRigMarker.class, "HyPerksRigMarker", CODEC);
+    }
+
+    public static ComponentType<EntityStore, HyPerksRigMarker> getComponentType() {
+        return componentType;
+    }
+
+    public String getRigId() {
+        return rigId == null ? "" : rigId;
+    }
+
+    @Override
+    public HyPerksRigMarker clone() {
+        return new HyPerksRigMarker(this.rigId);
+    }
+}
@@ -1,16 +1,18 @@
 package ca.nicecube.hyperks.config;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 public class HyPerksConfig {
     private String _comment = "JSON does not support // comments. Use _comment fields as documentation.";
     private String _commentLanguage = "defaultLanguage supports: en, fr";
     private String _commentWorlds = "worldWhitelist is used when allowInAllWorlds=false";
     private String _commentRuntime = "runtimeRenderIntervalMs valid range: 50..5000";
-    private String _commentPersistence = "Set persistence.mode to json/sqlite/mysql";
+    private String _commentPersistence = "Set persistence.mode to json/sqlite/mysql/log (log = append-only segment files, for very large player counts)";
     private String _commentModelVfx = "modelVfx controls 3D rig budget and LOD thresholds";
     private String defaultLanguage = "en";
     private List<String> worldWhitelist = new ArrayList<>(List.of("default"));
@@ -44,7 +46,7 @@ public class HyPerksConfig {
             this._commentRuntime = "runtimeRenderIntervalMs valid range: 50..5000";
         }
         if (this._commentPersistence == null || this._commentPersistence.isBlank()) {
-            this._commentPersistence = "Set persistence.mode to json/sqlite/mysql";
+            this._commentPersistence = "Set persistence.mode to json/sqlite/mysql/log (log = append-only segment files, for very large player counts)";
         }
         if (this._commentModelVfx == null || this._commentModelVfx.isBlank()) {
             this._commentModelVfx = "modelVfx controls 3D rig budget and LOD thresholds";
@@ -210,11 +212,30 @@ public class HyPerksConfig {
     }
 
     public static class ModelVfxConfig {
-        private String _comment = "maxRigsPerPlayer range: 1..64, lodUltraMaxWorldPlayers range: 1..200, lodNearbyRadius range: 6..96, updateIntervalMs range: 50..1000";
+        private String _comment = "maxRigsPerPlayer range: 1..64, maxRigsPerWorld range: 16..4096, maxSpawnsPerTick range: 1..512, maxRemovalsPerTick range: 1..1024, lodUltraMaxWorldPlayers range: 1..200, lodNearbyRadius range: 6..96, updateIntervalMs range: 50..1000";
+        private String _commentPriority = "rankPriorityPermissions: first matching node wins, earlier entries keep their rigs when maxRigsPerWorld is reached";
         private int maxRigsPerPlayer = 16;
+        private int maxRigsPerWorld = 256;
+        private int maxSpawnsPerTick = 24;
+        private int maxRemovalsPerTick = 64;
+        private List<String> rankPriorityPermissions = new ArrayList<>(List.of(
+            "hyperks.rank.mvp_plus",
+            "hyperks.rank.mvp",
+            "hyperks.rank.vip_plus",
+            "hyperks.rank.vip"
+        ));
         private int lodUltraMaxWorldPlayers = 10;
         private int lodNearbyRadius = 24;
         private int updateIntervalMs = 50;
+        private String _commentViewers = "viewerRadius: 0 disables gating, else 8..128 blocks; a player's rigs exist only while another player is that close (or always, when ownerCountsAsViewer=true). Spawned rigs are kept until no viewer is within viewerRadius + viewerHysteresis (0..32) for viewerGraceMs (0..60000)";
+        private int viewerRadius = 48;
+        private int viewerHysteresis = 8;
+        private int viewerGraceMs = 3000;
+        private boolean ownerCountsAsViewer = false;
+        private String _commentProfiles = "profiles.<rigProfile>.archetype: cosmetic (no bounding box, never saved) or full (model bounding box). followMode: orbit (server-driven motion) or idle_skip (fixed offset from the owner with the baked animation for motion; the server still moves the rig when its owner moves or turns and only skips writes while the owner stands still; 'attached' is read as idle_skip). updateIntervalMs: 0 = every model tick, else 50..1000 with owner velocity extrapolation; maxFollowError (0.1..4 blocks) forces an update sooner. Unknown profiles use profiles.default";
+        private Map<String, RigProfileConfig> profiles = defaultProfiles();
+        private String _commentShowcases = "showcases: static display rigs. Each entry needs id, world, x/y/z and a model3d cosmeticId; yaw in degrees; viewRadius range: 8..128. A showcase is spawned while a player is within viewRadius and removed once none is within viewRadius + 8";
+        private List<ShowcaseConfig> showcases = new ArrayList<>();
 
         public static ModelVfxConfig defaults() {
             return new ModelVfxConfig();
@@ -222,7 +243,7 @@ public class HyPerksConfig {
 
         public void normalize() {
             if (this._comment == null || this._comment.isBlank()) {
-                this._comment = "maxRigsPerPlayer range: 1..64, lodUltraMaxWorldPlayers range: 1..200, lodNearbyRadius range: 6..96, updateIntervalMs range: 50..1000";
+                this._comment = "maxRigsPerPlayer range: 1..64, maxRigsPerWorld range: 16..4096, maxSpawnsPerTick range: 1..512, maxRemovalsPerTick range: 1..1024, lodUltraMaxWorldPlayers range: 1..200, lodNearbyRadius range: 6..96, updateIntervalMs range: 50..1000";
             }
 
             if (this.maxRigsPerPlayer < 1) {
@@ -232,6 +253,45 @@ public class HyPerksConfig {
                 this.maxRigsPerPlayer = 64;
             }
 
+            if (this.maxRigsPerWorld < 16) {
+                this.maxRigsPerWorld = 16;
+            }
+            if (this.maxRigsPerWorld > 4096) {
+                this.maxRigsPerWorld = 4096;
+            }
+
+            if (this.maxSpawnsPerTick < 1) {
+                this.maxSpawnsPerTick = 1;
+            }
+            if (this.maxSpawnsPerTick > 512) {
+                this.maxSpawnsPerTick = 512;
+            }
+
+            if (this.maxRemovalsPerTick < 1) {
+                this.maxRemovalsPerTick = 1;
+            }
+            if (this.maxRemovalsPerTick > 1024) {
+                this.maxRemovalsPerTick = 1024;
+            }
+
+            if (this._commentPriority == null || this._commentPriority.isBlank()) {
+                this._commentPriority = "rankPriorityPermissions: first matching node wins, earlier entries keep their rigs when maxRigsPerWorld is reached";
+            }
+            if (this.rankPriorityPermissions == null) {
+                this.rankPriorityPermissions = new ArrayList<>();
+            }
+            LinkedHashSet<String> normalizedPermissions = new LinkedHashSet<>();
+            for (String permission : this.rankPriorityPermissions) {
+                if (permission == null) {
+                    continue;
+                }
+                String normalized = permission.trim().toLowerCase(Locale.ROOT);
+                if (!normalized.isBlank()) {
+                    normalizedPermissions.add(normalized);
+                }
+            }
+            this.rankPriorityPermissions = new ArrayList<>(normalizedPermissions);
+
             if (this.lodUltraMaxWorldPlayers < 1) {
                 this.lodUltraMaxWorldPlayers = 1;
             }
@@ -252,12 +312,102 @@ public class HyPerksConfig {
             if (this.updateIntervalMs > 1000) {
                 this.updateIntervalMs = 1000;
             }
+
+            if (this._commentViewers == null || this._commentViewers.isBlank()) {
+                this._commentViewers = "viewerRadius: 0 disables gating, else 8..128 blocks; a player's rigs exist only while another player is that close (or always, when ownerCountsAsViewer=true). Spawned rigs are kept until no viewer is within viewerRadius + viewerHysteresis (0..32) for viewerGraceMs (0..60000)";
+            }
+            if (this.viewerRadius < 0) {
+                this.viewerRadius = 0;
+            }
+            if (this.viewerRadius > 0 && this.viewerRadius < 8) {
+                this.viewerRadius = 8;
+            }
+            if (this.viewerRadius > 128) {
+                this.viewerRadius = 128;
+            }
+            if (this.viewerHysteresis < 0) {
+                this.viewerHysteresis = 0;
+            }
+            if (this.viewerHysteresis > 32) {
+                this.viewerHysteresis = 32;
+            }
+            if (this.viewerGraceMs < 0) {
+                this.viewerGraceMs = 0;
+            }
+            if (this.viewerGraceMs > 60000) {
+                this.viewerGraceMs = 60000;
+            }
+
+            // Files written before the idle_skip rename still describe it as a fixed attachment.
+            if (this._commentProfiles == null || this._commentProfiles.isBlank() || this._commentProfiles.contains("or attached (")) {
+                this._commentProfiles = "profiles.<rigProfile>.archetype: cosmetic (no bounding box, never saved) or full (model bounding box). followMode: orbit (server-driven motion) or idle_skip (fixed offset from the owner with the baked animation for motion; the server still moves the rig when its owner moves or turns and only skips writes while the owner stands still; 'attached' is read as idle_skip). updateIntervalMs: 0 = every model tick, else 50..1000 with owner velocity extrapolation; maxFollowError (0.1..4 blocks) forces an update sooner. Unknown profiles use profiles.default";
+            }
+            if (this.profiles == null) {
+                this.profiles = defaultProfiles();
+            }
+            Map<String, RigProfileConfig> normalizedProfiles = new LinkedHashMap<>();
+            for (Map.Entry<String, RigProfileConfig> entry : this.profiles.entrySet()) {
+                if (entry.getKey() == null || entry.getKey().isBlank()) {
+                    continue;
+                }
+                RigProfileConfig profile = entry.getValue() == null ? new RigProfileConfig() : entry.getValue();
+                profile.normalize();
+                normalizedProfiles.put(entry.getKey().trim().toLowerCase(Locale.ROOT), profile);
+            }
+            if (!normalizedProfiles.containsKey(RigProfileConfig.DEFAULT_PROFILE)) {
+                normalizedProfiles.put(RigProfileConfig.DEFAULT_PROFILE, new RigProfileConfig());
+            }
+            this.profiles = normalizedProfiles;
+
+            if (this._commentShowcases == null || this._commentShowcases.isBlank()) {
+                this._commentShowcases = "showcases: static display rigs. Each entry needs id, world, x/y/z and a model3d cosmeticId; yaw in degrees; viewRadius range: 8..128. A showcase is spawned while a player is within viewRadius and removed once none is within viewRadius + 8";
+            }
+            if (this.showcases == null) {
+                this.showcases = new ArrayList<>();
+            }
+            Map<String, ShowcaseConfig> normalizedShowcases = new LinkedHashMap<>();
+            for (ShowcaseConfig showcase : this.showcases) {
+                if (showcase == null) {
+                    continue;
+                }
+                showcase.normalize();
+                if (showcase.isValid()) {
+                    normalizedShowcases.putIfAbsent(showcase.getId(), showcase);
+                }
+            }
+            this.showcases = new ArrayList<>(normalizedShowcases.values());
+        }
+
+        private static Map<String, RigProfileConfig> defaultProfiles() {
+            Map<String, RigProfileConfig> defaults = new LinkedHashMap<>();
+            defaults.put(RigProfileConfig.DEFAULT_PROFILE, RigProfileConfig.idleSkip());
+            defaults.put("fire_ice_cone", new RigProfileConfig());
+            defaults.put("storm_clouds", RigProfileConfig.orbit(150));
+            defaults.put("wingwang_sigil", new RigProfileConfig());
+            defaults.put("fireworks_show", new RigProfileConfig());
+            return defaults;
         }
 
         public int getMaxRigsPerPlayer() {
             return maxRigsPerPlayer;
         }
 
+        public int getMaxRigsPerWorld() {
+            return maxRigsPerWorld;
+        }
+
+        public int getMaxSpawnsPerTick() {
+            return maxSpawnsPerTick;
+        }
+
+        public int getMaxRemovalsPerTick() {
+            return maxRemovalsPerTick;
+        }
+
+        public List<String> getRankPriorityPermissions() {
+            return rankPriorityPermissions;
+        }
+
         public int getLodUltraMaxWorldPlayers() {
             return lodUltraMaxWorldPlayers;
         }
@@ -270,10 +420,46 @@ public class HyPerksConfig {
             return lodNearbyRadius;
         }
 
+        public int getViewerRadius() {
+            return viewerRadius;
+        }
+
+        public int getViewerHysteresis() {
+            return viewerHysteresis;
+        }
+
+        public int getViewerGraceMs() {
+            return viewerGraceMs;
+        }
+
+        public boolean isOwnerCountsAsViewer() {
+            return ownerCountsAsViewer;
+        }
+
+        public Map<String, RigProfileConfig> getProfiles() {
+            return profiles;
+        }
+
+        public List<ShowcaseConfig> getShowcases() {
+            return showcases;
+        }
+
         public void setMaxRigsPerPlayer(int maxRigsPerPlayer) {
             this.maxRigsPerPlayer = maxRigsPerPlayer;
         }
 
+        public void setMaxRigsPerWorld(int maxRigsPerWorld) {
+            this.maxRigsPerWorld = maxRigsPerWorld;
+        }
+
+        public void setMaxSpawnsPerTick(int maxSpawnsPerTick) {
+            this.maxSpawnsPerTick = maxSpawnsPerTick;
+        }
+
+        public void setMaxRemovalsPerTick(int maxRemovalsPerTick) {
+            this.maxRemovalsPerTick = maxRemovalsPerTick;
+        }
+
         public void setLodUltraMaxWorldPlayers(int lodUltraMaxWorldPlayers) {
             this.lodUltraMaxWorldPlayers = lodUltraMaxWorldPlayers;
         }
@@ -287,8 +473,161 @@ public class HyPerksConfig {
         }
     }
 
+    public static class RigProfileConfig {
+        public static final String DEFAULT_PROFILE = "default";
+        public static final String ARCHETYPE_COSMETIC = "cosmetic";
+        public static final String ARCHETYPE_FULL = "full";
+        public static final String FOLLOW_ORBIT = "orbit";
+        public static final String FOLLOW_IDLE_SKIP = "idle_skip";
+        // Earlier name of idle_skip; rigs are not parented to their owner, so it was misleading.
+        private static final String FOLLOW_ATTACHED_LEGACY = "attached";
+
+        private String archetype = ARCHETYPE_COSMETIC;
+        private String followMode = FOLLOW_ORBIT;
+        private int updateIntervalMs = 0;
+        private double maxFollowError = 0.5D;
+
+        public static RigProfileConfig idleSkip() {
+            RigProfileConfig profile = new RigProfileConfig();
+            profile.followMode = FOLLOW_IDLE_SKIP;
+            return profile;
+        }
+
+        public static RigProfileConfig orbit(int updateIntervalMs) {
+            RigProfileConfig profile = new RigProfileConfig();
+            profile.updateIntervalMs = updateIntervalMs;
+            return profile;
+        }
+
+        public void normalize() {
+            String normalized = this.archetype == null ? "" : this.archetype.trim().toLowerCase(Locale.ROOT);
+            this.archetype = ARCHETYPE_FULL.equals(normalized) ? ARCHETYPE_FULL : ARCHETYPE_COSMETIC;
+
+            String normalizedFollow = this.followMode == null ? "" : this.followMode.trim().toLowerCase(Locale.ROOT);
+            this.followMode = FOLLOW_IDLE_SKIP.equals(normalizedFollow) || FOLLOW_ATTACHED_LEGACY.equals(normalizedFollow)
+                ? FOLLOW_IDLE_SKIP
+                : FOLLOW_ORBIT;
+
+            if (this.updateIntervalMs < 0) {
+                this.updateIntervalMs = 0;
+            }
+            if (this.updateIntervalMs > 0 && this.updateIntervalMs < 50) {
+                this.updateIntervalMs = 50;
+            }
+            if (this.updateIntervalMs > 1000) {
+                this.updateIntervalMs = 1000;
+            }
+
+            if (Double.isNaN(this.maxFollowError) || this.maxFollowError < 0.1D) {
+                this.maxFollowError = 0.1D;
+            }
+            if (this.maxFollowError > 4.0D) {
+                this.maxFollowError = 4.0D;
+            }
+        }
+
+        public String getArchetype() {
+            return archetype;
+        }
+
+        public boolean isCosmeticArchetype() {
+            return !ARCHETYPE_FULL.equals(this.archetype);
+        }
+
+        public String getFollowMode() {
+            return followMode;
+        }
+
+        public boolean isIdleSkipFollow() {
+            return FOLLOW_IDLE_SKIP.equals(this.followMode);
+        }
+
+        public int getUpdateIntervalMs() {
+            return updateIntervalMs;
+        }
+
+        public double getMaxFollowError() {
+            return maxFollowError;
+        }
+    }
+
+    public static class ShowcaseConfig {
+        private String id = "";
+        private String world = "";
+        private double x;
+        private double y;
+        private double z;
+        private float yaw;
+        private String cosmeticId = "";
+        private int viewRadius = 32;
+
+        public void normalize() {
+            this.id = this.id == null ? "" : this.id.trim().toLowerCase(Locale.ROOT);
+            this.world = this.world == null ? "" : this.world.trim();
+            this.cosmeticId = this.cosmeticId == null ? "" : this.cosmeticId.trim().toLowerCase(Locale.ROOT);
+
+            if (!Double.isFinite(this.x)) {
+                this.x = 0.0D;
+            }
+            if (!Double.isFinite(this.y)) {
+                this.y = 0.0D;
+            }
+            if (!Double.isFinite(this.z)) {
+                this.z = 0.0D;
+            }
+            if (!Float.isFinite(this.yaw)) {
+                this.yaw = 0.0F;
+            }
+
+            if (this.viewRadius < 8) {
+                this.viewRadius = 8;
+            }
+            if (this.viewRadius > 128) {
+                this.viewRadius = 128;
+            }
+        }
+
+        public boolean isValid() {
+            return !this.id.isBlank() && !this.world.isBlank() && !this.cosmeticId.isBlank();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getWorld() {
+            return world;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getZ() {
+            return z;
+        }
+
+        public float getYaw() {
+            return yaw;
+        }
+
+        public String getCosmeticId() {
+            return cosmeticId;
+        }
+
+        public int getViewRadius() {
+            return viewRadius;
+        }
+    }
+
     public static class PersistenceConfig {
         private String _comment = "mysql: fill ip/port/databaseName/username/password, or set jdbcUrl directly";
+        private String _commentWriteBehind = "saveDelayMs: 0 writes player profiles synchronously, else 50..30000; changes within the delay are coalesced into one background write per player. maxOfflineProfiles range: 0..10000 cached profiles of offline players (least recently used are evicted)";
+        private String _commentPool = "sqlite/mysql: poolMaxSize range: 1..32 pooled connections, poolIdleTimeoutMs: 0 keeps idle connections open, else 10000..3600000, batchSize range: 1..1000 rows per flush transaction";
         private String mode = "json";
         private String ip = "127.0.0.1";
         private int port = 3306;
@@ -299,6 +638,11 @@ public class HyPerksConfig {
         private String tableName = "hyperks_player_state";
         private int connectTimeoutMs = 5000;
         private boolean autoCreateTable = true;
+        private int poolMaxSize = 4;
+        private long poolIdleTimeoutMs = 300_000L;
+        private int saveDelayMs = 1000;
+        private int batchSize = 100;
+        private int maxOfflineProfiles = 256;
 
         public static PersistenceConfig defaults() {
             return new PersistenceConfig();
@@ -308,12 +652,18 @@ public class HyPerksConfig {
             if (this._comment == null || this._comment.isBlank()) {
                 this._comment = "mysql: fill ip/port/databaseName/username/password, or set jdbcUrl directly";
             }
+            if (this._commentWriteBehind == null || this._commentWriteBehind.isBlank()) {
+                this._commentWriteBehind = "saveDelayMs: 0 writes player profiles synchronously, else 50..30000; changes within the delay are coalesced into one background write per player. maxOfflineProfiles range: 0..10000 cached profiles of offline players (least recently used are evicted)";
+            }
+            if (this._commentPool == null || this._commentPool.isBlank()) {
+                this._commentPool = "sqlite/mysql: poolMaxSize range: 1..32 pooled connections, poolIdleTimeoutMs: 0 keeps idle connections open, else 10000..3600000, batchSize range: 1..1000 rows per flush transaction";
+            }
 
             if (this.mode == null || this.mode.isBlank()) {
                 this.mode = "json";
             }
             this.mode = this.mode.trim().toLowerCase(Locale.ROOT);
-            if (!this.mode.equals("json") && !this.mode.equals("sqlite") && !this.mode.equals("mysql")) {
+            if (!this.mode.equals("json") && !this.mode.equals("sqlite") && !this.mode.equals("mysql") && !this.mode.equals("log")) {
                 this.mode = "json";
             }
 
@@ -360,6 +710,47 @@ public class HyPerksConfig {
             if (this.connectTimeoutMs > 60_000) {
                 this.connectTimeoutMs = 60_000;
             }
+
+            if (this.poolMaxSize < 1) {
+                this.poolMaxSize = 1;
+            }
+            if (this.poolMaxSize > 32) {
+                this.poolMaxSize = 32;
+            }
+
+            if (this.poolIdleTimeoutMs < 0L) {
+                this.poolIdleTimeoutMs = 0L;
+            }
+            if (this.poolIdleTimeoutMs > 0L && this.poolIdleTimeoutMs < 10_000L) {
+                this.poolIdleTimeoutMs = 10_000L;
+            }
+            if (this.poolIdleTimeoutMs > 3_600_000L) {
+                this.poolIdleTimeoutMs = 3_600_000L;
+            }
+
+            if (this.saveDelayMs < 0) {
+                this.saveDelayMs = 0;
+            }
+            if (this.saveDelayMs > 0 && this.saveDelayMs < 50) {
+                this.saveDelayMs = 50;
+            }
+            if (this.saveDelayMs > 30_000) {
+                this.saveDelayMs = 30_000;
+            }
+
+            if (this.batchSize < 1) {
+                this.batchSize = 1;
+            }
+            if (this.batchSize > 1000) {
+                this.batchSize = 1000;
+            }
+
+            if (this.maxOfflineProfiles < 0) {
+                this.maxOfflineProfiles = 0;
+            }
+            if (this.maxOfflineProfiles > 10_000) {
+                this.maxOfflineProfiles = 10_000;
+            }
         }
 
         public String getMode() {
@@ -401,5 +792,25 @@ public class HyPerksConfig {
         public boolean isAutoCreateTable() {
             return autoCreateTable;
         }
+
+        public int getPoolMaxSize() {
+            return poolMaxSize;
+        }
+
+        public long getPoolIdleTimeoutMs() {
+            return poolIdleTimeoutMs;
+        }
+
+        public int getSaveDelayMs() {
+            return saveDelayMs;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public int getMaxOfflineProfiles() {
+            return maxOfflineProfiles;
+        }
     }
 }
@@ -3,6 +3,7 @@ package ca.nicecube.hyperks.event;
 import ca.nicecube.hyperks.service.HyPerksCoreService;
 import com.hypixel.hytale.server.core.event.events.player.AddPlayerToWorldEvent;
 import com.hypixel.hytale.server.core.event.events.player.DrainPlayerFromWorldEvent;
+import com.hypixel.hytale.server.core.event.events.player.PlayerConnectEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
 
 public class PlayerLifecycleListener {
@@ -12,6 +13,10 @@ public class PlayerLifecycleListener {
         this.coreService = coreService;
     }
 
+    public void onPlayerConnect(PlayerConnectEvent event) {
+        this.coreService.onPlayerConnect(event);
+    }
+
     public void onPlayerDisconnect(PlayerDisconnectEvent event) {
         this.coreService.onPlayerDisconnect(event);
     }
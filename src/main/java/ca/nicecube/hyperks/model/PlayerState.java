@@ -1,23 +1,49 @@
 package ca.nicecube.hyperks.model;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+@JsonAdapter(PlayerStateTypeAdapter.class)
 public class PlayerState {
     private String locale = "";
     private Map<String, String> activeCosmetics = new ConcurrentHashMap<>();
     private Map<String, List<String>> activeCosmeticsMulti = new ConcurrentHashMap<>();
+    private transient volatile long version;
+    private transient volatile long savedVersion;
+    // Mutators keep both maps normalised, so normalize() only has work to do once per instance.
+    private transient volatile boolean normalized;
 
     public static PlayerState defaults() {
         return new PlayerState();
     }
 
+    static PlayerState ofNormalized(String locale, Map<String, List<String>> activeCosmeticsMulti) {
+        PlayerState state = new PlayerState();
+        state.locale = locale;
+        for (Map.Entry<String, List<String>> entry : activeCosmeticsMulti.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                state.activeCosmeticsMulti.put(entry.getKey(), entry.getValue());
+                state.activeCosmetics.put(entry.getKey(), entry.getValue().get(0));
+            }
+        }
+        state.normalized = true;
+        return state;
+    }
+
     public void normalize() {
+        if (this.normalized) {
+            return;
+        }
+
+        boolean changed = false;
         if (this.locale == null) {
             this.locale = "";
+            changed = true;
         }
 
         Map<String, List<String>> normalizedMulti = new ConcurrentHashMap<>();
@@ -48,13 +74,56 @@ public class PlayerState {
             }
         }
 
-        this.activeCosmeticsMulti = normalizedMulti;
-        this.activeCosmetics = new ConcurrentHashMap<>();
+        Map<String, String> normalizedSingle = new ConcurrentHashMap<>();
         for (Map.Entry<String, List<String>> entry : normalizedMulti.entrySet()) {
             if (!entry.getValue().isEmpty()) {
-                this.activeCosmetics.put(entry.getKey(), entry.getValue().get(0));
+                normalizedSingle.put(entry.getKey(), entry.getValue().get(0));
             }
         }
+
+        // Only a real change counts as a modification, so save paths can normalize freely.
+        changed |= !normalizedMulti.equals(this.activeCosmeticsMulti) || !normalizedSingle.equals(this.activeCosmetics);
+        this.activeCosmeticsMulti = normalizedMulti;
+        this.activeCosmetics = normalizedSingle;
+        this.normalized = true;
+        if (changed) {
+            this.version++;
+        }
+    }
+
+    public boolean isDefault() {
+        return (this.locale == null || this.locale.isEmpty())
+            && (this.activeCosmeticsMulti == null || this.activeCosmeticsMulti.isEmpty());
+    }
+
+    public boolean isDirty() {
+        return this.version != this.savedVersion;
+    }
+
+    public void markSaved() {
+        this.savedVersion = this.version;
+    }
+
+    public void markSaved(long savedVersion) {
+        this.savedVersion = savedVersion;
+    }
+
+    public PlayerState copy() {
+        PlayerState copy = new PlayerState();
+        copy.locale = this.locale;
+        copy.activeCosmetics = new ConcurrentHashMap<>(this.activeCosmetics);
+        copy.activeCosmeticsMulti = new ConcurrentHashMap<>();
+        for (Map.Entry<String, List<String>> entry : this.activeCosmeticsMulti.entrySet()) {
+            copy.activeCosmeticsMulti.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        copy.version = this.version;
+        copy.savedVersion = this.savedVersion;
+        copy.normalized = this.normalized;
+        return copy;
+    }
+
+    public long getVersion() {
+        return version;
     }
 
     public String getLocale() {
@@ -62,7 +131,12 @@ public class PlayerState {
     }
 
     public void setLocale(String locale) {
-        this.locale = locale == null ? "" : locale.trim();
+        String normalizedLocale = locale == null ? "" : locale.trim();
+        if (normalizedLocale.equals(this.locale)) {
+            return;
+        }
+        this.locale = normalizedLocale;
+        this.version++;
     }
 
     public String getActive(String category) {
@@ -88,8 +162,13 @@ public class PlayerState {
 
         List<String> single = new ArrayList<>();
         single.add(normalizedCosmeticId);
+        if (single.equals(this.activeCosmeticsMulti.get(normalizedCategory))
+            && normalizedCosmeticId.equals(this.activeCosmetics.get(normalizedCategory))) {
+            return;
+        }
         this.activeCosmeticsMulti.put(normalizedCategory, single);
         this.activeCosmetics.put(normalizedCategory, normalizedCosmeticId);
+        this.version++;
     }
 
     public void removeActive(String category) {
@@ -98,8 +177,11 @@ public class PlayerState {
             return;
         }
 
-        this.activeCosmetics.remove(normalizedCategory);
-        this.activeCosmeticsMulti.remove(normalizedCategory);
+        boolean removedSingle = this.activeCosmetics.remove(normalizedCategory) != null;
+        boolean removedMulti = this.activeCosmeticsMulti.remove(normalizedCategory) != null;
+        if (removedSingle || removedMulti) {
+            this.version++;
+        }
     }
 
     public Map<String, String> getAllActive() {
@@ -143,8 +225,13 @@ public class PlayerState {
         }
 
         List<String> normalizedList = new ArrayList<>(unique);
+        if (normalizedList.equals(this.activeCosmeticsMulti.get(normalizedCategory))
+            && normalizedList.get(0).equals(this.activeCosmetics.get(normalizedCategory))) {
+            return;
+        }
         this.activeCosmeticsMulti.put(normalizedCategory, normalizedList);
         this.activeCosmetics.put(normalizedCategory, normalizedList.get(0));
+        this.version++;
     }
 
     public void addActive(String category, String cosmeticId) {
@@ -195,32 +282,14 @@ public class PlayerState {
         return this.activeCosmeticsMulti;
     }
 
-    public Map<String, Object> getStorageActiveCosmetics() {
-        normalize();
-
-        Map<String, Object> payload = new ConcurrentHashMap<>();
-        for (Map.Entry<String, List<String>> entry : this.activeCosmeticsMulti.entrySet()) {
-            List<String> list = entry.getValue();
-            if (list == null || list.isEmpty()) {
-                continue;
-            }
-            if (list.size() == 1) {
-                payload.put(entry.getKey(), list.get(0));
-            } else {
-                payload.put(entry.getKey(), new ArrayList<>(list));
-            }
-        }
-        return payload;
-    }
-
-    private static void addUnique(Map<String, List<String>> target, String category, String cosmeticId) {
+    static void addUnique(Map<String, List<String>> target, String category, String cosmeticId) {
         List<String> list = target.computeIfAbsent(category, ignored -> new ArrayList<>());
         if (!list.contains(cosmeticId)) {
             list.add(cosmeticId);
         }
     }
 
-    private static String normalizeValue(String raw) {
+    static String normalizeValue(String raw) {
         if (raw == null) {
             return "";
         }
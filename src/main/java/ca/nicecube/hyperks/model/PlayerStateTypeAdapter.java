@@ -0,0 +1,160 @@
+package ca.nicecube.hyperks.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class PlayerStateTypeAdapter extends TypeAdapter<PlayerState> {
+    @Override
+    public void write(JsonWriter out, PlayerState state) throws IOException {
+        if (state == null) {
+            out.nullValue();
+            return;
+        }
+
+        state.normalize();
+        out.beginObject();
+        out.name("locale").value(state.getLocale());
+        out.name("activeCosmetics").beginObject();
+        for (Map.Entry<String, List<String>> entry : state.getAllActiveMulti().entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                out.name(entry.getKey()).value(entry.getValue().get(0));
+            }
+        }
+        out.endObject();
+        out.name("activeCosmeticsMulti").beginObject();
+        for (Map.Entry<String, List<String>> entry : state.getAllActiveMulti().entrySet()) {
+            out.name(entry.getKey()).beginArray();
+            for (String cosmeticId : entry.getValue()) {
+                out.value(cosmeticId);
+            }
+            out.endArray();
+        }
+        out.endObject();
+        out.endObject();
+    }
+
+    @Override
+    public PlayerState read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        String locale = "";
+        Map<String, List<String>> single = null;
+        Map<String, List<String>> multi = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "locale" -> locale = readString(in);
+                case "activeCosmetics" -> single = readActiveCosmetics(in);
+                case "activeCosmeticsMulti" -> multi = readActiveCosmetics(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        // Same precedence as PlayerState.normalize(): single entries first, then the multi lists.
+        Map<String, List<String>> merged = single == null ? new LinkedHashMap<>() : single;
+        if (multi != null) {
+            for (Map.Entry<String, List<String>> entry : multi.entrySet()) {
+                for (String cosmeticId : entry.getValue()) {
+                    PlayerState.addUnique(merged, entry.getKey(), cosmeticId);
+                }
+            }
+        }
+        return PlayerState.ofNormalized(locale == null ? "" : locale, merged);
+    }
+
+    // SQL row format: active_cosmetics is {"category": "id"} or {"category": ["id", ...]}.
+    public static PlayerState fromStorage(String locale, String activeCosmeticsJson) throws IOException {
+        Map<String, List<String>> active = new LinkedHashMap<>();
+        if (activeCosmeticsJson != null && !activeCosmeticsJson.isBlank()) {
+            try (JsonReader reader = new JsonReader(new StringReader(activeCosmeticsJson))) {
+                active = readActiveCosmetics(reader);
+            }
+        }
+        return PlayerState.ofNormalized(locale == null ? "" : locale.trim(), active);
+    }
+
+    public static String toStorageJson(PlayerState state) throws IOException {
+        state.normalize();
+        StringWriter buffer = new StringWriter(64);
+        try (JsonWriter out = new JsonWriter(buffer)) {
+            out.setHtmlSafe(false);
+            out.beginObject();
+            for (Map.Entry<String, List<String>> entry : state.getAllActiveMulti().entrySet()) {
+                List<String> cosmeticIds = entry.getValue();
+                if (cosmeticIds.isEmpty()) {
+                    continue;
+                }
+                out.name(entry.getKey());
+                if (cosmeticIds.size() == 1) {
+                    out.value(cosmeticIds.get(0));
+                    continue;
+                }
+                out.beginArray();
+                for (String cosmeticId : cosmeticIds) {
+                    out.value(cosmeticId);
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+        return buffer.toString();
+    }
+
+    // Accepts a string or an array per category; blanks, nulls and nested objects are dropped.
+    private static Map<String, List<String>> readActiveCosmetics(JsonReader in) throws IOException {
+        Map<String, List<String>> active = new LinkedHashMap<>();
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return active;
+        }
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String category = PlayerState.normalizeValue(in.nextName());
+            JsonToken token = in.peek();
+            if (token == JsonToken.BEGIN_ARRAY) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    addValue(active, category, in);
+                }
+                in.endArray();
+            } else {
+                addValue(active, category, in);
+            }
+        }
+        in.endObject();
+        return active;
+    }
+
+    private static void addValue(Map<String, List<String>> active, String category, JsonReader in) throws IOException {
+        String cosmeticId = PlayerState.normalizeValue(readString(in));
+        if (!category.isBlank() && !cosmeticId.isBlank()) {
+            PlayerState.addUnique(active, category, cosmeticId);
+        }
+    }
+
+    private static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return in.nextString();
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        in.skipValue();
+        return null;
+    }
+}
@@ -21,6 +21,7 @@ import com.hypixel.hytale.server.core.command.system.CommandSender;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.event.events.player.AddPlayerToWorldEvent;
 import com.hypixel.hytale.server.core.event.events.player.DrainPlayerFromWorldEvent;
+import com.hypixel.hytale.server.core.event.events.player.PlayerConnectEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerReadyEvent;
 import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
@@ -36,6 +37,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -43,7 +45,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -64,6 +68,11 @@ public class HyPerksCoreService {
     private static final long TRACKER_RETENTION_MS = 300_000L;
     private static final long COMMAND_TRACKER_RETENTION_MS = 600_000L;
     private static final long PERMISSION_CACHE_RETENTION_MS = 180_000L;
+    private static final long EQUIP_RECENCY_WINDOW_MS = 120_000L;
+    private static final long ORPHAN_RIG_SWEEP_INTERVAL_MS = 60_000L;
+    private static final double RANK_PRIORITY_STEP = 1000.0D;
+    private static final double PROXIMITY_PRIORITY_MAX = 100.0D;
+    private static final double RECENCY_PRIORITY_MAX = 50.0D;
     private static final Map<CosmeticCategory, Map<String, Integer>> COSMETIC_ORDER = createCosmeticOrder();
 
     private final HytaleLogger logger;
@@ -79,12 +88,24 @@ public class HyPerksCoreService {
 
     private final Map<UUID, RenderTracker> renderTrackers = new ConcurrentHashMap<>();
     private final Map<String, String> resolvedEffectIds = new ConcurrentHashMap<>();
+    private final Object particleEffectIndexLock = new Object();
+    private volatile ParticleEffectIndex particleEffectIndex;
     private final Set<String> missingEffectWarnings = ConcurrentHashMap.newKeySet();
     private final Set<String> failedSpawnWarnings = ConcurrentHashMap.newKeySet();
     private final Map<UUID, Long> commandUsageTracker = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> lastEquipAtMs = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> modelViewerSeenAtMs = new ConcurrentHashMap<>();
+    private final Set<UUID> modelGatedPlayers = ConcurrentHashMap.newKeySet();
+    private final Map<String, ModelRenderFrame> modelRenderFrames = new ConcurrentHashMap<>();
     private final Map<PermissionCacheKey, PermissionCacheValue> permissionCache = new ConcurrentHashMap<>();
+    private final Map<UUID, DesiredModelRigsCache> desiredModelRigsCache = new ConcurrentHashMap<>();
+    private final AtomicLong permissionEpoch = new AtomicLong(0L);
+    private final AtomicLong catalogEpoch = new AtomicLong(0L);
+    private final AtomicLong desiredModelRigsHits = new AtomicLong(0L);
+    private final AtomicLong desiredModelRigsRebuilds = new AtomicLong(0L);
     private final AtomicLong renderFrame = new AtomicLong(0L);
     private final AtomicLong modelRenderFrame = new AtomicLong(0L);
+    private volatile long lastOrphanRigSweepAtMs;
 
     private volatile boolean runtimeManaged = false;
     private ScheduledFuture<?> runtimeTask;
@@ -122,17 +143,27 @@ public class HyPerksCoreService {
         );
 
         rebuildLookup();
+        this.catalogEpoch.incrementAndGet();
+        this.desiredModelRigsCache.clear();
         this.resolvedEffectIds.clear();
+        this.particleEffectIndex = null;
         this.missingEffectWarnings.clear();
         this.failedSpawnWarnings.clear();
         this.commandUsageTracker.clear();
-        this.permissionCache.clear();
-        this.modelVfxRigService.clearAllRigs();
+        clearPermissionCache();
+        // Live rigs stay up; the next syncs diff them against the reloaded catalog within the tick budgets.
         this.modelVfxRigService.clearCaches();
         this.modelVfxRigService.configure(
             this.config.getModelVfx().getMaxRigsPerPlayer(),
+            this.config.getModelVfx().getMaxRigsPerWorld(),
+            this.config.getModelVfx().getMaxSpawnsPerTick(),
+            this.config.getModelVfx().getMaxRemovalsPerTick(),
             this.config.getModelVfx().getLodUltraMaxWorldPlayers()
         );
+        this.modelVfxRigService.configureProfiles(this.config.getModelVfx().getProfiles());
+        this.modelVfxRigService.preloadPartVariants(collectModelAssetIds());
+        preloadParticleEffectIndex();
+        this.modelVfxRigService.configureShowcases(buildShowcaseRigs());
 
         this.logger.atInfo().log(
             "[HyPerks] Reloaded: cosmetics=%s, categories=%s, runtime=%s (%sms), modelRuntime=%sms, modelLodRadius=%s, cooldown=%sms, permCacheTtl=%sms, modelRigBudget=%s, lodUltraMaxPlayers=%s, worlds=%s",
@@ -166,11 +197,15 @@ public class HyPerksCoreService {
     public synchronized void startRuntime() {
         this.runtimeManaged = true;
         restartRuntimeRenderer();
+        sweepOrphanModelRigs();
     }
 
     public synchronized void stopRuntime() {
         this.runtimeManaged = false;
         stopRuntimeRendererInternal();
+        // Shutdown only: no tick will drain the queue after this, so every world removes its rigs now.
+        this.modelVfxRigService.clearAllRigs();
+        this.modelVfxRigService.flushRigRemovals();
     }
 
     public boolean isRuntimeRunning() {
@@ -280,11 +315,95 @@ public class HyPerksCoreService {
         send(context, "cmd.status.model_rig_players", this.modelVfxRigService.getActiveRigPlayerCount());
         send(context, "cmd.status.model_rigs", this.modelVfxRigService.getActiveRigCount());
         send(context, "cmd.status.model_rig_budget", this.modelVfxRigService.getRigBudgetPerPlayer());
+        send(
+            context,
+            "cmd.status.model_world_rig_budget",
+            this.modelVfxRigService.getRigBudgetPerWorld(),
+            this.modelVfxRigService.getTotalEvictions()
+        );
+        send(context, "cmd.status.model_world_rigs", describeWorldRigUsage());
+        send(
+            context,
+            "cmd.status.model_spawn_budget",
+            this.modelVfxRigService.getSpawnBudgetPerTick(),
+            this.modelVfxRigService.getPendingSpawnCount(),
+            this.modelVfxRigService.getTotalDeferredSpawns()
+        );
+        send(
+            context,
+            "cmd.status.model_rig_removals",
+            this.modelVfxRigService.getRemovalBudgetPerTick(),
+            this.modelVfxRigService.getPendingRemovalCount(),
+            this.modelVfxRigService.getRemovedRigs(),
+            this.modelVfxRigService.getFailedRemovals(),
+            this.modelVfxRigService.getLeakedRemovals()
+        );
         send(context, "cmd.status.model_lod_ultra_max_players", this.modelVfxRigService.getLodUltraMaxPlayers());
         send(context, "cmd.status.model_lod_radius", this.config.getModelVfx().getLodNearbyRadius());
         send(context, "cmd.status.model_update_interval", this.config.getModelVfx().getUpdateIntervalMs());
         send(context, "cmd.status.model_runtime_active", this.isModelRuntimeRunning());
+        send(context, "cmd.status.model_desired_cache", this.desiredModelRigsHits.get(), this.desiredModelRigsRebuilds.get());
+        send(
+            context,
+            "cmd.status.model_asset_index",
+            this.modelVfxRigService.getModelAssetIndexSize(),
+            this.modelVfxRigService.getModelAssetIndexBuilds()
+        );
+        send(
+            context,
+            "cmd.status.model_showcases",
+            this.modelVfxRigService.getShowcaseCount(),
+            this.modelVfxRigService.getSpawnedShowcaseRigCount()
+        );
+        send(
+            context,
+            "cmd.status.model_viewer_gating",
+            this.config.getModelVfx().getViewerRadius(),
+            this.config.getModelVfx().isOwnerCountsAsViewer(),
+            this.modelGatedPlayers.size()
+        );
+        send(context, "cmd.status.model_orphans_swept", this.modelVfxRigService.getOrphanRigsSwept());
+        if (this.modelVfxRigService.isAllocationProbeAvailable()) {
+            send(context, "cmd.status.model_sync_alloc", this.modelVfxRigService.getLastSyncAllocatedBytes());
+        }
+        send(
+            context,
+            "cmd.status.model_transform_writes",
+            this.modelVfxRigService.getTransformWrites(),
+            this.modelVfxRigService.getTransformWritesSkipped()
+        );
         send(context, "cmd.status.persistence", this.playerStateService.getStoreDescription());
+        send(
+            context,
+            "cmd.status.persistence_write_behind",
+            this.playerStateService.getSaveDelayMs(),
+            this.playerStateService.getPendingSaveCount(),
+            this.playerStateService.getQueuedSaves(),
+            this.playerStateService.getCoalescedSaves(),
+            this.playerStateService.getWrittenSaves(),
+            this.playerStateService.getFailedSaves()
+        );
+        send(context, "cmd.status.persistence_clean_skips", this.playerStateService.getCleanSkips());
+        send(
+            context,
+            "cmd.status.persistence_cache",
+            this.playerStateService.getCachedProfileCount(),
+            this.playerStateService.getOnlineProfileCount(),
+            this.playerStateService.getOfflineProfileCount(),
+            this.playerStateService.getMaxOfflineProfiles(),
+            this.playerStateService.getCacheHits(),
+            this.playerStateService.getCacheMisses(),
+            this.playerStateService.getCacheEvictions()
+        );
+        send(context, "cmd.status.persistence_loading", this.playerStateService.getLoadingProfileCount());
+        String storeMetrics = this.playerStateService.getStoreMetrics();
+        if (!storeMetrics.isBlank()) {
+            send(
+                context,
+                this.playerStateService.isLogStore() ? "cmd.status.persistence_log" : "cmd.status.persistence_pool",
+                storeMetrics
+            );
+        }
         send(
             context,
             "cmd.status.worlds",
@@ -397,6 +516,7 @@ public class HyPerksCoreService {
             this.modelVfxRigService.clearCategoryRigs(playerUuid, category.getId());
             state.setActive(category.getId(), cosmetic.getId());
         }
+        this.lastEquipAtMs.put(playerUuid, System.currentTimeMillis());
         this.playerStateService.save(playerUuid);
         send(context, "cmd.equip.success", tr(player, cosmetic.getNameKey()));
     }
@@ -633,6 +753,7 @@ public class HyPerksCoreService {
             this.modelVfxRigService.clearCategoryRigs(playerUuid, category.getId());
             state.setActive(category.getId(), cosmetic.getId());
         }
+        this.lastEquipAtMs.put(playerUuid, System.currentTimeMillis());
         this.playerStateService.save(playerUuid);
         player.sendMessage(Message.raw(tr(player, "cmd.equip.success", tr(player, cosmetic.getNameKey()))));
     }
@@ -708,7 +829,7 @@ public class HyPerksCoreService {
                 send(context, "error.no_permission");
                 return;
             }
-            this.permissionCache.clear();
+            clearPermissionCache();
             send(context, "cmd.permission_refresh.global");
             return;
         }
@@ -822,6 +943,7 @@ public class HyPerksCoreService {
                 modelVfxConfig.getLodNearbyRadius(),
                 modelVfxConfig.getUpdateIntervalMs()
             );
+            send(context, "cmd.modelvfx.current_world", modelVfxConfig.getMaxRigsPerWorld(), modelVfxConfig.getMaxSpawnsPerTick());
             send(context, "cmd.modelvfx.usage");
             return;
         }
@@ -835,6 +957,14 @@ public class HyPerksCoreService {
             modelVfxDensity(context);
             return;
         }
+        if ("bench".equals(normalizedOption) || "benchmark".equals(normalizedOption)) {
+            modelVfxBench(context, value);
+            return;
+        }
+        if ("purgelegacy".equals(normalizedOption) || "purge_legacy".equals(normalizedOption)) {
+            purgeLegacyModelRigs(context);
+            return;
+        }
 
         if (value == null || value.isBlank()) {
             send(context, "cmd.modelvfx.usage");
@@ -856,6 +986,14 @@ public class HyPerksCoreService {
             modelVfxConfig.setMaxRigsPerPlayer(parsedValue);
             updated = true;
             updatedKey = "maxRigsPerPlayer";
+        } else if ("worldbudget".equals(normalizedOption) || "world_budget".equals(normalizedOption) || "maxworldrigs".equals(normalizedOption)) {
+            modelVfxConfig.setMaxRigsPerWorld(parsedValue);
+            updated = true;
+            updatedKey = "maxRigsPerWorld";
+        } else if ("spawns".equals(normalizedOption) || "spawnbudget".equals(normalizedOption) || "spawn_budget".equals(normalizedOption)) {
+            modelVfxConfig.setMaxSpawnsPerTick(parsedValue);
+            updated = true;
+            updatedKey = "maxSpawnsPerTick";
         } else if ("lodultra".equals(normalizedOption) || "lod_ultra".equals(normalizedOption) || "lod".equals(normalizedOption)) {
             modelVfxConfig.setLodUltraMaxWorldPlayers(parsedValue);
             updated = true;
@@ -878,6 +1016,9 @@ public class HyPerksCoreService {
         modelVfxConfig.normalize();
         this.modelVfxRigService.configure(
             modelVfxConfig.getMaxRigsPerPlayer(),
+            modelVfxConfig.getMaxRigsPerWorld(),
+            modelVfxConfig.getMaxSpawnsPerTick(),
+            modelVfxConfig.getMaxRemovalsPerTick(),
             modelVfxConfig.getLodUltraMaxWorldPlayers()
         );
         this.configStore.save(this.paths.getConfigPath(), this.config);
@@ -887,6 +1028,10 @@ public class HyPerksCoreService {
 
         if ("maxRigsPerPlayer".equals(updatedKey)) {
             send(context, "cmd.modelvfx.updated", updatedKey, modelVfxConfig.getMaxRigsPerPlayer());
+        } else if ("maxRigsPerWorld".equals(updatedKey)) {
+            send(context, "cmd.modelvfx.updated", updatedKey, modelVfxConfig.getMaxRigsPerWorld());
+        } else if ("maxSpawnsPerTick".equals(updatedKey)) {
+            send(context, "cmd.modelvfx.updated", updatedKey, modelVfxConfig.getMaxSpawnsPerTick());
         } else if ("lodUltraMaxWorldPlayers".equals(updatedKey)) {
             send(context, "cmd.modelvfx.updated", updatedKey, modelVfxConfig.getLodUltraMaxWorldPlayers());
         } else if ("lodNearbyRadius".equals(updatedKey)) {
@@ -987,6 +1132,167 @@ public class HyPerksCoreService {
         }
     }
 
+    private void purgeLegacyModelRigs(CommandContext context) {
+        Set<String> rigModelAssetIds = new HashSet<>();
+        for (CosmeticDefinition cosmetic : this.catalog.getCosmetics()) {
+            if (cosmetic == null || !cosmetic.isModel3dBackend() || cosmetic.getModelAssetId().isBlank()) {
+                continue;
+            }
+            for (boolean ultraTier : new boolean[] { false, true }) {
+                for (ModelVfxRigService.AuditPart part : this.modelVfxRigService.describeAuditParts(
+                    cosmetic.getCategory(),
+                    cosmetic.getId(),
+                    cosmetic.getModelAssetId(),
+                    cosmetic.getRigProfile(),
+                    ultraTier
+                )) {
+                    if (part.isResolvable()) {
+                        rigModelAssetIds.add(part.getResolvedModelAssetId());
+                    }
+                }
+            }
+        }
+        if (rigModelAssetIds.isEmpty()) {
+            send(context, "cmd.modelvfx.audit.empty");
+            return;
+        }
+
+        Universe universe = Universe.get();
+        if (universe == null) {
+            send(context, "cmd.modelvfx.density.unavailable");
+            return;
+        }
+
+        send(context, "cmd.modelvfx.purge_legacy.started", rigModelAssetIds.size());
+        for (World world : new ArrayList<>(universe.getWorlds().values())) {
+            if (world == null || !world.isAlive()) {
+                continue;
+            }
+
+            world.execute(() -> {
+                int purged = this.modelVfxRigService.purgeLegacyRigs(world, world.getEntityStore().getStore(), rigModelAssetIds);
+                send(context, "cmd.modelvfx.purge_legacy.world", world.getName(), purged);
+            });
+        }
+    }
+
+    private void modelVfxBench(CommandContext context, String value) {
+        if (context == null || !context.isPlayer()) {
+            send(context, "cmd.modelvfx.density.player_only");
+            return;
+        }
+        // Spawns up to 512 rigs per archetype on the live world thread, so the general modelvfx grant is not enough.
+        if (!context.sender().hasPermission("hyperks.admin.modelvfx.bench")) {
+            send(context, "error.no_permission");
+            return;
+        }
+
+        Player player = context.senderAs(Player.class);
+        if (player == null || player.wasRemoved() || player.getWorld() == null || !player.getWorld().isAlive() || player.getReference() == null) {
+            send(context, "cmd.modelvfx.density.unavailable");
+            return;
+        }
+
+        int entityCount = 64;
+        if (value != null && !value.isBlank()) {
+            try {
+                entityCount = Math.max(1, Math.min(512, Integer.parseInt(value.trim())));
+            } catch (NumberFormatException ex) {
+                send(context, "cmd.modelvfx.invalid", value);
+                return;
+            }
+        }
+
+        String modelAssetId = "";
+        for (CosmeticDefinition cosmetic : this.catalog.getCosmetics()) {
+            if (cosmetic != null && cosmetic.isEnabled() && cosmetic.isModel3dBackend() && !cosmetic.getModelAssetId().isBlank()) {
+                modelAssetId = cosmetic.getModelAssetId();
+                break;
+            }
+        }
+        if (modelAssetId.isBlank()) {
+            send(context, "cmd.modelvfx.audit.empty");
+            return;
+        }
+
+        if (this.modelVfxRigService.isArchetypeBenchRunning()) {
+            send(context, "cmd.modelvfx.bench.running");
+            return;
+        }
+
+        World world = player.getWorld();
+        Ref<EntityStore> playerReference = player.getReference();
+        String benchModelAssetId = modelAssetId;
+        int benchEntityCount = entityCount;
+        world.execute(() -> {
+            try {
+                Store<EntityStore> store = world.getEntityStore().getStore();
+                TransformComponent transform = store.getComponent(playerReference, TransformComponent.getComponentType());
+                if (transform == null || transform.getPosition() == null) {
+                    player.sendMessage(Message.raw(tr(player, "cmd.modelvfx.density.unavailable")));
+                    return;
+                }
+
+                boolean started = this.modelVfxRigService.benchmarkArchetypes(
+                    world,
+                    new Vector3d(transform.getPosition()),
+                    benchModelAssetId,
+                    benchEntityCount,
+                    results -> reportModelVfxBench(player, benchModelAssetId, benchEntityCount, results)
+                );
+                if (!started) {
+                    player.sendMessage(Message.raw(tr(player, "cmd.modelvfx.density.unavailable")));
+                    return;
+                }
+                player.sendMessage(Message.raw(tr(
+                    player,
+                    "cmd.modelvfx.bench.started",
+                    benchEntityCount,
+                    ModelVfxRigService.getArchetypeBenchSampleSeconds()
+                )));
+            } catch (Exception ex) {
+                if (this.config.isDebugMode()) {
+                    this.logger.atFine().withCause(ex).log("[HyPerks] modelvfx bench failed.");
+                }
+                player.sendMessage(Message.raw(tr(player, "cmd.modelvfx.density.unavailable")));
+            }
+        });
+    }
+
+    private void reportModelVfxBench(
+        Player player,
+        String modelAssetId,
+        int entityCount,
+        List<ModelVfxRigService.ArchetypeBenchResult> results
+    ) {
+        if (player.wasRemoved()) {
+            return;
+        }
+        if (results.isEmpty()) {
+            player.sendMessage(Message.raw(tr(player, "cmd.modelvfx.density.unavailable")));
+            return;
+        }
+
+        player.sendMessage(Message.raw(tr(player, "cmd.modelvfx.bench.header", modelAssetId, entityCount)));
+        for (ModelVfxRigService.ArchetypeBenchResult result : results) {
+            if (result.isBaseline()) {
+                player.sendMessage(Message.raw(tr(player, "cmd.modelvfx.bench.baseline", result.getWorldBusyMicrosPerSecond())));
+                continue;
+            }
+            player.sendMessage(Message.raw(tr(
+                player,
+                "cmd.modelvfx.bench.archetype",
+                result.getArchetype(),
+                result.getEntityCount(),
+                result.getSpawnNanosPerEntity(),
+                result.getUpdateNanosPerEntity(),
+                result.getRemoveNanosPerEntity(),
+                result.getWorldBusyMicrosPerSecond(),
+                result.getTickNanosPerEntityPerSecond()
+            )));
+        }
+    }
+
     private void modelVfxDensity(CommandContext context) {
         if (context == null || !context.isPlayer()) {
             send(context, "cmd.modelvfx.density.player_only");
@@ -1078,26 +1384,73 @@ public class HyPerksCoreService {
 
             this.modelVfxRigService.clearPlayerRigs(playerUuid);
             invalidatePermissionCache(playerUuid);
-            this.playerStateService.invalidate(playerUuid);
-            PlayerState state = this.playerStateService.refresh(playerUuid);
+            // Usually already started by onPlayerConnect; the renderer skips the player until it lands.
+            CompletableFuture<PlayerState> prefetch = this.playerStateService.prefetch(playerUuid);
+            prefetch.whenComplete((loaded, error) -> {
+                if (world.isAlive()) {
+                    world.execute(() -> completePlayerReady(world, playerReference, playerUuid, prefetch, loaded, error));
+                } else {
+                    this.playerStateService.abandonPrefetch(playerUuid, prefetch);
+                }
+            });
+        });
+    }
 
-            if (this.config.isAutoShowMenuHintOnJoin()) {
-                livePlayer.sendMessage(Message.raw(tr(playerUuid, "join.hint")));
+    private void completePlayerReady(
+        World world,
+        Ref<EntityStore> playerReference,
+        UUID playerUuid,
+        CompletableFuture<PlayerState> prefetch,
+        PlayerState loaded,
+        Throwable error
+    ) {
+        PlayerState state;
+        if (error == null) {
+            state = this.playerStateService.completePrefetch(playerUuid, prefetch, loaded);
+            if (state == null) {
+                return;
             }
+        } else {
+            this.logger.atWarning().withCause(error).log("[HyPerks] Async profile load failed for %s, loading inline.", playerUuid);
+            this.playerStateService.abandonPrefetch(playerUuid, prefetch);
+            state = this.playerStateService.get(playerUuid);
+        }
 
-            int activeCount = state.getAllActiveMulti().values().stream().mapToInt(List::size).sum();
-            if (activeCount > 0) {
-                livePlayer.sendMessage(Message.raw(tr(playerUuid, "join.active_loaded", activeCount)));
-            }
+        Store<EntityStore> store = world.getEntityStore().getStore();
+        Player livePlayer = store.getComponent(playerReference, Player.getComponentType());
+        if (livePlayer == null || livePlayer.wasRemoved()) {
+            return;
+        }
 
-            if (this.config.isDebugMode()) {
-                this.logger.atInfo().log(
-                    "[HyPerks] Player ready: %s (active cosmetics=%s)",
-                    playerUuid,
-                    activeCount
-                );
-            }
-        });
+        if (this.config.isAutoShowMenuHintOnJoin()) {
+            livePlayer.sendMessage(Message.raw(tr(playerUuid, "join.hint")));
+        }
+
+        int activeCount = state.getAllActiveMulti().values().stream().mapToInt(List::size).sum();
+        if (activeCount > 0) {
+            livePlayer.sendMessage(Message.raw(tr(playerUuid, "join.active_loaded", activeCount)));
+        }
+
+        if (this.config.isDebugMode()) {
+            this.logger.atInfo().log(
+                "[HyPerks] Player ready: %s (active cosmetics=%s)",
+                playerUuid,
+                activeCount
+            );
+        }
+    }
+
+    public void onPlayerConnect(PlayerConnectEvent event) {
+        if (event == null || event.getPlayerRef() == null) {
+            return;
+        }
+
+        UUID playerUuid = event.getPlayerRef().getUuid();
+        if (playerUuid == null) {
+            return;
+        }
+
+        this.playerStateService.prefetch(playerUuid);
     }
 
     public void onPlayerDisconnect(PlayerDisconnectEvent event) {
@@ -1113,7 +1466,12 @@ public class HyPerksCoreService {
         this.modelVfxRigService.clearPlayerRigs(playerUuid);
         this.renderTrackers.remove(playerUuid);
         this.commandUsageTracker.remove(playerUuid);
+        this.lastEquipAtMs.remove(playerUuid);
+        this.modelViewerSeenAtMs.remove(playerUuid);
+        this.modelGatedPlayers.remove(playerUuid);
+        this.desiredModelRigsCache.remove(playerUuid);
         invalidatePermissionCache(playerUuid);
+        this.playerStateService.release(playerUuid);
     }
 
     public void onDrainPlayerFromWorld(DrainPlayerFromWorldEvent event) {
@@ -1156,6 +1514,8 @@ public class HyPerksCoreService {
         stopRuntimeRendererInternal();
 
         if (!this.config.isRuntimeRenderingEnabled()) {
+            this.modelVfxRigService.clearAllRigs();
+            this.modelVfxRigService.flushRigRemovals();
             this.logger.atInfo().log("[HyPerks] Runtime renderer disabled in config.");
             return;
         }
@@ -1190,7 +1550,7 @@ public class HyPerksCoreService {
         }
 
         this.renderTrackers.clear();
-        this.modelVfxRigService.clearAllRigs();
+        this.modelRenderFrames.clear();
     }
 
     private void tickRuntimeRendererSafe() {
@@ -1248,14 +1608,20 @@ public class HyPerksCoreService {
         if (frame % 200L == 0L) {
             this.modelVfxRigService.pruneStaleRigs(System.currentTimeMillis());
         }
+        if ((System.currentTimeMillis() - this.lastOrphanRigSweepAtMs) >= ORPHAN_RIG_SWEEP_INTERVAL_MS) {
+            sweepOrphanModelRigs();
+        }
 
         Collection<World> worlds = new ArrayList<>(universe.getWorlds().values());
         for (World world : worlds) {
-            if (world == null || !world.isAlive() || world.getPlayerCount() <= 0) {
+            if (world == null || !world.isAlive()) {
                 continue;
             }
 
-            if (!this.config.isWorldAllowed(world.getName())) {
+            if (world.getPlayerCount() <= 0 || !this.config.isWorldAllowed(world.getName())) {
+                if (this.modelVfxRigService.hasSpawnedShowcases(world) || this.modelVfxRigService.hasPendingRigRemovals(world)) {
+                    world.execute(() -> releaseIdleWorldModels(world, frame));
+                }
                 continue;
             }
 
@@ -1263,6 +1629,23 @@ public class HyPerksCoreService {
         }
     }
 
+    private void sweepOrphanModelRigs() {
+        this.lastOrphanRigSweepAtMs = System.currentTimeMillis();
+        Universe universe = Universe.get();
+        if (universe == null) {
+            return;
+        }
+
+        Collection<World> worlds = new ArrayList<>(universe.getWorlds().values());
+        for (World world : worlds) {
+            if (world == null || !world.isAlive()) {
+                continue;
+            }
+
+            world.execute(() -> this.modelVfxRigService.sweepOrphanRigs(world, world.getEntityStore().getStore()));
+        }
+    }
+
     private void renderWorld(World world, long frame) {
         Store<EntityStore> store = world.getEntityStore().getStore();
         long nowMs = System.currentTimeMillis();
@@ -1275,28 +1658,47 @@ public class HyPerksCoreService {
     private void renderWorldModels(World world, long frame) {
         Store<EntityStore> store = world.getEntityStore().getStore();
         long nowMs = System.currentTimeMillis();
+        this.modelVfxRigService.drainRigRemovals(world, store);
 
-        List<ModelRenderContext> contexts = collectModelRenderContexts(store, world.getPlayerRefs());
-        if (contexts.isEmpty()) {
+        ModelRenderFrame renderFrame = this.modelRenderFrames.computeIfAbsent(world.getName(), ignored -> new ModelRenderFrame());
+        collectModelRenderOwners(renderFrame, store, world.getPlayerRefs());
+        if (this.modelVfxRigService.hasShowcases(world)) {
+            this.modelVfxRigService.syncShowcaseRigs(world, store, renderFrame.viewerPositions(), frame, nowMs);
+        }
+        if (renderFrame.size() == 0) {
             return;
         }
 
-        double lodRadius = this.config.getModelVfx().getLodNearbyRadius();
+        HyPerksConfig.ModelVfxConfig modelVfxConfig = this.config.getModelVfx();
+        double lodRadius = modelVfxConfig.getLodNearbyRadius();
         double lodRadiusSquared = lodRadius * lodRadius;
-        Map<ModelLodCellKey, List<Integer>> spatialIndex = buildModelLodSpatialIndex(contexts, lodRadius);
-        for (int index = 0; index < contexts.size(); index++) {
-            ModelRenderContext context = contexts.get(index);
-            int nearbyPlayers = resolveNearbyPlayers(contexts, spatialIndex, index, lodRadius, lodRadiusSquared);
-            renderPlayerModels(world, store, context, nearbyPlayers, frame, nowMs);
+        double viewerKeepRadius = modelVfxConfig.getViewerRadius() <= 0
+            ? 0.0D
+            : modelVfxConfig.getViewerRadius() + modelVfxConfig.getViewerHysteresis();
+        // One index serves both LOD and viewer lookups: cells as large as the wider radius keep the 3x3x3 search exact.
+        renderFrame.index(Math.max(lodRadius, viewerKeepRadius));
+        for (int index = 0; index < renderFrame.size(); index++) {
+            ModelRenderFrame.Owner owner = renderFrame.owner(index);
+            renderFrame.resolveNearby(index, lodRadiusSquared);
+            owner.viewed = resolveModelViewerGate(owner, modelVfxConfig, nowMs);
+            addModelRigRequest(renderFrame, owner, lodRadiusSquared, nowMs);
         }
+
+        this.modelVfxRigService.syncWorldRigs(world, store, renderFrame.requests(), frame, nowMs);
+    }
+
+    private void releaseIdleWorldModels(World world, long frame) {
+        Store<EntityStore> store = world.getEntityStore().getStore();
+        this.modelVfxRigService.syncShowcaseRigs(world, store, List.of(), frame, System.currentTimeMillis());
+        this.modelVfxRigService.drainRigRemovals(world, store);
     }
 
-    private List<ModelRenderContext> collectModelRenderContexts(Store<EntityStore> store, Collection<PlayerRef> playerRefs) {
+    private void collectModelRenderOwners(ModelRenderFrame renderFrame, Store<EntityStore> store, Collection<PlayerRef> playerRefs) {
+        renderFrame.begin();
         if (store == null || playerRefs == null || playerRefs.isEmpty()) {
-            return List.of();
+            return;
         }
 
-        List<ModelRenderContext> contexts = new ArrayList<>();
         for (PlayerRef playerRef : playerRefs) {
             if (playerRef == null || !playerRef.isValid() || playerRef.getReference() == null) {
                 continue;
@@ -1317,90 +1719,8 @@ public class HyPerksCoreService {
                 continue;
             }
 
-            Vector3d position = new Vector3d(transform.getPosition());
-            Vector3f rotation = transform.getRotation() == null ? new Vector3f(0F, 0F, 0F) : new Vector3f(transform.getRotation());
-            contexts.add(new ModelRenderContext(playerUuid, player, position, rotation));
+            renderFrame.add(playerUuid, player, transform.getPosition(), transform.getRotation());
         }
-
-        return contexts;
-    }
-
-    private Map<ModelLodCellKey, List<Integer>> buildModelLodSpatialIndex(List<ModelRenderContext> contexts, double cellSize) {
-        if (contexts == null || contexts.isEmpty()) {
-            return Map.of();
-        }
-
-        double normalizedCellSize = cellSize <= 0.0D ? 1.0D : cellSize;
-        Map<ModelLodCellKey, List<Integer>> index = new HashMap<>();
-        for (int i = 0; i < contexts.size(); i++) {
-            ModelRenderContext context = contexts.get(i);
-            if (context == null || context.position == null) {
-                continue;
-            }
-
-            ModelLodCellKey key = new ModelLodCellKey(
-                toModelLodCell(context.position.x, normalizedCellSize),
-                toModelLodCell(context.position.y, normalizedCellSize),
-                toModelLodCell(context.position.z, normalizedCellSize)
-            );
-            index.computeIfAbsent(key, ignored -> new ArrayList<>()).add(i);
-        }
-
-        return index;
-    }
-
-    private int resolveNearbyPlayers(
-        List<ModelRenderContext> contexts,
-        Map<ModelLodCellKey, List<Integer>> spatialIndex,
-        int sourceIndex,
-        double cellSize,
-        double radiusSquared
-    ) {
-        if (contexts == null || contexts.isEmpty() || sourceIndex < 0 || sourceIndex >= contexts.size()) {
-            return 0;
-        }
-
-        double normalizedCellSize = cellSize <= 0.0D ? 1.0D : cellSize;
-        ModelRenderContext source = contexts.get(sourceIndex);
-        int sourceCellX = toModelLodCell(source.position.x, normalizedCellSize);
-        int sourceCellY = toModelLodCell(source.position.y, normalizedCellSize);
-        int sourceCellZ = toModelLodCell(source.position.z, normalizedCellSize);
-        int nearby = 0;
-
-        for (int dx = -1; dx <= 1; dx++) {
-            for (int dy = -1; dy <= 1; dy++) {
-                for (int dz = -1; dz <= 1; dz++) {
-                    ModelLodCellKey cell = new ModelLodCellKey(sourceCellX + dx, sourceCellY + dy, sourceCellZ + dz);
-                    List<Integer> candidates = spatialIndex.get(cell);
-                    if (candidates == null || candidates.isEmpty()) {
-                        continue;
-                    }
-
-                    for (Integer candidateIndex : candidates) {
-                        if (candidateIndex == null || candidateIndex < 0 || candidateIndex >= contexts.size()) {
-                            continue;
-                        }
-
-                        ModelRenderContext candidate = contexts.get(candidateIndex);
-                        if (candidate == null || candidate.position == null) {
-                            continue;
-                        }
-
-                        double distX = source.position.x - candidate.position.x;
-                        double distY = source.position.y - candidate.position.y;
-                        double distZ = source.position.z - candidate.position.z;
-                        if ((distX * distX) + (distY * distY) + (distZ * distZ) <= radiusSquared) {
-                            nearby++;
-                        }
-                    }
-                }
-            }
-        }
-        return nearby;
-    }
-
-    private int toModelLodCell(double value, double cellSize) {
-        return (int) Math.floor(value / cellSize);
     }
 
     private void renderPlayer(World world, Store<EntityStore> store, PlayerRef playerRef, long frame, long nowMs) {
@@ -1414,7 +1734,7 @@ public class HyPerksCoreService {
         }
 
         UUID playerUuid = playerRef.getUuid();
-        if (playerUuid == null) {
+        if (playerUuid == null || this.playerStateService.isLoading(playerUuid)) {
             return;
         }
 
@@ -1480,33 +1800,186 @@ public class HyPerksCoreService {
         }
     }
 
-    private void renderPlayerModels(
-        World world,
-        Store<EntityStore> store,
-        ModelRenderContext context,
-        int nearbyPlayers,
-        long frame,
-        long nowMs
-    ) {
-        if (context == null || context.player == null || context.player.wasRemoved() || context.playerUuid == null) {
+    private void addModelRigRequest(ModelRenderFrame renderFrame, ModelRenderFrame.Owner owner, double lodRadiusSquared, long nowMs) {
+        if (owner.player == null || owner.player.wasRemoved() || owner.playerUuid == null) {
+            return;
+        }
+        if (this.playerStateService.isLoading(owner.playerUuid)) {
             return;
         }
 
-        PlayerState state = this.playerStateService.get(context.playerUuid);
-        List<ModelVfxRigService.DesiredRig> desiredModelRigs = collectDesiredModelRigs(context.player, state);
-        this.modelVfxRigService.syncPlayerRigs(
-            context.playerUuid,
-            world,
-            store,
-            context.position,
-            context.rotation,
+        PlayerState state = this.playerStateService.get(owner.playerUuid);
+        List<ModelVfxRigService.DesiredRig> desiredModelRigs = owner.viewed
+            ? resolveDesiredModelRigs(owner.playerUuid, owner.player, state, nowMs)
+            : List.of();
+        renderFrame.request(
+            owner,
             desiredModelRigs,
-            nearbyPlayers,
-            frame,
-            nowMs
+            desiredModelRigs.isEmpty() ? 0.0D : resolveModelRigPriority(owner, lodRadiusSquared, nowMs)
         );
     }
 
+    private boolean resolveModelViewerGate(ModelRenderFrame.Owner context, HyPerksConfig.ModelVfxConfig modelVfxConfig, long nowMs) {
+        int viewerRadius = modelVfxConfig.getViewerRadius();
+        if (viewerRadius <= 0 || modelVfxConfig.isOwnerCountsAsViewer()) {
+            this.modelGatedPlayers.remove(context.playerUuid);
+            return true;
+        }
+
+        // Hysteresis: a viewer must come within viewerRadius to spawn rigs, but once spawned they
+        // stay while a viewer is within the wider keep radius, and for a grace period after that.
+        boolean wasVisible = !this.modelGatedPlayers.contains(context.playerUuid)
+            && this.modelViewerSeenAtMs.containsKey(context.playerUuid);
+        double radius = wasVisible ? viewerRadius + modelVfxConfig.getViewerHysteresis() : viewerRadius;
+        if (context.nearestViewerDistanceSquared <= radius * radius) {
+            this.modelViewerSeenAtMs.put(context.playerUuid, nowMs);
+            this.modelGatedPlayers.remove(context.playerUuid);
+            return true;
+        }
+
+        Long seenAtMs = this.modelViewerSeenAtMs.get(context.playerUuid);
+        if (wasVisible && seenAtMs != null && (nowMs - seenAtMs) <= modelVfxConfig.getViewerGraceMs()) {
+            return true;
+        }
+
+        this.modelViewerSeenAtMs.remove(context.playerUuid);
+        this.modelGatedPlayers.add(context.playerUuid);
+        return false;
+    }
+
+    private double resolveModelRigPriority(ModelRenderFrame.Owner context, double lodRadiusSquared, long nowMs) {
+        double priority = resolveRankPriorityTier(context.player) * RANK_PRIORITY_STEP;
+
+        if (context.nearestViewerDistanceSquared < Double.MAX_VALUE && lodRadiusSquared > 0.0D) {
+            double closeness = 1.0D - Math.min(1.0D, Math.sqrt(context.nearestViewerDistanceSquared / lodRadiusSquared));
+            priority += closeness * PROXIMITY_PRIORITY_MAX;
+        }
+
+        Long equippedAtMs = this.lastEquipAtMs.get(context.playerUuid);
+        if (equippedAtMs != null) {
+            long ageMs = nowMs - equippedAtMs;
+            if (ageMs >= 0L && ageMs < EQUIP_RECENCY_WINDOW_MS) {
+                priority += (1.0D - ((double) ageMs / EQUIP_RECENCY_WINDOW_MS)) * RECENCY_PRIORITY_MAX;
+            } else if (ageMs >= EQUIP_RECENCY_WINDOW_MS) {
+                this.lastEquipAtMs.remove(context.playerUuid, equippedAtMs);
+            }
+        }
+        return priority;
+    }
+
+    private int resolveRankPriorityTier(Player player) {
+        List<String> rankPermissions = this.config.getModelVfx().getRankPriorityPermissions();
+        for (int i = 0; i < rankPermissions.size(); i++) {
+            if (hasPermissionCached(player, rankPermissions.get(i))) {
+                return rankPermissions.size() - i;
+            }
+        }
+        return 0;
+    }
+
+    private List<ModelVfxRigService.ShowcaseRig> buildShowcaseRigs() {
+        List<ModelVfxRigService.ShowcaseRig> showcaseRigs = new ArrayList<>();
+        for (HyPerksConfig.ShowcaseConfig showcase : this.config.getModelVfx().getShowcases()) {
+            CosmeticDefinition cosmetic = findModelCosmetic(showcase.getCosmeticId());
+            if (cosmetic == null) {
+                this.logger.atWarning().log(
+                    "[HyPerks] Showcase '%s' skipped: '%s' is not an enabled model3d cosmetic.",
+                    showcase.getId(),
+                    showcase.getCosmeticId()
+                );
+                continue;
+            }
+
+            Vector3f rotation = new Vector3f(0F, 0F, 0F);
+            rotation.setYaw(showcase.getYaw());
+            showcaseRigs.add(new ModelVfxRigService.ShowcaseRig(
+                showcase.getId(),
+                showcase.getWorld(),
+                new ModelVfxRigService.DesiredRig(cosmetic.getCategory(), cosmetic.getId(), cosmetic.getModelAssetId(), cosmetic.getRigProfile()),
+                new Vector3d(showcase.getX(), showcase.getY(), showcase.getZ()),
+                rotation,
+                showcase.getViewRadius()
+            ));
+        }
+        return showcaseRigs;
+    }
+
+    private CosmeticDefinition findModelCosmetic(String cosmeticId) {
+        for (CosmeticDefinition cosmetic : this.catalog.getCosmetics()) {
+            if (cosmetic != null && cosmetic.isEnabled() && cosmetic.isModel3dBackend() && cosmetic.getId().equals(cosmeticId)) {
+                return cosmetic;
+            }
+        }
+        return null;
+    }
+
+    private Set<String> collectModelAssetIds() {
+        Set<String> modelAssetIds = new LinkedHashSet<>();
+        for (CosmeticDefinition cosmetic : this.catalog.getCosmetics()) {
+            if (cosmetic != null && cosmetic.isModel3dBackend() && !cosmetic.getModelAssetId().isBlank()) {
+                modelAssetIds.add(cosmetic.getModelAssetId());
+            }
+        }
+        return modelAssetIds;
+    }
+
+    private String describeWorldRigUsage() {
+        Map<String, Integer> activeByWorld = this.modelVfxRigService.getActiveRigCountsByWorld();
+        Map<String, Long> evictionsByWorld = this.modelVfxRigService.getEvictionsByWorld();
+        Set<String> worldNames = new TreeSet<>(activeByWorld.keySet());
+        worldNames.addAll(evictionsByWorld.keySet());
+        if (worldNames.isEmpty()) {
+            return "-";
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (String worldName : worldNames) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(worldName)
+                .append('=')
+                .append(activeByWorld.getOrDefault(worldName, 0))
+                .append('/')
+                .append(evictionsByWorld.getOrDefault(worldName, 0L));
+        }
+        return builder.toString();
+    }
+
+    private List<ModelVfxRigService.DesiredRig> resolveDesiredModelRigs(UUID playerUuid, Player player, PlayerState state, long nowMs) {
+        if (state == null) {
+            return List.of();
+        }
+
+        long permissionEpochValue = this.permissionEpoch.get();
+        long catalogEpochValue = this.catalogEpoch.get();
+        DesiredModelRigsCache cached = this.desiredModelRigsCache.get(playerUuid);
+        if (cached != null
+            && cached.state == state
+            && cached.stateVersion == state.getVersion()
+            && cached.permissionEpoch == permissionEpochValue
+            && cached.catalogEpoch == catalogEpochValue
+            && cached.expiresAtMs >= nowMs) {
+            this.desiredModelRigsHits.incrementAndGet();
+            return cached.desiredRigs;
+        }
+
+        long stateVersion = state.getVersion();
+        List<ModelVfxRigService.DesiredRig> desired = List.copyOf(collectDesiredModelRigs(player, state));
+        this.desiredModelRigsRebuilds.incrementAndGet();
+        // Permission checks are only as fresh as the permission cache, so the entry expires with it.
+        int ttlMs = this.config.getPermissionCacheTtlMs();
+        if (ttlMs > 0) {
+            this.desiredModelRigsCache.put(
+                playerUuid,
+                new DesiredModelRigsCache(state, stateVersion, permissionEpochValue, catalogEpochValue, nowMs + ttlMs, desired)
+            );
+        } else {
+            this.desiredModelRigsCache.remove(playerUuid);
+        }
+        return desired;
+    }
+
     private List<ModelVfxRigService.DesiredRig> collectDesiredModelRigs(Player player, PlayerState state) {
         if (player == null || state == null || state.getAllActive().isEmpty()) {
             return List.of();
@@ -2316,13 +2789,68 @@ public class HyPerksCoreService {
             return UNRESOLVED_EFFECT_ID;
         }
 
+        String cached = this.resolvedEffectIds.get(normalized);
+        if (cached != null && isParticleEffectIndexCurrent()) {
+            return cached;
+        }
+
         return this.resolvedEffectIds.computeIfAbsent(normalized, this::resolveEffectIdFromAssets);
     }
 
+    private boolean isParticleEffectIndexCurrent() {
+        ParticleEffectIndex index = this.particleEffectIndex;
+        if (index == null) {
+            return true;
+        }
+
+        try {
+            if (index.isCurrent(ParticleSystem.getAssetMap().getAssetMap())) {
+                return true;
+            }
+        } catch (Exception ignored) {
+            return true;
+        }
+
+        // Particle assets were reloaded: ids resolved against the old key set are stale.
+        synchronized (this.particleEffectIndexLock) {
+            if (this.particleEffectIndex == index) {
+                this.particleEffectIndex = null;
+                this.resolvedEffectIds.clear();
+                this.missingEffectWarnings.clear();
+            }
+        }
+        return false;
+    }
+
+    private void preloadParticleEffectIndex() {
+        try {
+            currentParticleEffectIndex();
+        } catch (Exception ex) {
+            this.logger.atFine().withCause(ex).log("[HyPerks] Particle systems not indexed yet; they will be indexed on first use.");
+        }
+    }
+
+    private ParticleEffectIndex currentParticleEffectIndex() {
+        Map<String, ParticleSystem> particleMap = ParticleSystem.getAssetMap().getAssetMap();
+        ParticleEffectIndex index = this.particleEffectIndex;
+        if (index != null && index.isCurrent(particleMap)) {
+            return index;
+        }
+
+        synchronized (this.particleEffectIndexLock) {
+            index = this.particleEffectIndex;
+            if (index == null || !index.isCurrent(particleMap)) {
+                index = ParticleEffectIndex.build(particleMap);
+                this.particleEffectIndex = index;
+            }
+            return index;
+        }
+    }
+
     private String resolveEffectIdFromAssets(String candidate) {
         try {
-            Map<String, ParticleSystem> particleMap = ParticleSystem.getAssetMap().getAssetMap();
-            String resolved = findParticleKey(particleMap, candidate);
+            ParticleEffectIndex index = currentParticleEffectIndex();
+            String resolved = index.find(candidate);
             if (!resolved.isBlank()) {
                 return resolved;
             }
@@ -2330,7 +2858,7 @@ public class HyPerksCoreService {
             String normalizedCandidate = normalizeEffectId(candidate);
             String noExtension = stripParticleExtension(normalizedCandidate);
             if (!noExtension.equalsIgnoreCase(normalizedCandidate)) {
-                resolved = findParticleKey(particleMap, noExtension);
+                resolved = index.find(noExtension);
                 if (!resolved.isBlank()) {
                     return resolved;
                 }
@@ -2338,11 +2866,11 @@ public class HyPerksCoreService {
 
             String baseName = basenameOfPath(noExtension);
             if (!baseName.isBlank()) {
-                resolved = findParticleKey(particleMap, baseName);
+                resolved = index.find(baseName);
                 if (!resolved.isBlank()) {
                     return resolved;
                 }
-                resolved = findParticleKey(particleMap, baseName + PARTICLE_EXTENSION);
+                resolved = index.find(baseName + PARTICLE_EXTENSION);
                 if (!resolved.isBlank()) {
                     return resolved;
                 }
@@ -2368,75 +2896,6 @@ public class HyPerksCoreService {
         return normalizeEffectId(candidate);
     }
 
-    private String findParticleKey(Map<String, ParticleSystem> particleMap, String candidate) {
-        if (candidate == null || candidate.isBlank()) {
-            return "";
-        }
-
-        String candidateNormalized = normalizeEffectId(candidate);
-        if (particleMap.containsKey(candidateNormalized)) {
-            return candidateNormalized;
-        }
-
-        String candidateLower = candidateNormalized.toLowerCase(Locale.ROOT);
-        String candidateNoExtension = stripParticleExtension(candidateLower);
-        String candidateBaseName = basenameOfPath(candidateNoExtension);
-
-        String bestKey = "";
-        int bestScore = -1;
-
-        for (String key : particleMap.keySet()) {
-            if (key == null || key.isBlank()) {
-                continue;
-            }
-
-            String keyNormalized = normalizeEffectId(key);
-            String keyLower = keyNormalized.toLowerCase(Locale.ROOT);
-            String keyNoExtension = stripParticleExtension(keyLower);
-            String keyBaseName = basenameOfPath(keyNoExtension);
-
-            int score = 0;
-            if (keyLower.equals(candidateLower)) {
-                score = 100;
-            } else if (keyNoExtension.equals(candidateNoExtension)) {
-                score = 95;
-            } else if (keyBaseName.equals(candidateBaseName)) {
-                score = 90;
-            } else if (
-                keyNoExtension.endsWith("/" + candidateNoExtension)
-                    || candidateNoExtension.endsWith("/" + keyNoExtension)
-            ) {
-                score = 85;
-            } else if (
-                keyNoExtension.endsWith("/" + candidateBaseName)
-                    || candidateNoExtension.endsWith("/" + keyBaseName)
-            ) {
-                score = 80;
-            } else if (
-                keyNoExtension.contains(candidateNoExtension)
-                    || candidateNoExtension.contains(keyNoExtension)
-            ) {
-                score = 70;
-            } else if (
-                keyNoExtension.contains(candidateBaseName)
-                    || candidateNoExtension.contains(keyBaseName)
-            ) {
-                score = 65;
-            }
-
-            if (score > bestScore) {
-                bestScore = score;
-                bestKey = key;
-            }
-        }
-
-        if (bestScore >= 0) {
-            return bestKey;
-        }
-
-        return "";
-    }
-
     private String stripParticleExtension(String value) {
         if (value == null || value.isBlank()) {
             return "";
@@ -2657,6 +3116,12 @@ public class HyPerksCoreService {
         }
 
         this.permissionCache.entrySet().removeIf(entry -> entry.getKey().playerUuid.equals(playerUuid));
+        this.desiredModelRigsCache.remove(playerUuid);
+    }
+
+    private void clearPermissionCache() {
+        this.permissionCache.clear();
+        this.permissionEpoch.incrementAndGet();
     }
 
     private void pruneOldCommandTrackers(long nowMs) {
@@ -2671,6 +3136,7 @@ public class HyPerksCoreService {
             }
             return (nowMs - value.cachedAtMs) > PERMISSION_CACHE_RETENTION_MS;
         });
+        this.desiredModelRigsCache.entrySet().removeIf(entry -> entry.getValue().expiresAtMs < nowMs);
     }
 
     private UUID resolvePlayerUuid(Player player) {
@@ -2839,45 +3305,28 @@ public class HyPerksCoreService {
         private boolean nextFootRight = true;
     }
 
-    private static final class ModelRenderContext {
-        private final UUID playerUuid;
-        private final Player player;
-        private final Vector3d position;
-        private final Vector3f rotation;
-
-        private ModelRenderContext(UUID playerUuid, Player player, Vector3d position, Vector3f rotation) {
-            this.playerUuid = playerUuid;
-            this.player = player;
-            this.position = position;
-            this.rotation = rotation;
-        }
-    }
-
-    private static final class ModelLodCellKey {
-        private final int x;
-        private final int y;
-        private final int z;
-
-        private ModelLodCellKey(int x, int y, int z) {
-            this.x = x;
-            this.y = y;
-            this.z = z;
-        }
-
-        @Override
-        public boolean equals(Object other) {
-            if (this == other) {
-                return true;
-            }
-            if (!(other instanceof ModelLodCellKey that)) {
-                return false;
-            }
-            return this.x == that.x && this.y == that.y && this.z == that.z;
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(this.x, this.y, this.z);
+    private static final class DesiredModelRigsCache {
+        private final PlayerState state;
+        private final long stateVersion;
+        private final long permissionEpoch;
+        private final long catalogEpoch;
+        private final long expiresAtMs;
+        private final List<ModelVfxRigService.DesiredRig> desiredRigs;
+
+        private DesiredModelRigsCache(
+            PlayerState state,
+            long stateVersion,
+            long permissionEpoch,
+            long catalogEpoch,
+            long expiresAtMs,
+            List<ModelVfxRigService.DesiredRig> desiredRigs
+        ) {
+            this.state = state;
+            this.stateVersion = stateVersion;
+            this.permissionEpoch = permissionEpoch;
+            this.catalogEpoch = catalogEpoch;
+            this.expiresAtMs = expiresAtMs;
+            this.desiredRigs = desiredRigs;
         }
     }
 }
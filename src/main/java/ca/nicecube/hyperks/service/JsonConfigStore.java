@@ -2,15 +2,20 @@ package ca.nicecube.hyperks.service;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.hypixel.hytale.logger.HytaleLogger;
 
 import java.io.IOException;
-import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -19,6 +24,9 @@ public class JsonConfigStore {
         .setPrettyPrinting()
         .disableHtmlEscaping()
         .create();
+    private static final Gson COMPACT_GSON = new GsonBuilder()
+        .disableHtmlEscaping()
+        .create();
     private static final DateTimeFormatter BACKUP_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
 
     private final HytaleLogger logger;
@@ -40,10 +48,8 @@ public class JsonConfigStore {
                 return defaults;
             }
 
-            T loaded;
-            try (Reader reader = Files.newBufferedReader(path)) {
-                loaded = GSON.fromJson(reader, type);
-            }
+            JsonElement raw = JsonParser.parseString(Files.readString(path, StandardCharsets.UTF_8));
+            T loaded = GSON.fromJson(raw, type);
 
             if (loaded == null) {
                 T defaults = defaultSupplier.get();
@@ -52,8 +58,14 @@ public class JsonConfigStore {
                 return defaults;
             }
 
+            // Compare trees from the same serializer: 0 vs 0.0 or a float's widened digits are not a change.
+            JsonElement asRead = GSON.toJsonTree(loaded);
             normalizer.accept(loaded);
-            save(path, loaded);
+            JsonElement normalized = GSON.toJsonTree(loaded);
+            // Rewrite only when normalisation corrected a value or a key was missing or obsolete.
+            if (!normalized.equals(asRead) || !sameKeys(raw, normalized)) {
+                save(path, loaded);
+            }
             return loaded;
         } catch (Exception ex) {
             this.logger.atWarning().withCause(ex).log("[HyPerks] Failed to read %s, restoring defaults.", path);
@@ -65,19 +77,76 @@ public class JsonConfigStore {
         }
     }
 
+    public <T> T read(Path path, Class<T> type, Consumer<T> normalizer) {
+        if (Files.notExists(path)) {
+            return null;
+        }
+
+        try {
+            T loaded = GSON.fromJson(Files.readString(path, StandardCharsets.UTF_8), type);
+            if (loaded != null) {
+                normalizer.accept(loaded);
+            }
+            return loaded;
+        } catch (Exception ex) {
+            this.logger.atWarning().withCause(ex).log("[HyPerks] Failed to read %s, using defaults.", path);
+            backupBroken(path);
+            return null;
+        }
+    }
+
     public void save(Path path, Object value) {
+        write(path, value, GSON);
+    }
+
+    // For machine-written files (player profiles) that nobody edits by hand.
+    public void saveCompact(Path path, Object value) {
+        write(path, value, COMPACT_GSON);
+    }
+
+    private void write(Path path, Object value, Gson gson) {
         try {
             if (path.getParent() != null) {
                 Files.createDirectories(path.getParent());
             }
             try (Writer writer = Files.newBufferedWriter(path)) {
-                GSON.toJson(value, writer);
+                gson.toJson(value, writer);
             }
         } catch (IOException ex) {
             throw new IllegalStateException("Could not write JSON file: " + path, ex);
         }
     }
 
+    private static boolean sameKeys(JsonElement left, JsonElement right) {
+        if (left.isJsonObject() && right.isJsonObject()) {
+            JsonObject leftObject = left.getAsJsonObject();
+            JsonObject rightObject = right.getAsJsonObject();
+            if (!leftObject.keySet().equals(rightObject.keySet())) {
+                return false;
+            }
+            for (Map.Entry<String, JsonElement> entry : leftObject.entrySet()) {
+                if (!sameKeys(entry.getValue(), rightObject.get(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (left.isJsonArray() && right.isJsonArray()) {
+            JsonArray leftArray = left.getAsJsonArray();
+            JsonArray rightArray = right.getAsJsonArray();
+            if (leftArray.size() != rightArray.size()) {
+                return false;
+            }
+            for (int i = 0; i < leftArray.size(); i++) {
+                if (!sameKeys(leftArray.get(i), rightArray.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return left.isJsonObject() == right.isJsonObject() && left.isJsonArray() == right.isJsonArray();
+    }
+
     private void backupBroken(Path path) {
         if (Files.notExists(path)) {
             return;
@@ -2,7 +2,9 @@ package ca.nicecube.hyperks.service;
 
 import ca.nicecube.hyperks.model.PlayerState;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.UUID;
 
 public class JsonPlayerStateStore implements PlayerStateStore {
@@ -16,18 +18,35 @@ public class JsonPlayerStateStore implements PlayerStateStore {
 
     @Override
     public PlayerState load(UUID playerUuid) {
-        return this.configStore.loadOrCreate(
-            fileFor(playerUuid),
-            PlayerState.class,
-            PlayerState::defaults,
-            PlayerState::normalize
-        );
+        PlayerState state = this.configStore.read(fileFor(playerUuid), PlayerState.class, PlayerState::normalize);
+        if (state != null) {
+            return state;
+        }
+
+        PlayerState defaults = PlayerState.defaults();
+        defaults.normalize();
+        return defaults;
     }
 
     @Override
     public void save(UUID playerUuid, PlayerState state) {
         state.normalize();
-        this.configStore.save(fileFor(playerUuid), state);
+        Path file = fileFor(playerUuid);
+        // Players who never changed anything get no file.
+        if (state.isDefault() && Files.notExists(file)) {
+            return;
+        }
+        this.configStore.saveCompact(file, state);
+    }
+
+    @Override
+    public void saveAll(Map<UUID, PlayerState> states) {
+        if (states.size() < 2) {
+            PlayerStateStore.super.saveAll(states);
+            return;
+        }
+        // One file per player, so writes are independent.
+        states.entrySet().parallelStream().forEach(entry -> save(entry.getKey(), entry.getValue()));
     }
 
     @Override
@@ -0,0 +1,735 @@
+package ca.nicecube.hyperks.service;
+
+import ca.nicecube.hyperks.model.PlayerState;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+public class LogPlayerStateStore implements PlayerStateStore {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_PREFIX = "index-";
+    private static final String INDEX_SUFFIX = ".dat";
+    private static final long SEGMENT_BYTES = 8L * 1024L * 1024L;
+    // Record: payload length, CRC32 of uuid + payload, uuid msb, uuid lsb, compact JSON payload.
+    private static final int RECORD_HEADER_BYTES = 24;
+    private static final int MAX_PAYLOAD_BYTES = 1024 * 1024;
+    private static final int INDEX_MAGIC = 0x48504C49;
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_HEADER_BYTES = 64;
+    private static final int INDEX_SLOT_BYTES = 32;
+    private static final int INDEX_MIN_CAPACITY = 1024;
+    // Largest power of two whose header and slots still fit one mapping (under 2 GB), so slot offsets stay ints.
+    static final int INDEX_MAX_CAPACITY = 1 << 25;
+    private static final long COMPACTION_INTERVAL_MS = 60_000L;
+    private static final long COMPACTOR_SHUTDOWN_TIMEOUT_MS = 10_000L;
+    private static final double COMPACTION_LIVE_RATIO = 0.5D;
+
+    private final HytaleLogger logger;
+    private final Path directory;
+    private final long segmentBytes;
+    private final TreeMap<Integer, FileChannel> segments = new TreeMap<>();
+    private final Map<Integer, Long> liveBytes = new HashMap<>();
+    private final ScheduledExecutorService compactor;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int indexCapacity;
+    private int indexCount;
+    private int activeSegmentId;
+    private FileChannel activeSegment;
+    private long recoveredRecords;
+    private long truncatedBytes;
+    private long compactions;
+    private long compactedRecords;
+    private boolean closed;
+
+    private LogPlayerStateStore(HytaleLogger logger, Path directory, long segmentBytes) {
+        this.logger = logger;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "HyPerks-PlayerLog-Compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static LogPlayerStateStore open(HytaleLogger logger, Path directory) {
+        return open(logger, directory, SEGMENT_BYTES);
+    }
+
+    // Tests seal segments after a few kilobytes instead of 8 MB.
+    static LogPlayerStateStore open(HytaleLogger logger, Path directory, long segmentBytes) {
+        LogPlayerStateStore store = new LogPlayerStateStore(logger, directory, segmentBytes);
+        try {
+            store.initialize();
+        } catch (IOException ex) {
+            store.close();
+            throw new IllegalStateException("Could not open player state log at " + directory, ex);
+        }
+        store.compactor.scheduleWithFixedDelay(
+            store::compactQuietly,
+            COMPACTION_INTERVAL_MS,
+            COMPACTION_INTERVAL_MS,
+            TimeUnit.MILLISECONDS
+        );
+        return store;
+    }
+
+    @Override
+    public synchronized PlayerState load(UUID playerUuid) {
+        int slot = findSlot(playerUuid);
+        if (slot >= 0 && isUsed(slot)) {
+            int segmentId = slotSegment(slot);
+            long offset = slotOffset(slot);
+            try {
+                PlayerState state = readRecord(segmentId, offset, playerUuid);
+                if (state != null) {
+                    return state;
+                }
+                this.logger.atWarning().log("[HyPerks] Corrupt player state record for %s in segment %s.", playerUuid, segmentId);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to load player state for " + playerUuid + " from log store.", ex);
+            }
+        }
+
+        PlayerState defaults = PlayerState.defaults();
+        defaults.normalize();
+        return defaults;
+    }
+
+    // Durable on return: the record is forced before save() returns. The index is not, since a
+    // crash rescans the segments anyway.
+    @Override
+    public synchronized void save(UUID playerUuid, PlayerState state) {
+        try {
+            appendState(playerUuid, state);
+            this.activeSegment.force(false);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to save player state for " + playerUuid + " to log store.", ex);
+        }
+    }
+
+    // Group commit: every record of the batch is appended, then forced once.
+    @Override
+    public synchronized void saveAll(Map<UUID, PlayerState> states) {
+        for (Map.Entry<UUID, PlayerState> entry : states.entrySet()) {
+            try {
+                appendState(entry.getKey(), entry.getValue());
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to save player state for " + entry.getKey() + " to log store.", ex);
+            }
+        }
+        flush();
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (this.closed) {
+            return;
+        }
+        try {
+            this.activeSegment.force(false);
+            this.index.force();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to flush player state log.", ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        // A running compaction finishes its segment first: interrupting it mid-read would close the
+        // channel under it, and its moved records are only durable once it forces them.
+        this.compactor.shutdown();
+        try {
+            if (!this.compactor.awaitTermination(COMPACTOR_SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                this.logger.atWarning().log(
+                    "[HyPerks] Player state log compaction did not finish within %sms; closing anyway.",
+                    COMPACTOR_SHUTDOWN_TIMEOUT_MS
+                );
+                this.compactor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            this.compactor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            try {
+                if (this.activeSegment != null) {
+                    this.activeSegment.force(false);
+                }
+                if (this.index != null) {
+                    this.index.force();
+                    // Only a clean close lets the next start trust the index without a rescan.
+                    this.index.putInt(16, 1);
+                    this.index.force();
+                }
+            } catch (IOException ex) {
+                this.logger.atWarning().withCause(ex).log("[HyPerks] Failed to sync player state log on close.");
+            }
+            for (FileChannel channel : this.segments.values()) {
+                closeQuietly(channel);
+            }
+            this.segments.clear();
+            closeQuietly(this.indexChannel);
+        }
+    }
+
+    @Override
+    public synchronized String describeMetrics() {
+        long totalBytes = 0L;
+        for (FileChannel channel : this.segments.values()) {
+            try {
+                totalBytes += channel.size();
+            } catch (IOException ignored) {
+            }
+        }
+        long live = 0L;
+        for (long bytes : this.liveBytes.values()) {
+            live += bytes;
+        }
+        return String.format(
+            Locale.ROOT,
+            "profiles=%d, segments=%d, live=%dKB/%dKB, index=%d slots, compactions=%d (%d records moved), recovered=%d records, truncated=%d bytes",
+            this.indexCount,
+            this.segments.size(),
+            live / 1024L,
+            totalBytes / 1024L,
+            this.indexCapacity,
+            this.compactions,
+            this.compactedRecords,
+            this.recoveredRecords,
+            this.truncatedBytes
+        );
+    }
+
+    @Override
+    public String describe() {
+        return "log:" + this.directory.toAbsolutePath();
+    }
+
+    private void initialize() throws IOException {
+        Files.createDirectories(this.directory);
+        for (int segmentId : listSegmentIds()) {
+            this.segments.put(segmentId, FileChannel.open(segmentPath(segmentId), StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        boolean trusted = openIndex();
+        if (!trusted) {
+            rebuildIndex();
+        }
+        recountLiveBytes();
+
+        if (this.segments.isEmpty()) {
+            startSegment(1);
+        } else {
+            this.activeSegmentId = this.segments.lastKey();
+            this.activeSegment = this.segments.get(this.activeSegmentId);
+            this.activeSegment.position(this.activeSegment.size());
+        }
+
+        // Cleared until close(): a crash before then forces a rescan on the next start.
+        this.index.putInt(16, 0);
+        this.index.force();
+    }
+
+    private boolean openIndex() throws IOException {
+        Path newest = null;
+        int newestCapacity = 0;
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                int capacity = parseId(path, INDEX_PREFIX, INDEX_SUFFIX);
+                if (capacity > newestCapacity) {
+                    newest = path;
+                    newestCapacity = capacity;
+                }
+            }
+        }
+        deleteStaleIndexes(newestCapacity);
+
+        if (newest == null) {
+            return false;
+        }
+        if (newestCapacity > INDEX_MAX_CAPACITY || Integer.bitCount(newestCapacity) != 1) {
+            this.logger.atWarning().log("[HyPerks] Ignoring player state index %s, rebuilding it from segments.", newest.getFileName());
+            Files.deleteIfExists(newest);
+            return false;
+        }
+
+        mapIndex(newest, newestCapacity, false);
+        boolean valid = this.index.getInt(0) == INDEX_MAGIC
+            && this.index.getInt(4) == INDEX_VERSION
+            && this.index.getInt(8) == newestCapacity;
+        if (!valid || this.index.getInt(16) != 1) {
+            this.logger.atWarning().log("[HyPerks] Player state log was not closed cleanly, rebuilding index from segments.");
+            return false;
+        }
+        this.indexCount = this.index.getInt(12);
+        return true;
+    }
+
+    private void rebuildIndex() throws IOException {
+        long totalBytes = 0L;
+        for (FileChannel channel : this.segments.values()) {
+            totalBytes += channel.size();
+        }
+        createIndex(rebuildCapacity(totalBytes));
+
+        int lastSegmentId = this.segments.isEmpty() ? -1 : this.segments.lastKey();
+        for (Map.Entry<Integer, FileChannel> entry : this.segments.entrySet()) {
+            long validEnd = scanSegment(entry.getKey(), entry.getValue());
+            long size = entry.getValue().size();
+            if (validEnd < size) {
+                if (entry.getKey() == lastSegmentId) {
+                    // A torn tail from a crash mid-append; everything before it is intact.
+                    entry.getValue().truncate(validEnd);
+                    this.truncatedBytes += size - validEnd;
+                } else {
+                    this.logger.atWarning().log(
+                        "[HyPerks] Player state segment %s is corrupt after byte %s; later records were skipped.",
+                        entry.getKey(),
+                        validEnd
+                    );
+                }
+            }
+        }
+        this.index.force();
+        this.logger.atInfo().log(
+            "[HyPerks] Rebuilt player state index: %s profile(s) from %s record(s), %s torn byte(s) dropped.",
+            this.indexCount,
+            this.recoveredRecords,
+            this.truncatedBytes
+        );
+    }
+
+    // Room for one profile per 128 log bytes at half load, within the mapping limit.
+    static int rebuildCapacity(long totalBytes) {
+        int capacity = INDEX_MIN_CAPACITY;
+        while (capacity < (totalBytes / 128L) * 2L && capacity < INDEX_MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // Returns the offset just past the last valid record.
+    private long scanSegment(int segmentId, FileChannel channel) throws IOException {
+        long size = channel.size();
+        long offset = 0L;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        while (offset + RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(channel, header, offset);
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            long msb = header.getLong();
+            long lsb = header.getLong();
+            if (length <= 0 || length > MAX_PAYLOAD_BYTES || offset + RECORD_HEADER_BYTES + length > size) {
+                return offset;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, offset + RECORD_HEADER_BYTES);
+            if (checksum(msb, lsb, payload.array()) != crc) {
+                return offset;
+            }
+
+            putIndex(new UUID(msb, lsb), segmentId, offset, RECORD_HEADER_BYTES + length);
+            this.recoveredRecords++;
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    private void appendState(UUID playerUuid, PlayerState state) throws IOException {
+        state.normalize();
+        append(playerUuid, GSON.toJson(state).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void append(UUID playerUuid, byte[] payload) throws IOException {
+        if (payload.length > MAX_PAYLOAD_BYTES) {
+            throw new IOException("Player state payload too large: " + payload.length + " bytes.");
+        }
+        if (this.activeSegment.size() >= this.segmentBytes) {
+            this.activeSegment.force(false);
+            startSegment(this.activeSegmentId + 1);
+        }
+
+        long msb = playerUuid.getMostSignificantBits();
+        long lsb = playerUuid.getLeastSignificantBits();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length);
+        record.putInt(payload.length);
+        record.putInt(checksum(msb, lsb, payload));
+        record.putLong(msb);
+        record.putLong(lsb);
+        record.put(payload);
+        record.flip();
+
+        long offset = this.activeSegment.size();
+        while (record.hasRemaining()) {
+            this.activeSegment.write(record, offset + record.position());
+        }
+        putIndex(playerUuid, this.activeSegmentId, offset, RECORD_HEADER_BYTES + payload.length);
+    }
+
+    private PlayerState readRecord(int segmentId, long offset, UUID expectedUuid) throws IOException {
+        FileChannel channel = this.segments.get(segmentId);
+        if (channel == null || offset + RECORD_HEADER_BYTES > channel.size()) {
+            return null;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        readFully(channel, header, offset);
+        header.flip();
+        int length = header.getInt();
+        int crc = header.getInt();
+        long msb = header.getLong();
+        long lsb = header.getLong();
+        if (length <= 0 || length > MAX_PAYLOAD_BYTES || offset + RECORD_HEADER_BYTES + length > channel.size()) {
+            return null;
+        }
+        if (msb != expectedUuid.getMostSignificantBits() || lsb != expectedUuid.getLeastSignificantBits()) {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, offset + RECORD_HEADER_BYTES);
+        if (checksum(msb, lsb, payload.array()) != crc) {
+            return null;
+        }
+
+        PlayerState state = GSON.fromJson(new String(payload.array(), StandardCharsets.UTF_8), PlayerState.class);
+        if (state == null) {
+            return null;
+        }
+        state.normalize();
+        return state;
+    }
+
+    private void startSegment(int segmentId) throws IOException {
+        FileChannel channel = FileChannel.open(
+            segmentPath(segmentId),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+        this.segments.put(segmentId, channel);
+        this.activeSegmentId = segmentId;
+        this.activeSegment = channel;
+    }
+
+    private void compactQuietly() {
+        try {
+            compactOnce();
+        } catch (Exception ex) {
+            this.logger.atWarning().withCause(ex).log("[HyPerks] Player state log compaction failed.");
+        }
+    }
+
+    // Re-appends the live records of the sparsest sealed segment to the active one, then drops it.
+    // A sealed segment is never written again, so it is read outside the monitor; saves and loads
+    // only wait behind one record's re-append at a time, not a whole segment copy.
+    void compactOnce() throws IOException {
+        int victim;
+        FileChannel channel;
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            victim = compactionVictim();
+            if (victim < 0) {
+                return;
+            }
+            channel = this.segments.get(victim);
+        }
+
+        long size = channel.size();
+        long offset = 0L;
+        int moved = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        while (offset + RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(channel, header, offset);
+            header.flip();
+            int length = header.getInt();
+            header.getInt();
+            UUID playerUuid = new UUID(header.getLong(), header.getLong());
+            if (length <= 0 || length > MAX_PAYLOAD_BYTES || offset + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, offset + RECORD_HEADER_BYTES);
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+                // Checked under the monitor: a save since the read has already superseded this record.
+                int slot = findSlot(playerUuid);
+                if (slot >= 0 && isUsed(slot) && slotSegment(slot) == victim && slotOffset(slot) == offset) {
+                    append(playerUuid, payload.array());
+                    moved++;
+                }
+            }
+            offset += RECORD_HEADER_BYTES + length;
+        }
+
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            // Moved records must be durable before their only other copy goes away.
+            this.activeSegment.force(false);
+            this.index.force();
+            this.segments.remove(victim);
+            this.liveBytes.remove(victim);
+            closeQuietly(channel);
+            Files.deleteIfExists(segmentPath(victim));
+            this.compactions++;
+            this.compactedRecords += moved;
+        }
+        this.logger.atFine().log("[HyPerks] Compacted player state segment %s (%s live record(s) moved).", victim, moved);
+    }
+
+    private int compactionVictim() throws IOException {
+        int victim = -1;
+        double victimRatio = COMPACTION_LIVE_RATIO;
+        for (Map.Entry<Integer, FileChannel> entry : this.segments.entrySet()) {
+            int segmentId = entry.getKey();
+            if (segmentId == this.activeSegmentId) {
+                continue;
+            }
+            long size = entry.getValue().size();
+            double ratio = size <= 0L ? 0D : (double) this.liveBytes.getOrDefault(segmentId, 0L) / (double) size;
+            if (ratio < victimRatio) {
+                victim = segmentId;
+                victimRatio = ratio;
+            }
+        }
+        return victim;
+    }
+
+    private void recountLiveBytes() {
+        this.liveBytes.clear();
+        for (int slot = 0; slot < this.indexCapacity; slot++) {
+            if (isUsed(slot)) {
+                this.liveBytes.merge(slotSegment(slot), (long) slotLength(slot), Long::sum);
+            }
+        }
+    }
+
+    private void putIndex(UUID playerUuid, int segmentId, long offset, int length) throws IOException {
+        if ((this.indexCount + 1) * 10L > this.indexCapacity * 6L) {
+            growIndex();
+        }
+
+        int slot = findSlot(playerUuid);
+        int base = INDEX_HEADER_BYTES + slot * INDEX_SLOT_BYTES;
+        if (isUsed(slot)) {
+            this.liveBytes.merge(slotSegment(slot), (long) -slotLength(slot), Long::sum);
+        } else {
+            this.index.putLong(base, playerUuid.getMostSignificantBits());
+            this.index.putLong(base + 8, playerUuid.getLeastSignificantBits());
+            this.indexCount++;
+            this.index.putInt(12, this.indexCount);
+        }
+        this.index.putLong(base + 16, ((long) segmentId << 32) | offset);
+        this.index.putInt(base + 24, length);
+        this.index.putInt(base + 28, 1);
+        this.liveBytes.merge(segmentId, (long) length, Long::sum);
+    }
+
+    // Linear probing; entries are never removed, so the first free slot ends the search.
+    private int findSlot(UUID playerUuid) {
+        long msb = playerUuid.getMostSignificantBits();
+        long lsb = playerUuid.getLeastSignificantBits();
+        int mask = this.indexCapacity - 1;
+        int slot = Long.hashCode(msb * 31L + lsb) & mask;
+        for (int probes = 0; probes < this.indexCapacity; probes++) {
+            int base = INDEX_HEADER_BYTES + slot * INDEX_SLOT_BYTES;
+            if (this.index.getInt(base + 28) == 0) {
+                return slot;
+            }
+            if (this.index.getLong(base) == msb && this.index.getLong(base + 8) == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean isUsed(int slot) {
+        return this.index.getInt(INDEX_HEADER_BYTES + slot * INDEX_SLOT_BYTES + 28) != 0;
+    }
+
+    private int slotSegment(int slot) {
+        return (int) (this.index.getLong(INDEX_HEADER_BYTES + slot * INDEX_SLOT_BYTES + 16) >>> 32);
+    }
+
+    private long slotOffset(int slot) {
+        return this.index.getLong(INDEX_HEADER_BYTES + slot * INDEX_SLOT_BYTES + 16) & 0xFFFFFFFFL;
+    }
+
+    private int slotLength(int slot) {
+        return this.index.getInt(INDEX_HEADER_BYTES + slot * INDEX_SLOT_BYTES + 24);
+    }
+
+    private void growIndex() throws IOException {
+        MappedByteBuffer previous = this.index;
+        FileChannel previousChannel = this.indexChannel;
+        int previousCapacity = this.indexCapacity;
+        if (previousCapacity >= INDEX_MAX_CAPACITY) {
+            throw new IOException("Player state index is full (" + this.indexCount + " profiles).");
+        }
+
+        createIndex(previousCapacity << 1);
+        for (int slot = 0; slot < previousCapacity; slot++) {
+            int base = INDEX_HEADER_BYTES + slot * INDEX_SLOT_BYTES;
+            if (previous.getInt(base + 28) == 0) {
+                continue;
+            }
+            UUID playerUuid = new UUID(previous.getLong(base), previous.getLong(base + 8));
+            int target = INDEX_HEADER_BYTES + findSlot(playerUuid) * INDEX_SLOT_BYTES;
+            this.index.putLong(target, playerUuid.getMostSignificantBits());
+            this.index.putLong(target + 8, playerUuid.getLeastSignificantBits());
+            this.index.putLong(target + 16, previous.getLong(base + 16));
+            this.index.putInt(target + 24, previous.getInt(base + 24));
+            this.index.putInt(target + 28, 1);
+            this.indexCount++;
+        }
+        this.index.putInt(12, this.indexCount);
+        this.index.force();
+
+        closeQuietly(previousChannel);
+        deleteStaleIndexes(this.indexCapacity);
+    }
+
+    private void createIndex(int capacity) throws IOException {
+        if (this.index != null && this.indexCapacity == capacity) {
+            // Rebuilding over the current file: clear it in place, since a mapped file cannot be deleted everywhere.
+            for (int position = 0; position < this.index.capacity(); position += 8) {
+                this.index.putLong(position, 0L);
+            }
+        } else {
+            Path path = this.directory.resolve(INDEX_PREFIX + capacity + INDEX_SUFFIX);
+            Files.deleteIfExists(path);
+            mapIndex(path, capacity, true);
+        }
+        this.index.putInt(0, INDEX_MAGIC);
+        this.index.putInt(4, INDEX_VERSION);
+        this.index.putInt(8, capacity);
+        this.index.putInt(12, 0);
+        this.index.putInt(16, 0);
+        this.indexCount = 0;
+    }
+
+    private void mapIndex(Path path, int capacity, boolean create) throws IOException {
+        closeQuietly(this.indexChannel);
+        this.indexChannel = create
+            ? FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+            : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long bytes = INDEX_HEADER_BYTES + (long) capacity * INDEX_SLOT_BYTES;
+        this.index = this.indexChannel.map(FileChannel.MapMode.READ_WRITE, 0L, bytes);
+        this.indexCapacity = capacity;
+    }
+
+    private void deleteStaleIndexes(int keepCapacity) throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                int capacity = parseId(path, INDEX_PREFIX, INDEX_SUFFIX);
+                if (capacity > 0 && capacity != keepCapacity) {
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException ignored) {
+                        // Still mapped on some platforms; removed on the next start.
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Integer> listSegmentIds() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                int segmentId = parseId(path, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+                if (segmentId > 0) {
+                    ids.add(segmentId);
+                }
+            }
+        }
+        ids.sort(Integer::compare);
+        return ids;
+    }
+
+    private Path segmentPath(int segmentId) {
+        return this.directory.resolve(String.format(Locale.ROOT, "%s%08d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    private static int parseId(Path path, String prefix, String suffix) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static int checksum(long msb, long lsb, byte[] payload) {
+        CRC32 crc = new CRC32();
+        ByteBuffer uuid = ByteBuffer.allocate(16);
+        uuid.putLong(msb);
+        uuid.putLong(lsb);
+        crc.update(uuid.array());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of player state segment.");
+            }
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ca.nicecube.hyperks.service;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+final class ModelAssetIndex {
+    private static final String MODEL_EXTENSION = ".json";
+    private static final String SERVER_MODELS_PREFIX = "server/models/";
+
+    private final Map<String, ?> source;
+    private final int sourceSize;
+    // Normalised key = lowercase, no .json extension, no Server/Models/ prefix.
+    private final Map<String, Entry> byNormalizedKey;
+    // Every '/'-suffix of every normalised key, basename included.
+    private final Map<String, Entry> byPathSuffix;
+
+    private ModelAssetIndex(Map<String, ?> source, Map<String, Entry> byNormalizedKey, Map<String, Entry> byPathSuffix) {
+        this.source = source;
+        this.sourceSize = source.size();
+        this.byNormalizedKey = byNormalizedKey;
+        this.byPathSuffix = byPathSuffix;
+    }
+
+    static ModelAssetIndex build(Map<String, ?> assetMap) {
+        Map<String, Entry> byNormalizedKey = new HashMap<>();
+        Map<String, Entry> byPathSuffix = new HashMap<>();
+        int ordinal = 0;
+        for (String key : assetMap.keySet()) {
+            if (key == null || key.isBlank()) {
+                continue;
+            }
+
+            // First key in map order wins, same as the linear scan this replaces.
+            Entry entry = new Entry(key, ordinal++);
+            String normalized = normalizeKey(key);
+            byNormalizedKey.putIfAbsent(normalized, entry);
+            for (int slash = normalized.indexOf('/'); slash >= 0; slash = normalized.indexOf('/', slash + 1)) {
+                byPathSuffix.putIfAbsent(normalized.substring(slash + 1), entry);
+            }
+        }
+        return new ModelAssetIndex(assetMap, byNormalizedKey, byPathSuffix);
+    }
+
+    boolean isCurrent(Map<String, ?> assetMap) {
+        return assetMap == this.source && assetMap.size() == this.sourceSize;
+    }
+
+    int size() {
+        return this.byNormalizedKey.size();
+    }
+
+    String find(String candidate) {
+        if (candidate == null || candidate.isBlank()) {
+            return "";
+        }
+
+        String trimmed = normalizeSeparators(candidate);
+        if (this.source.containsKey(trimmed)) {
+            return trimmed;
+        }
+
+        String normalized = normalizeKey(trimmed);
+        Entry best = earlier(this.byNormalizedKey.get(normalized), this.byPathSuffix.get(normalized));
+        for (int slash = normalized.indexOf('/'); slash >= 0; slash = normalized.indexOf('/', slash + 1)) {
+            best = earlier(best, this.byNormalizedKey.get(normalized.substring(slash + 1)));
+        }
+        return best == null ? "" : best.key;
+    }
+
+    static String normalizeKey(String value) {
+        String normalized = normalizeSeparators(value).toLowerCase(Locale.ROOT);
+        if (normalized.endsWith(MODEL_EXTENSION)) {
+            normalized = normalized.substring(0, normalized.length() - MODEL_EXTENSION.length());
+        }
+        if (normalized.startsWith(SERVER_MODELS_PREFIX)) {
+            normalized = normalized.substring(SERVER_MODELS_PREFIX.length());
+        }
+        return normalized;
+    }
+
+    private static String normalizeSeparators(String value) {
+        return value == null ? "" : value.trim().replace('\\', '/');
+    }
+
+    private static Entry earlier(Entry current, Entry candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        if (current == null || candidate.ordinal < current.ordinal) {
+            return candidate;
+        }
+        return current;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final int ordinal;
+
+        private Entry(String key, int ordinal) {
+            this.key = key;
+            this.ordinal = ordinal;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ca.nicecube.hyperks.service;
+
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.math.vector.Vector3f;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+// Per-world scratch for one model render tick. Owners, rig requests and the spatial grid are pooled
+// and refilled every tick; only the world thread touches a frame.
+final class ModelRenderFrame {
+    private static final int CELL_BITS = 21;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1L;
+    private static final int EMPTY = -1;
+
+    private Owner[] owners = new Owner[0];
+    private int size;
+    private final List<Vector3d> viewerPositions = new ArrayList<>();
+    private final List<ModelVfxRigService.RigRequest> requests = new ArrayList<>();
+
+    // Grid cells hashed into open-addressed slots, each slot heading a chain of owners through nextInCell.
+    private double cellSize = 1.0D;
+    private long[] ownerCells = new long[0];
+    private int[] nextInCell = new int[0];
+    private long[] slotCells = new long[0];
+    private int[] slotHeads = new int[0];
+    private int slotMask;
+
+    void begin() {
+        for (int i = 0; i < this.size; i++) {
+            this.owners[i].player = null;
+        }
+        this.size = 0;
+        this.viewerPositions.clear();
+        this.requests.clear();
+    }
+
+    Owner add(UUID playerUuid, Player player, Vector3d position, Vector3f rotation) {
+        if (this.size == this.owners.length) {
+            Owner[] grown = Arrays.copyOf(this.owners, Math.max(8, this.owners.length * 2));
+            for (int i = this.size; i < grown.length; i++) {
+                grown[i] = new Owner();
+            }
+            this.owners = grown;
+        }
+
+        Owner owner = this.owners[this.size++];
+        owner.playerUuid = playerUuid;
+        owner.player = player;
+        owner.position.assign(position);
+        if (rotation == null) {
+            owner.rotation.assign(0F, 0F, 0F);
+        } else {
+            owner.rotation.assign(rotation);
+        }
+        owner.nearbyPlayers = 0;
+        owner.nearestViewerDistanceSquared = Double.MAX_VALUE;
+        owner.viewed = true;
+        return owner;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    Owner owner(int index) {
+        return this.owners[index];
+    }
+
+    List<Vector3d> viewerPositions() {
+        this.viewerPositions.clear();
+        for (int i = 0; i < this.size; i++) {
+            this.viewerPositions.add(this.owners[i].position);
+        }
+        return this.viewerPositions;
+    }
+
+    void index(double cellSize) {
+        this.cellSize = cellSize <= 0.0D ? 1.0D : cellSize;
+        int count = this.size;
+        if (this.ownerCells.length < count) {
+            int capacity = Math.max(count, this.ownerCells.length * 2);
+            this.ownerCells = new long[capacity];
+            this.nextInCell = new int[capacity];
+        }
+        int slots = Integer.highestOneBit(Math.max(16, count * 2) - 1) << 1;
+        if (this.slotHeads.length < slots) {
+            this.slotCells = new long[slots];
+            this.slotHeads = new int[slots];
+        }
+        this.slotMask = slots - 1;
+        Arrays.fill(this.slotHeads, 0, slots, EMPTY);
+
+        for (int i = 0; i < count; i++) {
+            Vector3d position = this.owners[i].position;
+            long cell = cell(toCell(position.x), toCell(position.y), toCell(position.z));
+            this.ownerCells[i] = cell;
+            int slot = slotFor(cell, true);
+            this.nextInCell[i] = this.slotHeads[slot];
+            this.slotHeads[slot] = i;
+        }
+    }
+
+    // Cells as large as the widest lookup radius keep the 3x3x3 search exact.
+    void resolveNearby(int sourceIndex, double radiusSquared) {
+        Owner source = this.owners[sourceIndex];
+        long sourceCell = this.ownerCells[sourceIndex];
+        int sourceX = (int) (sourceCell >>> (CELL_BITS * 2));
+        int sourceY = (int) ((sourceCell >>> CELL_BITS) & CELL_MASK);
+        int sourceZ = (int) (sourceCell & CELL_MASK);
+        int nearby = 0;
+        double nearestViewerDistanceSquared = Double.MAX_VALUE;
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    int slot = slotFor(cell(sourceX + dx, sourceY + dy, sourceZ + dz), false);
+                    if (slot < 0) {
+                        continue;
+                    }
+
+                    for (int candidateIndex = this.slotHeads[slot]; candidateIndex != EMPTY; candidateIndex = this.nextInCell[candidateIndex]) {
+                        Owner candidate = this.owners[candidateIndex];
+                        double distX = source.position.x - candidate.position.x;
+                        double distY = source.position.y - candidate.position.y;
+                        double distZ = source.position.z - candidate.position.z;
+                        double distanceSquared = (distX * distX) + (distY * distY) + (distZ * distZ);
+                        if (distanceSquared <= radiusSquared) {
+                            nearby++;
+                        }
+                        if (candidate != source && distanceSquared < nearestViewerDistanceSquared) {
+                            nearestViewerDistanceSquared = distanceSquared;
+                        }
+                    }
+                }
+            }
+        }
+        source.nearbyPlayers = nearby;
+        source.nearestViewerDistanceSquared = nearestViewerDistanceSquared;
+    }
+
+    void request(Owner owner, List<ModelVfxRigService.DesiredRig> desiredRigs, double priority) {
+        this.requests.add(owner.request.reset(owner.playerUuid, owner.position, owner.rotation, desiredRigs, owner.nearbyPlayers, priority));
+    }
+
+    List<ModelVfxRigService.RigRequest> requests() {
+        return this.requests;
+    }
+
+    private int toCell(double value) {
+        return (int) Math.floor(value / this.cellSize);
+    }
+
+    // Coordinates wrap at 2^21 cells; a wrapped neighbour only adds candidates, the distance check stays exact.
+    private static long cell(int x, int y, int z) {
+        return ((x & CELL_MASK) << (CELL_BITS * 2)) | ((y & CELL_MASK) << CELL_BITS) | (z & CELL_MASK);
+    }
+
+    private int slotFor(long cell, boolean claim) {
+        int slot = (int) ((cell * 0x9E3779B97F4A7C15L) >>> 32) & this.slotMask;
+        while (this.slotHeads[slot] != EMPTY) {
+            if (this.slotCells[slot] == cell) {
+                return slot;
+            }
+            slot = (slot + 1) & this.slotMask;
+        }
+        if (!claim) {
+            return -1;
+        }
+        this.slotCells[slot] = cell;
+        return slot;
+    }
+
+    static final class Owner {
+        final Vector3d position = new Vector3d();
+        final Vector3f rotation = new Vector3f();
+        private final ModelVfxRigService.RigRequest request = new ModelVfxRigService.RigRequest();
+        UUID playerUuid;
+        Player player;
+        int nearbyPlayers;
+        double nearestViewerDistanceSquared = Double.MAX_VALUE;
+        boolean viewed = true;
+    }
+}
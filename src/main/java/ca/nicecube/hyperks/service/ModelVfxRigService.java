@@ -1,10 +1,16 @@
 package ca.nicecube.hyperks.service;
 
+import ca.nicecube.hyperks.component.HyPerksRigMarker;
+import ca.nicecube.hyperks.config.HyPerksConfig;
 import com.hypixel.hytale.component.AddReason;
+import com.hypixel.hytale.component.ComponentType;
+import com.hypixel.hytale.component.Holder;
+import com.hypixel.hytale.component.NonSerialized;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.RemoveReason;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.math.shape.Box;
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.math.vector.Vector3f;
 import com.hypixel.hytale.protocol.AnimationSlot;
@@ -12,6 +18,7 @@ import com.hypixel.hytale.server.core.HytaleServer;
 import com.hypixel.hytale.server.core.asset.type.model.config.Model;
 import com.hypixel.hytale.server.core.asset.type.model.config.ModelAsset;
 import com.hypixel.hytale.server.core.entity.UUIDComponent;
+import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.modules.entity.component.ActiveAnimationComponent;
 import com.hypixel.hytale.server.core.modules.entity.component.BoundingBox;
 import com.hypixel.hytale.server.core.modules.entity.component.ModelComponent;
@@ -21,8 +28,12 @@ import com.hypixel.hytale.server.core.modules.entity.tracker.NetworkId;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -30,22 +41,83 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class ModelVfxRigService {
     private static final String MODEL_EXTENSION = ".json";
     private static final long RIG_RETENTION_MS = 45_000L;
     private static final long DEBUG_RIG_LIFETIME_MS = 20_000L;
     private static final int DEFAULT_MAX_RIGS_PER_PLAYER = 16;
+    private static final int DEFAULT_MAX_RIGS_PER_WORLD = 256;
+    private static final int DEFAULT_MAX_SPAWNS_PER_TICK = 24;
+    private static final int DEFAULT_MAX_REMOVALS_PER_TICK = 64;
     private static final int DEFAULT_LOD_ULTRA_MAX_PLAYERS = 10;
+    private static final HyPerksConfig.RigProfileConfig DEFAULT_RIG_PROFILE = new HyPerksConfig.RigProfileConfig();
+    private static final double IDLE_SKIP_MOVE_EPSILON_SQUARED = 0.0001D;
+    private static final float IDLE_SKIP_TURN_EPSILON_DEGREES = 0.5F;
+    private static final float SHARP_TURN_DEGREES = 30.0F;
+    private static final double MAX_EXTRAPOLATED_SPEED_PER_MS = 0.05D;
+    private static final double SHOWCASE_DESPAWN_MARGIN = 8.0D;
+    // A spawned part keeps its budget slot until a contender outranks it by this much, so owners hovering
+    // at the budget line do not trade a despawn and a spawn every tick. Well under one rank tier (1000).
+    static final double SPAWNED_PART_RETENTION_BONUS = 10.0D;
+    private static final DesiredPart[] NO_PARTS = new DesiredPart[0];
+    private static final long BENCH_SAMPLE_MS = 3_000L;
+    private static final String BENCH_RIG_ID = "bench";
+    private static final String BENCH_BASELINE = "baseline";
+    private static final List<String> BENCH_PHASES = List.of(
+        BENCH_BASELINE,
+        HyPerksConfig.RigProfileConfig.ARCHETYPE_FULL,
+        HyPerksConfig.RigProfileConfig.ARCHETYPE_COSMETIC
+    );
+    private static final List<String> PART_SUFFIXES = List.of(
+        "_Core",
+        "_HelixFire",
+        "_HelixIce",
+        "_Ring",
+        "_Inner",
+        "_Outer",
+        "_Mid",
+        "_Launcher",
+        "_Burst"
+    );
+    private static final com.sun.management.ThreadMXBean ALLOCATION_PROBE = resolveAllocationProbe();
 
     private final HytaleLogger logger;
     private final Map<String, String> resolvedModelIds = new ConcurrentHashMap<>();
+    private final Map<String, RigPrototype> rigPrototypes = new ConcurrentHashMap<>();
+    private final Map<String, String> partVariants = new ConcurrentHashMap<>();
+    private final Object modelAssetIndexLock = new Object();
+    private volatile ModelAssetIndex modelAssetIndex;
+    private final AtomicLong modelAssetIndexBuilds = new AtomicLong();
     private final Set<String> missingModelWarnings = ConcurrentHashMap.newKeySet();
     private final Set<String> failedRigWarnings = ConcurrentHashMap.newKeySet();
     private final Set<UUID> budgetWarningPlayers = ConcurrentHashMap.newKeySet();
-    private final Map<UUID, Map<RigKey, RigInstance>> rigsByPlayer = new ConcurrentHashMap<>();
+    private final Map<UUID, PlayerRigs> rigsByPlayer = new ConcurrentHashMap<>();
+    private final Map<RigKey, Integer> partKeyIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextPartKeyId = new AtomicInteger();
+    // Bumped when the caches rigs were built from are dropped; older rigs are swapped out by the sync.
+    private final AtomicInteger rigGeneration = new AtomicInteger();
+    private final Map<String, WorldRigState> worldStates = new ConcurrentHashMap<>();
+    private final Set<String> debugRigIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean archetypeBenchRunning = new AtomicBoolean();
+    private volatile Map<String, List<ShowcaseState>> showcasesByWorld = Map.of();
+    private volatile Map<String, HyPerksConfig.RigProfileConfig> rigProfiles = Map.of();
+    private final AtomicLong orphanRigsSwept = new AtomicLong();
+    private final AtomicLong transformWrites = new AtomicLong();
+    private final AtomicLong transformWritesSkipped = new AtomicLong();
+    private final AtomicLong removedRigs = new AtomicLong();
+    private final AtomicLong failedRemovals = new AtomicLong();
+    private final AtomicLong leakedRemovals = new AtomicLong();
     private volatile int rigBudgetPerPlayer = DEFAULT_MAX_RIGS_PER_PLAYER;
+    private volatile int rigBudgetPerWorld = DEFAULT_MAX_RIGS_PER_WORLD;
+    private volatile int spawnBudgetPerTick = DEFAULT_MAX_SPAWNS_PER_TICK;
+    private volatile int removalBudgetPerTick = DEFAULT_MAX_REMOVALS_PER_TICK;
     private volatile int lodUltraMaxPlayers = DEFAULT_LOD_ULTRA_MAX_PLAYERS;
 
     public ModelVfxRigService(HytaleLogger logger) {
@@ -53,20 +125,85 @@ public class ModelVfxRigService {
     }
 
     public void clearCaches() {
+        this.rigGeneration.incrementAndGet();
         this.resolvedModelIds.clear();
+        this.rigPrototypes.clear();
+        this.partVariants.clear();
+        this.modelAssetIndex = null;
         this.missingModelWarnings.clear();
         this.failedRigWarnings.clear();
     }
 
-    public void configure(int maxRigsPerPlayer, int lodUltraMaxWorldPlayers) {
+    public void configure(
+        int maxRigsPerPlayer,
+        int maxRigsPerWorld,
+        int maxSpawnsPerTick,
+        int maxRemovalsPerTick,
+        int lodUltraMaxWorldPlayers
+    ) {
         this.rigBudgetPerPlayer = clamp(maxRigsPerPlayer, 1, 64, DEFAULT_MAX_RIGS_PER_PLAYER);
+        this.rigBudgetPerWorld = clamp(maxRigsPerWorld, 16, 4096, DEFAULT_MAX_RIGS_PER_WORLD);
+        this.spawnBudgetPerTick = clamp(maxSpawnsPerTick, 1, 512, DEFAULT_MAX_SPAWNS_PER_TICK);
+        this.removalBudgetPerTick = clamp(maxRemovalsPerTick, 1, 1024, DEFAULT_MAX_REMOVALS_PER_TICK);
         this.lodUltraMaxPlayers = clamp(lodUltraMaxWorldPlayers, 1, 200, DEFAULT_LOD_ULTRA_MAX_PLAYERS);
     }
 
+    public void configureProfiles(Map<String, HyPerksConfig.RigProfileConfig> profiles) {
+        this.rigProfiles = profiles == null ? Map.of() : Map.copyOf(profiles);
+    }
+
+    public int preloadPartVariants(Collection<String> baseModelAssetIds) {
+        if (baseModelAssetIds == null || baseModelAssetIds.isEmpty()) {
+            return 0;
+        }
+
+        ModelAssetIndex index;
+        try {
+            index = currentModelAssetIndex();
+        } catch (Exception ex) {
+            this.logger.atWarning().withCause(ex).log("[HyPerks] Could not read model assets to preload rig part variants.");
+            return 0;
+        }
+
+        int resolved = 0;
+        for (String rawBase : baseModelAssetIds) {
+            String base = normalizeAssetId(rawBase);
+            if (base.isBlank()) {
+                continue;
+            }
+            for (String suffix : PART_SUFFIXES) {
+                this.partVariants.put(partVariantKey(base, suffix), resolvePartVariant(index, base, suffix));
+                resolved++;
+            }
+        }
+        return resolved;
+    }
+
+    public int getModelAssetIndexSize() {
+        ModelAssetIndex index = this.modelAssetIndex;
+        return index == null ? 0 : index.size();
+    }
+
+    public long getModelAssetIndexBuilds() {
+        return this.modelAssetIndexBuilds.get();
+    }
+
     public int getRigBudgetPerPlayer() {
         return this.rigBudgetPerPlayer;
     }
 
+    public int getRigBudgetPerWorld() {
+        return this.rigBudgetPerWorld;
+    }
+
+    public int getSpawnBudgetPerTick() {
+        return this.spawnBudgetPerTick;
+    }
+
+    public int getRemovalBudgetPerTick() {
+        return this.removalBudgetPerTick;
+    }
+
     public int getLodUltraMaxPlayers() {
         return this.lodUltraMaxPlayers;
     }
@@ -77,14 +214,101 @@ public class ModelVfxRigService {
 
     public int getActiveRigCount() {
         int total = 0;
-        for (Map<RigKey, RigInstance> rigs : this.rigsByPlayer.values()) {
-            if (rigs != null) {
-                total += rigs.size();
+        for (PlayerRigs playerRigs : this.rigsByPlayer.values()) {
+            total += playerRigs.rigs.size();
+        }
+        return total;
+    }
+
+    public Map<String, Integer> getActiveRigCountsByWorld() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (PlayerRigs playerRigs : this.rigsByPlayer.values()) {
+            for (RigInstance rig : playerRigs.rigs.values()) {
+                if (rig.world == null) {
+                    continue;
+                }
+                counts.merge(rig.world.getName(), 1, Integer::sum);
             }
         }
+        return counts;
+    }
+
+    public Map<String, Long> getEvictionsByWorld() {
+        Map<String, Long> evictions = new LinkedHashMap<>();
+        for (Map.Entry<String, WorldRigState> entry : this.worldStates.entrySet()) {
+            evictions.put(entry.getKey(), entry.getValue().evictions.get());
+        }
+        return evictions;
+    }
+
+    public long getTotalEvictions() {
+        long total = 0L;
+        for (WorldRigState state : this.worldStates.values()) {
+            total += state.evictions.get();
+        }
+        return total;
+    }
+
+    public int getPendingSpawnCount() {
+        int total = 0;
+        for (WorldRigState state : this.worldStates.values()) {
+            total += state.pendingSpawns;
+        }
+        return total;
+    }
+
+    public long getTotalDeferredSpawns() {
+        long total = 0L;
+        for (WorldRigState state : this.worldStates.values()) {
+            total += state.deferredSpawns.get();
+        }
+        return total;
+    }
+
+    public int getPendingRemovalCount() {
+        int total = 0;
+        for (WorldRigState state : this.worldStates.values()) {
+            total += state.queuedRemovals.get();
+        }
+        return total;
+    }
+
+    public long getRemovedRigs() {
+        return this.removedRigs.get();
+    }
+
+    public long getFailedRemovals() {
+        return this.failedRemovals.get();
+    }
+
+    public long getLeakedRemovals() {
+        return this.leakedRemovals.get();
+    }
+
+    public long getOrphanRigsSwept() {
+        return this.orphanRigsSwept.get();
+    }
+
+    public long getTransformWrites() {
+        return this.transformWrites.get();
+    }
+
+    public long getTransformWritesSkipped() {
+        return this.transformWritesSkipped.get();
+    }
+
+    public long getLastSyncAllocatedBytes() {
+        long total = 0L;
+        for (WorldRigState state : this.worldStates.values()) {
+            total += Math.max(0L, state.lastSyncAllocatedBytes);
+        }
         return total;
     }
 
+    public boolean isAllocationProbeAvailable() {
+        return ALLOCATION_PROBE != null;
+    }
+
     public List<AuditPart> describeAuditParts(
         String categoryId,
         String cosmeticId,
@@ -116,87 +340,325 @@ public class ModelVfxRigService {
         return result;
     }
 
-    public void syncPlayerRigs(
-        UUID playerUuid,
+    public void syncWorldRigs(World world, Store<EntityStore> store, List<RigRequest> requests, long frame, long nowMs) {
+        if (world == null || store == null || requests == null || requests.isEmpty()) {
+            return;
+        }
+
+        WorldRigState worldState = worldState(world);
+        long allocatedBefore = threadAllocatedBytes();
+        int requestCount = requests.size();
+        int[] syncOrder = planWorldSync(worldState, world.getName(), requests);
+        int[] partOffsets = worldState.plan.partOffsets(requestCount + 1);
+        PlayerRigs[] playerRigsByRequest = worldState.playerRigs(requestCount);
+        boolean[] keep = worldState.keep;
+
+        SpawnAllowance allowance = worldState.allowance(frame, this.spawnBudgetPerTick);
+        allowance.deferred = 0;
+        for (int orderIndex = 0; orderIndex < requestCount; orderIndex++) {
+            int requestIndex = syncOrder[orderIndex];
+            PlayerRigs playerRigs = playerRigsByRequest[requestIndex];
+            playerRigsByRequest[requestIndex] = null;
+            if (playerRigs == null) {
+                continue;
+            }
+
+            RigRequest request = requests.get(requestIndex);
+            syncPlayerParts(request, playerRigs, world, store, keep, partOffsets[requestIndex], allowance, frame, nowMs);
+        }
+
+        worldState.pendingSpawns = allowance.deferred;
+        if (allowance.deferred > 0) {
+            worldState.deferredSpawns.addAndGet(allowance.deferred);
+        }
+        if (allocatedBefore >= 0L) {
+            worldState.lastSyncAllocatedBytes = threadAllocatedBytes() - allocatedBefore;
+        }
+    }
+
+    // Tests drive the planning half of a world sync directly; it needs no world or entity store.
+    int[] planWorldSync(String worldName, List<RigRequest> requests) {
+        WorldRigState worldState = this.worldStates.computeIfAbsent(worldName, ignored -> new WorldRigState());
+        return planWorldSync(worldState, worldName, requests);
+    }
+
+    // Resolves every owner's rig parts, applies the world budget into worldState.keep and returns the sync order.
+    private int[] planWorldSync(WorldRigState worldState, String worldName, List<RigRequest> requests) {
+        int requestCount = requests.size();
+        RigSyncPlan plan = worldState.plan;
+        int[] partOffsets = plan.partOffsets(requestCount + 1);
+        PlayerRigs[] playerRigsByRequest = worldState.playerRigs(requestCount);
+        int totalParts = 0;
+
+        for (int requestIndex = 0; requestIndex < requestCount; requestIndex++) {
+            RigRequest request = requests.get(requestIndex);
+            partOffsets[requestIndex] = totalParts;
+            PlayerRigs playerRigs = this.rigsByPlayer.get(request.playerUuid);
+            if (playerRigs == null && !request.desiredRigs.isEmpty()) {
+                playerRigs = this.rigsByPlayer.computeIfAbsent(request.playerUuid, ignored -> new PlayerRigs());
+            }
+            playerRigsByRequest[requestIndex] = playerRigs;
+            if (playerRigs != null) {
+                refreshExpandedParts(request, playerRigs);
+                totalParts += playerRigs.parts.length;
+            }
+        }
+        partOffsets[requestCount] = totalParts;
+
+        worldState.keep = selectWorldBudgetParts(worldState, worldName, requests, playerRigsByRequest, totalParts);
+
+        // Owners are synced in priority order so that after a reload or a join wave the
+        // spawn budget goes to the rigs that would survive the world budget anyway.
+        double[] requestPriorities = plan.requestPriorities(requestCount);
+        for (int requestIndex = 0; requestIndex < requestCount; requestIndex++) {
+            requestPriorities[requestIndex] = requests.get(requestIndex).priority;
+        }
+        return plan.syncOrder(requestCount);
+    }
+
+    private WorldRigState worldState(World world) {
+        WorldRigState state = this.worldStates.computeIfAbsent(world.getName(), ignored -> new WorldRigState());
+        state.world = world;
+        return state;
+    }
+
+    public boolean hasPendingRigRemovals(World world) {
+        if (world == null) {
+            return false;
+        }
+        WorldRigState state = this.worldStates.get(world.getName());
+        return state != null && state.queuedRemovals.get() > 0;
+    }
+
+    public int drainRigRemovals(World world, Store<EntityStore> store) {
+        return drainRigRemovals(world, store, this.removalBudgetPerTick);
+    }
+
+    public void flushRigRemovals() {
+        for (WorldRigState state : this.worldStates.values()) {
+            World world = state.world;
+            if (world == null || state.queuedRemovals.get() <= 0) {
+                continue;
+            }
+            if (!world.isAlive()) {
+                dropQueuedRemovals(state);
+                continue;
+            }
+            world.execute(() -> drainRigRemovals(world, world.getEntityStore().getStore(), Integer.MAX_VALUE));
+        }
+    }
+
+    private int drainRigRemovals(World world, Store<EntityStore> store, int budget) {
+        if (world == null || store == null) {
+            return 0;
+        }
+        WorldRigState state = this.worldStates.get(world.getName());
+        if (state == null) {
+            return 0;
+        }
+
+        int drained = 0;
+        RigInstance rig;
+        while (drained < budget && (rig = state.pendingRemovals.poll()) != null) {
+            state.queuedRemovals.decrementAndGet();
+            drained++;
+            if (!world.equals(rig.world)) {
+                // Same world name, new world instance: the old store went away with the rig in it.
+                this.leakedRemovals.incrementAndGet();
+                continue;
+            }
+            removeRigInternal(store, rig);
+        }
+        return drained;
+    }
+
+    private void dropQueuedRemovals(WorldRigState state) {
+        while (state.pendingRemovals.poll() != null) {
+            state.queuedRemovals.decrementAndGet();
+            this.leakedRemovals.incrementAndGet();
+        }
+    }
+
+    private void refreshExpandedParts(RigRequest request, PlayerRigs playerRigs) {
+        QualityTier qualityTier = resolveQualityTier(request.nearbyPlayers, this.lodUltraMaxPlayers);
+        int rigBudget = this.rigBudgetPerPlayer;
+        if (playerRigs.expandedTier == qualityTier
+            && playerRigs.expandedBudget == rigBudget
+            && (playerRigs.expandedFrom == request.desiredRigs || sameDesiredRigs(playerRigs.expandedFrom, request.desiredRigs))) {
+            return;
+        }
+
+        List<DesiredPart> parts = expandDesiredParts(request.desiredRigs, qualityTier);
+        if (parts.size() > rigBudget) {
+            parts = parts.subList(0, rigBudget);
+            if (this.budgetWarningPlayers.add(request.playerUuid)) {
+                this.logger.atWarning().log(
+                    "[HyPerks] Model rig budget reached for player %s (%s). Some rig parts were skipped.",
+                    request.playerUuid,
+                    rigBudget
+                );
+            }
+        } else {
+            this.budgetWarningPlayers.remove(request.playerUuid);
+        }
+
+        playerRigs.parts = parts.toArray(new DesiredPart[0]);
+        playerRigs.expandedFrom = List.copyOf(request.desiredRigs);
+        playerRigs.expandedTier = qualityTier;
+        playerRigs.expandedBudget = rigBudget;
+    }
+
+    private static boolean sameDesiredRigs(List<DesiredRig> previous, List<DesiredRig> current) {
+        if (previous == null || previous.size() != current.size()) {
+            return false;
+        }
+        for (int i = 0; i < previous.size(); i++) {
+            if (!previous.get(i).equals(current.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean[] selectWorldBudgetParts(
+        WorldRigState worldState,
+        String worldName,
+        List<RigRequest> requests,
+        PlayerRigs[] playerRigsByRequest,
+        int totalParts
+    ) {
+        RigSyncPlan plan = worldState.plan;
+        int worldBudget = this.rigBudgetPerWorld;
+        if (totalParts <= worldBudget) {
+            return plan.selectWithinBudget(totalParts, worldBudget);
+        }
+
+        double[] priorities = plan.partPriorities(totalParts);
+        int index = 0;
+        for (int requestIndex = 0; requestIndex < requests.size(); requestIndex++) {
+            PlayerRigs playerRigs = playerRigsByRequest[requestIndex];
+            if (playerRigs == null) {
+                continue;
+            }
+            double priority = requests.get(requestIndex).priority;
+            for (int partIndex = 0; partIndex < playerRigs.parts.length; partIndex++) {
+                boolean spawned = playerRigs.rigs.containsKey(playerRigs.parts[partIndex].keyId);
+                priorities[index++] = budgetPriority(priority, partIndex, spawned);
+            }
+        }
+
+        boolean[] keep = plan.selectWithinBudget(totalParts, worldBudget);
+        long evictedRigs = 0L;
+        index = 0;
+        for (int requestIndex = 0; requestIndex < requests.size(); requestIndex++) {
+            PlayerRigs playerRigs = playerRigsByRequest[requestIndex];
+            if (playerRigs == null) {
+                continue;
+            }
+            for (DesiredPart part : playerRigs.parts) {
+                if (!keep[index++] && playerRigs.rigs.containsKey(part.keyId)) {
+                    evictedRigs++;
+                }
+            }
+        }
+
+        if (evictedRigs > 0L) {
+            long total = worldState.evictions.addAndGet(evictedRigs);
+            if (total == evictedRigs) {
+                this.logger.atWarning().log(
+                    "[HyPerks] World rig budget reached in '%s' (%s). Lowest priority rig parts are being evicted.",
+                    worldName,
+                    worldBudget
+                );
+            }
+        }
+        return keep;
+    }
+
+    // Earlier parts of the same owner are the core of the effect; keep them over later ones.
+    static double budgetPriority(double ownerPriority, int partIndex, boolean spawned) {
+        return ownerPriority - partIndex + (spawned ? SPAWNED_PART_RETENTION_BONUS : 0.0D);
+    }
+
+    private void syncPlayerParts(
+        RigRequest request,
+        PlayerRigs playerRigs,
         World world,
         Store<EntityStore> store,
-        Vector3d playerPosition,
-        Vector3f playerRotation,
-        List<DesiredRig> desiredRigs,
-        int worldPlayerCount,
+        boolean[] keep,
+        int partOffset,
+        SpawnAllowance allowance,
         long frame,
         long nowMs
     ) {
-        if (playerUuid == null || world == null || store == null || playerPosition == null) {
+        if (request.position == null) {
             return;
         }
 
-        Map<RigKey, RigInstance> playerRigs = this.rigsByPlayer.computeIfAbsent(playerUuid, ignored -> new ConcurrentHashMap<>());
-        int rigBudget = this.rigBudgetPerPlayer;
-        int lodUltraMax = this.lodUltraMaxPlayers;
-        QualityTier qualityTier = resolveQualityTier(worldPlayerCount, lodUltraMax);
-        List<DesiredPart> parts = expandDesiredParts(desiredRigs, qualityTier);
-        Set<RigKey> desiredKeys = new HashSet<>();
-
-        boolean budgetReached = false;
-        int accepted = 0;
-        for (DesiredPart part : parts) {
-            if (accepted >= rigBudget) {
-                budgetReached = true;
-                break;
-            }
-            accepted++;
+        Map<Integer, RigInstance> rigs = playerRigs.rigs;
+        OwnerMotion motion = playerRigs.motion;
+        motion.sample(request.position, nowMs);
+        DesiredPart[] parts = playerRigs.parts;
+        int generation = this.rigGeneration.get();
+        int synced = 0;
 
-            RigKey key = new RigKey(part.categoryId, part.cosmeticId, part.partId);
-            desiredKeys.add(key);
+        for (int partIndex = 0; partIndex < parts.length; partIndex++) {
+            if (!keep[partOffset + partIndex]) {
+                continue;
+            }
 
-            RigInstance active = playerRigs.get(key);
+            DesiredPart part = parts[partIndex];
+            RigInstance active = rigs.get(part.keyId);
             if (active != null && (!active.world.equals(world) || !active.requestedModelAssetId.equals(part.modelAssetId))) {
                 removePossiblyCrossWorld(store, world, active);
-                playerRigs.remove(key);
+                rigs.remove(part.keyId);
+                active = null;
+            } else if (active != null && active.generation != generation && allowance.remaining > 0) {
+                // Built before a reload: replaced only when its respawn fits this tick, so a reload
+                // turns over a world's rigs across ticks instead of tearing them all down at once.
+                removePossiblyCrossWorld(store, world, active);
+                rigs.remove(part.keyId);
                 active = null;
             }
 
             if (active == null) {
-                RigInstance spawned = spawnRig(store, world, part, playerPosition, playerRotation, frame, nowMs);
+                if (allowance.remaining <= 0) {
+                    allowance.deferred++;
+                    continue;
+                }
+                allowance.remaining--;
+                RigInstance spawned = spawnRig(store, world, part, request.position, request.rotation, frame, nowMs);
                 if (spawned != null) {
-                    playerRigs.put(key, spawned);
+                    spawned.recordWrite(nowMs, request.position.x, request.position.y, request.position.z);
+                    spawned.syncStamp = frame;
+                    rigs.put(part.keyId, spawned);
+                    synced++;
                 }
                 continue;
             }
 
-            if (!updateRigTransform(store, active, playerPosition, playerRotation, frame)) {
-                playerRigs.remove(key);
+            if (!updateRigTransform(store, active, request.position, request.rotation, motion, frame, nowMs)) {
+                rigs.remove(part.keyId);
                 continue;
             }
             active.lastSeenMs = nowMs;
+            active.syncStamp = frame;
+            synced++;
         }
 
-        if (budgetReached) {
-            if (this.budgetWarningPlayers.add(playerUuid)) {
-                this.logger.atWarning().log(
-                    "[HyPerks] Model rig budget reached for player %s (%s). Some rig parts were skipped.",
-                    playerUuid,
-                    rigBudget
-                );
-            }
-        } else {
-            this.budgetWarningPlayers.remove(playerUuid);
-        }
-
-        List<RigKey> staleKeys = new ArrayList<>();
-        for (Map.Entry<RigKey, RigInstance> entry : playerRigs.entrySet()) {
-            if (!desiredKeys.contains(entry.getKey())) {
-                removePossiblyCrossWorld(store, world, entry.getValue());
-                staleKeys.add(entry.getKey());
+        // Every live rig was touched above in the steady state, so the stale scan only runs after a change.
+        if (rigs.size() != synced) {
+            for (Iterator<RigInstance> iterator = rigs.values().iterator(); iterator.hasNext(); ) {
+                RigInstance rig = iterator.next();
+                if (rig.syncStamp != frame) {
+                    removePossiblyCrossWorld(store, world, rig);
+                    iterator.remove();
+                }
             }
         }
-        for (RigKey key : staleKeys) {
-            playerRigs.remove(key);
-        }
 
-        if (playerRigs.isEmpty()) {
-            this.rigsByPlayer.remove(playerUuid);
+        if (rigs.isEmpty() && parts.length == 0) {
+            this.rigsByPlayer.remove(request.playerUuid, playerRigs);
         }
     }
 
@@ -205,27 +667,19 @@ public class ModelVfxRigService {
             return;
         }
 
-        Map<RigKey, RigInstance> playerRigs = this.rigsByPlayer.get(playerUuid);
-        if (playerRigs == null || playerRigs.isEmpty()) {
+        PlayerRigs playerRigs = this.rigsByPlayer.get(playerUuid);
+        if (playerRigs == null || playerRigs.rigs.isEmpty()) {
             return;
         }
 
         String normalizedCategory = categoryId.trim().toLowerCase(Locale.ROOT);
-        List<RigKey> removed = new ArrayList<>();
-        for (Map.Entry<RigKey, RigInstance> entry : playerRigs.entrySet()) {
-            if (!entry.getKey().categoryId.equals(normalizedCategory)) {
+        for (Iterator<RigInstance> iterator = playerRigs.rigs.values().iterator(); iterator.hasNext(); ) {
+            RigInstance rig = iterator.next();
+            if (!rig.categoryId.equals(normalizedCategory)) {
                 continue;
             }
-            scheduleRigRemoval(entry.getValue());
-            removed.add(entry.getKey());
-        }
-
-        for (RigKey key : removed) {
-            playerRigs.remove(key);
-        }
-
-        if (playerRigs.isEmpty()) {
-            this.rigsByPlayer.remove(playerUuid);
+            scheduleRigRemoval(rig);
+            iterator.remove();
         }
     }
 
@@ -235,12 +689,12 @@ public class ModelVfxRigService {
         }
 
         this.budgetWarningPlayers.remove(playerUuid);
-        Map<RigKey, RigInstance> removed = this.rigsByPlayer.remove(playerUuid);
+        PlayerRigs removed = this.rigsByPlayer.remove(playerUuid);
         if (removed == null) {
             return;
         }
 
-        for (RigInstance rig : removed.values()) {
+        for (RigInstance rig : removed.rigs.values()) {
             scheduleRigRemoval(rig);
         }
     }
@@ -249,64 +703,348 @@ public class ModelVfxRigService {
         for (UUID playerUuid : List.copyOf(this.rigsByPlayer.keySet())) {
             clearPlayerRigs(playerUuid);
         }
+        for (List<ShowcaseState> showcases : this.showcasesByWorld.values()) {
+            for (ShowcaseState showcase : showcases) {
+                despawnShowcase(showcase);
+            }
+        }
     }
 
-    public void pruneStaleRigs(long nowMs) {
-        for (Map.Entry<UUID, Map<RigKey, RigInstance>> playerEntry : this.rigsByPlayer.entrySet()) {
-            UUID playerUuid = playerEntry.getKey();
-            Map<RigKey, RigInstance> rigs = playerEntry.getValue();
-            if (rigs == null || rigs.isEmpty()) {
-                this.rigsByPlayer.remove(playerUuid);
+    public void configureShowcases(List<ShowcaseRig> showcaseRigs) {
+        Map<String, List<ShowcaseState>> previous = this.showcasesByWorld;
+        Map<String, List<ShowcaseState>> rebuilt = new LinkedHashMap<>();
+        if (showcaseRigs != null) {
+            for (ShowcaseRig showcaseRig : showcaseRigs) {
+                if (showcaseRig != null) {
+                    rebuilt.computeIfAbsent(showcaseRig.worldName, ignored -> new ArrayList<>()).add(new ShowcaseState(showcaseRig));
+                }
+            }
+        }
+        rebuilt.replaceAll((worldName, showcases) -> List.copyOf(showcases));
+        this.showcasesByWorld = Map.copyOf(rebuilt);
+
+        for (List<ShowcaseState> showcases : previous.values()) {
+            for (ShowcaseState showcase : showcases) {
+                despawnShowcase(showcase);
+            }
+        }
+    }
+
+    public boolean hasShowcases(World world) {
+        return world != null && this.showcasesByWorld.containsKey(world.getName());
+    }
+
+    public boolean hasSpawnedShowcases(World world) {
+        if (world == null) {
+            return false;
+        }
+        for (ShowcaseState showcase : this.showcasesByWorld.getOrDefault(world.getName(), List.of())) {
+            if (showcase.spawned || !showcase.rigs.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getShowcaseCount() {
+        int total = 0;
+        for (List<ShowcaseState> showcases : this.showcasesByWorld.values()) {
+            total += showcases.size();
+        }
+        return total;
+    }
+
+    public int getSpawnedShowcaseRigCount() {
+        int total = 0;
+        for (List<ShowcaseState> showcases : this.showcasesByWorld.values()) {
+            for (ShowcaseState showcase : showcases) {
+                total += showcase.rigs.size();
+            }
+        }
+        return total;
+    }
+
+    public void syncShowcaseRigs(World world, Store<EntityStore> store, List<Vector3d> viewerPositions, long frame, long nowMs) {
+        if (world == null || store == null) {
+            return;
+        }
+        List<ShowcaseState> showcases = this.showcasesByWorld.get(world.getName());
+        if (showcases == null) {
+            return;
+        }
+
+        // Showcases are posed once at spawn; after that only their baked animation runs,
+        // so a spawned stand costs a distance check per tick and nothing else.
+        // Stands draw from the same per-tick spawn allowance as the player rigs of this world.
+        WorldRigState worldState = worldState(world);
+        SpawnAllowance allowance = worldState.allowance(frame, this.spawnBudgetPerTick);
+        for (ShowcaseState showcase : showcases) {
+            ShowcaseRig definition = showcase.definition;
+            double nearestSquared = Double.MAX_VALUE;
+            if (viewerPositions != null) {
+                for (int i = 0; i < viewerPositions.size(); i++) {
+                    Vector3d viewer = viewerPositions.get(i);
+                    double dx = viewer.x - definition.position.x;
+                    double dy = viewer.y - definition.position.y;
+                    double dz = viewer.z - definition.position.z;
+                    nearestSquared = Math.min(nearestSquared, (dx * dx) + (dy * dy) + (dz * dz));
+                }
+            }
+
+            if (showcase.spawned) {
+                double keepRadius = definition.viewRadius + SHOWCASE_DESPAWN_MARGIN;
+                if (nearestSquared > keepRadius * keepRadius || !showcaseRigsValid(showcase)) {
+                    despawnShowcase(showcase);
+                }
                 continue;
             }
 
-            List<RigKey> stale = new ArrayList<>();
-            for (Map.Entry<RigKey, RigInstance> entry : rigs.entrySet()) {
-                if ((nowMs - entry.getValue().lastSeenMs) <= RIG_RETENTION_MS) {
+            // A stand that ran out of allowance part-way keeps its margin so it does not flap at the edge.
+            boolean started = showcase.parts != null;
+            double spawnRadius = started ? definition.viewRadius + SHOWCASE_DESPAWN_MARGIN : definition.viewRadius;
+            if (nearestSquared > spawnRadius * spawnRadius) {
+                if (started) {
+                    despawnShowcase(showcase);
+                }
+                continue;
+            }
+
+            spawnShowcaseParts(world, store, showcase, allowance, worldState, nowMs);
+        }
+    }
+
+    private void spawnShowcaseParts(
+        World world,
+        Store<EntityStore> store,
+        ShowcaseState showcase,
+        SpawnAllowance allowance,
+        WorldRigState worldState,
+        long nowMs
+    ) {
+        ShowcaseRig definition = showcase.definition;
+        if (showcase.parts == null) {
+            showcase.parts = expandDesiredParts(List.of(definition.desired), QualityTier.ULTRA);
+            showcase.nextPart = 0;
+        }
+
+        List<DesiredPart> parts = showcase.parts;
+        List<RigInstance> spawned = new ArrayList<>(showcase.rigs);
+        while (showcase.nextPart < parts.size()) {
+            if (allowance.remaining <= 0) {
+                worldState.deferredSpawns.addAndGet(parts.size() - showcase.nextPart);
+                break;
+            }
+            allowance.remaining--;
+            DesiredPart part = parts.get(showcase.nextPart++);
+            RigInstance rig = spawnRig(store, world, part, definition.position, definition.rotation, 0L, nowMs);
+            if (rig != null) {
+                spawned.add(rig);
+            }
+        }
+        showcase.rigs = List.copyOf(spawned);
+        if (showcase.nextPart < parts.size()) {
+            return;
+        }
+
+        // A stand whose every spawn failed is retried on a later tick instead of counting as shown.
+        showcase.parts = null;
+        showcase.spawned = !spawned.isEmpty();
+    }
+
+    private static boolean showcaseRigsValid(ShowcaseState showcase) {
+        for (RigInstance rig : showcase.rigs) {
+            if (rig.entityRef == null || !rig.entityRef.isValid()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void despawnShowcase(ShowcaseState showcase) {
+        List<RigInstance> rigs = showcase.rigs;
+        showcase.rigs = List.of();
+        showcase.spawned = false;
+        showcase.parts = null;
+        for (RigInstance rig : rigs) {
+            scheduleRigRemoval(rig);
+        }
+    }
+
+    public void pruneStaleRigs(long nowMs) {
+        for (Map.Entry<UUID, PlayerRigs> playerEntry : this.rigsByPlayer.entrySet()) {
+            UUID playerUuid = playerEntry.getKey();
+            PlayerRigs playerRigs = playerEntry.getValue();
+            for (Iterator<RigInstance> iterator = playerRigs.rigs.values().iterator(); iterator.hasNext(); ) {
+                RigInstance rig = iterator.next();
+                if ((nowMs - rig.lastSeenMs) <= RIG_RETENTION_MS) {
                     continue;
                 }
-                scheduleRigRemoval(entry.getValue());
-                stale.add(entry.getKey());
+                scheduleRigRemoval(rig);
+                iterator.remove();
+            }
+
+            if (playerRigs.rigs.isEmpty()) {
+                this.rigsByPlayer.remove(playerUuid, playerRigs);
+                this.budgetWarningPlayers.remove(playerUuid);
+            }
+        }
+
+        // A world that unloaded with removals still queued takes its rigs with it; count them so leaks stay visible.
+        for (WorldRigState state : this.worldStates.values()) {
+            World world = state.world;
+            if (world != null && !world.isAlive() && state.queuedRemovals.get() > 0) {
+                dropQueuedRemovals(state);
             }
+        }
+    }
 
-            for (RigKey key : stale) {
-                rigs.remove(key);
+    public DebugSpawnResult spawnDebugRig(
+        World world,
+        Store<EntityStore> store,
+        Vector3d playerPosition,
+        Vector3f playerRotation,
+        String requestedModelAssetId
+    ) {
+        DesiredPart debug = new DesiredPart("debug", "debug_model", "debug", "main", requestedModelAssetId, 0);
+        RigInstance spawned = spawnRig(store, world, debug, playerPosition, playerRotation, 0L, System.currentTimeMillis());
+        if (spawned == null) {
+            return DebugSpawnResult.failed(normalizeAssetId(requestedModelAssetId));
+        }
+
+        this.debugRigIds.add(spawned.rigId);
+        HytaleServer.SCHEDULED_EXECUTOR.schedule(
+            () -> {
+                this.debugRigIds.remove(spawned.rigId);
+                scheduleRigRemoval(spawned);
+            },
+            DEBUG_RIG_LIFETIME_MS,
+            TimeUnit.MILLISECONDS
+        );
+
+        return DebugSpawnResult.success(spawned.resolvedModelAssetId);
+    }
+
+    public static long getArchetypeBenchSampleSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(BENCH_SAMPLE_MS);
+    }
+
+    public boolean isArchetypeBenchRunning() {
+        return this.archetypeBenchRunning.get();
+    }
+
+    // Must be called on the world thread. Results are delivered there once every phase has run.
+    public boolean benchmarkArchetypes(
+        World world,
+        Vector3d position,
+        String requestedModelAssetId,
+        int entityCount,
+        Consumer<List<ArchetypeBenchResult>> onComplete
+    ) {
+        RigPrototype prototype = resolveRigPrototype(normalizeAssetId(requestedModelAssetId));
+        if (world == null || position == null || prototype == null || entityCount <= 0 || onComplete == null) {
+            return false;
+        }
+        if (!ManagementFactory.getThreadMXBean().isCurrentThreadCpuTimeSupported()) {
+            return false;
+        }
+        if (!this.archetypeBenchRunning.compareAndSet(false, true)) {
+            return false;
+        }
+
+        // Keeps the orphan sweep away from rigs that now live across ticks.
+        this.debugRigIds.add(BENCH_RIG_ID);
+        new ArchetypeBench(world, prototype, new Vector3d(position), entityCount, onComplete).startPhase();
+        return true;
+    }
+
+    public int sweepOrphanRigs(World world, Store<EntityStore> store) {
+        ComponentType<EntityStore, HyPerksRigMarker> markerType = HyPerksRigMarker.getComponentType();
+        if (world == null || store == null || markerType == null) {
+            return 0;
+        }
+
+        Set<String> ownedRigIds = new HashSet<>(this.debugRigIds);
+        for (PlayerRigs playerRigs : this.rigsByPlayer.values()) {
+            for (RigInstance rig : playerRigs.rigs.values()) {
+                if (world.equals(rig.world)) {
+                    ownedRigIds.add(rig.rigId);
+                }
+            }
+        }
+        for (ShowcaseState showcase : this.showcasesByWorld.getOrDefault(world.getName(), List.of())) {
+            for (RigInstance rig : showcase.rigs) {
+                ownedRigIds.add(rig.rigId);
+            }
+        }
+
+        int[] swept = new int[1];
+        try {
+            store.forEachChunk(markerType, (chunk, commandBuffer) -> {
+                for (int index = 0; index < chunk.size(); index++) {
+                    HyPerksRigMarker marker = chunk.getComponent(index, markerType);
+                    if (marker != null && ownedRigIds.contains(marker.getRigId())) {
+                        continue;
+                    }
+                    commandBuffer.removeEntity(chunk.getReferenceTo(index), RemoveReason.REMOVE);
+                    swept[0]++;
+                }
+            });
+        } catch (Exception ex) {
+            String warningKey = world.getName() + "#sweep";
+            if (this.failedRigWarnings.add(warningKey)) {
+                this.logger.atWarning().withCause(ex).log("[HyPerks] Failed to sweep orphan model rigs in world '%s'.", world.getName());
             }
+            return 0;
+        }
 
-            if (rigs.isEmpty()) {
-                this.rigsByPlayer.remove(playerUuid);
-                this.budgetWarningPlayers.remove(playerUuid);
-            }
+        if (swept[0] > 0) {
+            this.orphanRigsSwept.addAndGet(swept[0]);
+            this.logger.atInfo().log("[HyPerks] Removed %s orphan model rig(s) in world '%s'.", swept[0], world.getName());
         }
+        return swept[0];
     }
-    public DebugSpawnResult spawnDebugRig(
-        World world,
-        Store<EntityStore> store,
-        Vector3d playerPosition,
-        Vector3f playerRotation,
-        String requestedModelAssetId
-    ) {
-        DesiredPart debug = new DesiredPart("debug", "debug_model", "debug", "main", requestedModelAssetId);
-        RigInstance spawned = spawnRig(store, world, debug, playerPosition, playerRotation, 0L, System.currentTimeMillis());
-        if (spawned == null) {
-            return DebugSpawnResult.failed(normalizeAssetId(requestedModelAssetId));
+
+    // Rigs spawned before the marker existed were saved with the chunk through PersistentModel and are
+    // invisible to the orphan sweep. They are matched by signature instead: persisted, unmarked, not a
+    // player, and showing one of the given HyPerks rig models. Run on demand, not from the periodic sweep.
+    public int purgeLegacyRigs(World world, Store<EntityStore> store, Set<String> rigModelAssetIds) {
+        ComponentType<EntityStore, PersistentModel> persistentType = PersistentModel.getComponentType();
+        ComponentType<EntityStore, ModelComponent> modelType = ModelComponent.getComponentType();
+        ComponentType<EntityStore, HyPerksRigMarker> markerType = HyPerksRigMarker.getComponentType();
+        ComponentType<EntityStore, Player> playerType = Player.getComponentType();
+        if (world == null || store == null || persistentType == null || modelType == null || rigModelAssetIds.isEmpty()) {
+            return 0;
         }
 
-        HytaleServer.SCHEDULED_EXECUTOR.schedule(
-            () -> {
-                if (world == null || !world.isAlive()) {
-                    return;
+        int[] purged = new int[1];
+        try {
+            store.forEachChunk(persistentType, (chunk, commandBuffer) -> {
+                for (int index = 0; index < chunk.size(); index++) {
+                    if (markerType != null && chunk.getComponent(index, markerType) != null) {
+                        continue;
+                    }
+                    if (playerType != null && chunk.getComponent(index, playerType) != null) {
+                        continue;
+                    }
+                    ModelComponent modelComponent = chunk.getComponent(index, modelType);
+                    Model model = modelComponent == null ? null : modelComponent.getModel();
+                    if (model == null || !rigModelAssetIds.contains(model.getModelAssetId())) {
+                        continue;
+                    }
+                    commandBuffer.removeEntity(chunk.getReferenceTo(index), RemoveReason.REMOVE);
+                    purged[0]++;
                 }
-                world.execute(() -> {
-                    Store<EntityStore> liveStore = world.getEntityStore().getStore();
-                    removeRigInternal(liveStore, spawned);
-                });
-            },
-            DEBUG_RIG_LIFETIME_MS,
-            TimeUnit.MILLISECONDS
-        );
+            });
+        } catch (Exception ex) {
+            this.logger.atWarning().withCause(ex).log("[HyPerks] Failed to purge legacy model rigs in world '%s'.", world.getName());
+            return 0;
+        }
 
-        return DebugSpawnResult.success(spawned.resolvedModelAssetId);
+        if (purged[0] > 0) {
+            this.orphanRigsSwept.addAndGet(purged[0]);
+            this.logger.atInfo().log("[HyPerks] Removed %s legacy model rig(s) in world '%s'.", purged[0], world.getName());
+        }
+        return purged[0];
     }
 
     private List<DesiredPart> expandDesiredParts(List<DesiredRig> desiredRigs, QualityTier qualityTier) {
@@ -365,20 +1103,37 @@ public class ModelVfxRigService {
     }
 
     private DesiredPart part(DesiredRig desired, String partId, String modelAssetId) {
-        return new DesiredPart(desired.categoryId(), desired.cosmeticId(), desired.rigProfile(), partId, modelAssetId);
+        Integer keyId = this.partKeyIds.computeIfAbsent(
+            new RigKey(desired.categoryId(), desired.cosmeticId(), partId),
+            ignored -> this.nextPartKeyId.incrementAndGet()
+        );
+        return new DesiredPart(desired.categoryId(), desired.cosmeticId(), desired.rigProfile(), partId, modelAssetId, keyId);
     }
 
     private String pickPartModel(String baseModelAssetId, String suffix) {
+        ModelAssetIndex index = currentModelAssetIndex();
+        String variantKey = partVariantKey(baseModelAssetId, suffix);
+        String cached = this.partVariants.get(variantKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Only bases that were not in the catalog at reload get here, once each.
+        String picked = resolvePartVariant(index, baseModelAssetId, suffix);
+        this.partVariants.put(variantKey, picked);
+        return picked;
+    }
+
+    private String resolvePartVariant(ModelAssetIndex index, String baseModelAssetId, String suffix) {
         String candidate = appendSuffix(baseModelAssetId, suffix);
-        if (candidate.isBlank()) {
+        if (candidate.isBlank() || index.find(candidate).isBlank()) {
             return baseModelAssetId;
         }
+        return candidate;
+    }
 
-        Map<String, ModelAsset> modelMap = ModelAsset.getAssetMap().getAssetMap();
-        if (!findModelKey(modelMap, candidate).isBlank()) {
-            return candidate;
-        }
-        return baseModelAssetId;
+    private static String partVariantKey(String baseModelAssetId, String suffix) {
+        return baseModelAssetId + '|' + suffix;
     }
 
     private String appendSuffix(String baseModelAssetId, String suffix) {
@@ -402,37 +1157,52 @@ public class ModelVfxRigService {
         long nowMs
     ) {
         String requestedModelAssetId = normalizeAssetId(part.modelAssetId);
-        ModelAsset asset = resolveModelAsset(requestedModelAssetId);
-        if (asset == null) {
+        RigPrototype prototype = resolveRigPrototype(requestedModelAssetId);
+        if (prototype == null) {
             return null;
         }
 
-        Model model = Model.createUnitScaleModel(asset);
-        Vector3d spawnPosition = computeRigPosition(part.rigProfile, part.partId, playerPosition, playerRotation, frame);
-        Vector3f spawnRotation = computeRigRotation(part.rigProfile, part.partId, playerRotation, frame);
+        HyPerksConfig.RigProfileConfig profileConfig = resolveProfileConfig(part.rigProfile);
+        long poseFrame = profileConfig.isIdleSkipFollow() ? 0L : frame;
+        Vector3d spawnPosition = computeRigPosition(
+            part.rigProfile,
+            part.partId,
+            playerPosition.x,
+            playerPosition.y,
+            playerPosition.z,
+            playerRotation,
+            poseFrame,
+            new Vector3d()
+        );
+        Vector3f spawnRotation = computeRigRotation(part.rigProfile, part.partId, playerRotation, poseFrame, new Vector3f());
 
         try {
-            com.hypixel.hytale.component.Holder<EntityStore> holder = EntityStore.REGISTRY.newHolder();
-            holder.putComponent(TransformComponent.getComponentType(), new TransformComponent(new Vector3d(spawnPosition), new Vector3f(spawnRotation)));
-            holder.putComponent(ModelComponent.getComponentType(), new ModelComponent(model));
-            holder.putComponent(PersistentModel.getComponentType(), new PersistentModel(model.toReference()));
-            holder.putComponent(BoundingBox.getComponentType(), new BoundingBox(model.getBoundingBox()));
-            holder.putComponent(NetworkId.getComponentType(), new NetworkId(store.getExternalData().takeNextNetworkId()));
-            holder.putComponent(UUIDComponent.getComponentType(), UUIDComponent.randomUUID());
-
-            String animationId = resolvePreferredAnimation(model, part.rigProfile, part.partId);
-            if (!animationId.isBlank()) {
-                ActiveAnimationComponent activeAnimation = new ActiveAnimationComponent();
-                activeAnimation.setPlayingAnimation(AnimationSlot.Status, animationId);
-                holder.putComponent(ActiveAnimationComponent.getComponentType(), activeAnimation);
-            }
-
+            String rigId = UUID.randomUUID().toString();
+            boolean cosmeticArchetype = profileConfig.isCosmeticArchetype();
+            String animationId = resolvePreferredAnimation(prototype, part.rigProfile, part.partId);
+            Holder<EntityStore> holder = newRigHolder(store, prototype, spawnPosition, spawnRotation, cosmeticArchetype, rigId, animationId);
             Ref<EntityStore> rigRef = store.addEntity(holder, AddReason.SPAWN);
             if (rigRef == null) {
                 return null;
             }
 
-            return new RigInstance(rigRef, world, part.rigProfile, part.partId, requestedModelAssetId, resolveModelAssetId(requestedModelAssetId), nowMs);
+            RigInstance rig = new RigInstance(
+                rigRef,
+                rigId,
+                part.categoryId,
+                world,
+                part.rigProfile,
+                part.partId,
+                requestedModelAssetId,
+                prototype.resolvedModelAssetId,
+                profileConfig.isIdleSkipFollow(),
+                profileConfig.isIdleSkipFollow() ? 0 : profileConfig.getUpdateIntervalMs(),
+                profileConfig.getMaxFollowError(),
+                this.rigGeneration.get(),
+                nowMs
+            );
+            rig.recordOwnerPose(playerPosition, playerRotation);
+            return rig;
         } catch (Exception ex) {
             String warningKey = requestedModelAssetId + "#spawn";
             if (this.failedRigWarnings.add(warningKey)) {
@@ -442,21 +1212,110 @@ public class ModelVfxRigService {
         }
     }
 
-    private boolean updateRigTransform(Store<EntityStore> store, RigInstance rig, Vector3d playerPosition, Vector3f playerRotation, long frame) {
+    private Holder<EntityStore> newRigHolder(
+        Store<EntityStore> store,
+        RigPrototype prototype,
+        Vector3d position,
+        Vector3f rotation,
+        boolean cosmeticArchetype,
+        String rigId,
+        String animationId
+    ) {
+        Holder<EntityStore> holder = EntityStore.REGISTRY.newHolder();
+        holder.putComponent(TransformComponent.getComponentType(), new TransformComponent(new Vector3d(position), new Vector3f(rotation)));
+        holder.putComponent(ModelComponent.getComponentType(), new ModelComponent(prototype.model));
+        if (!cosmeticArchetype && prototype.boundingBox != null) {
+            holder.putComponent(BoundingBox.getComponentType(), new BoundingBox(prototype.boundingBox));
+        }
+        holder.putComponent(NetworkId.getComponentType(), new NetworkId(store.getExternalData().takeNextNetworkId()));
+        holder.putComponent(UUIDComponent.getComponentType(), UUIDComponent.randomUUID());
+        // Rigs are rebuilt from player state every tick, so they must never be written with the chunk.
+        holder.putComponent(EntityStore.REGISTRY.getNonSerializedComponentType(), NonSerialized.get());
+
+        ComponentType<EntityStore, HyPerksRigMarker> markerType = HyPerksRigMarker.getComponentType();
+        if (markerType != null) {
+            holder.putComponent(markerType, new HyPerksRigMarker(rigId));
+        }
+
+        if (animationId != null && !animationId.isBlank()) {
+            ActiveAnimationComponent activeAnimation = new ActiveAnimationComponent();
+            activeAnimation.setPlayingAnimation(AnimationSlot.Status, animationId);
+            holder.putComponent(ActiveAnimationComponent.getComponentType(), activeAnimation);
+        }
+        return holder;
+    }
+
+    private HyPerksConfig.RigProfileConfig resolveProfileConfig(String rigProfile) {
+        Map<String, HyPerksConfig.RigProfileConfig> profiles = this.rigProfiles;
+        HyPerksConfig.RigProfileConfig profile = rigProfile == null ? null : profiles.get(rigProfile);
+        if (profile == null) {
+            profile = profiles.get(HyPerksConfig.RigProfileConfig.DEFAULT_PROFILE);
+        }
+        return profile == null ? DEFAULT_RIG_PROFILE : profile;
+    }
+
+    private boolean updateRigTransform(
+        Store<EntityStore> store,
+        RigInstance rig,
+        Vector3d playerPosition,
+        Vector3f playerRotation,
+        OwnerMotion motion,
+        long frame,
+        long nowMs
+    ) {
         try {
             if (rig.entityRef == null || !rig.entityRef.isValid()) {
                 return false;
             }
 
+            // Idle-skip rigs hold a fixed offset from their owner and let the baked animation provide
+            // motion. They are not parented to the owner entity, so every owner move or turn is still
+            // a server write; only the ticks where the owner stands still are skipped.
+            if (rig.idleSkip && !rig.ownerPoseChanged(playerPosition, playerRotation)) {
+                this.transformWritesSkipped.incrementAndGet();
+                return true;
+            }
+            // Coarse-rate rigs wait for their interval unless the owner drifted too far from the written anchor.
+            if (rig.updateIntervalMs > 0
+                && (nowMs - rig.lastWriteAtMs) < rig.updateIntervalMs
+                && !rig.exceedsFollowError(playerPosition, playerRotation)) {
+                this.transformWritesSkipped.incrementAndGet();
+                return true;
+            }
+
             TransformComponent transform = store.getComponent(rig.entityRef, TransformComponent.getComponentType());
             if (transform == null) {
                 return false;
             }
 
-            Vector3d nextPosition = computeRigPosition(rig.rigProfile, rig.partId, playerPosition, playerRotation, frame);
-            Vector3f nextRotation = computeRigRotation(rig.rigProfile, rig.partId, playerRotation, frame);
-            transform.setPosition(nextPosition);
-            transform.setRotation(nextRotation);
+            long poseFrame = rig.idleSkip ? 0L : frame;
+            double ownerX = playerPosition.x;
+            double ownerY = playerPosition.y;
+            double ownerZ = playerPosition.z;
+            if (rig.updateIntervalMs > 0 && motion != null) {
+                // Aim at the middle of the coming interval so the rig trails and leads its owner equally,
+                // but never further ahead than the follow error allows: the entity does not move between writes.
+                double leadMs = rig.updateIntervalMs * 0.5D;
+                double speedPerMs = Math.sqrt(
+                    (motion.velocityX * motion.velocityX)
+                        + (motion.velocityY * motion.velocityY)
+                        + (motion.velocityZ * motion.velocityZ)
+                );
+                if (speedPerMs * leadMs > rig.maxFollowError) {
+                    leadMs = rig.maxFollowError / speedPerMs;
+                }
+                ownerX += motion.velocityX * leadMs;
+                ownerY += motion.velocityY * leadMs;
+                ownerZ += motion.velocityZ * leadMs;
+            }
+            // Each rig owns its pose vectors, so updates reuse them instead of allocating per tick.
+            computeRigPosition(rig.rigProfile, rig.partId, ownerX, ownerY, ownerZ, playerRotation, poseFrame, rig.position);
+            computeRigRotation(rig.rigProfile, rig.partId, playerRotation, poseFrame, rig.rotation);
+            transform.setPosition(rig.position);
+            transform.setRotation(rig.rotation);
+            rig.recordOwnerPose(playerPosition, playerRotation);
+            rig.recordWrite(nowMs, ownerX, ownerY, ownerZ);
+            this.transformWrites.incrementAndGet();
             return true;
         } catch (Exception ex) {
             String warningKey = rig.requestedModelAssetId + "#update";
@@ -487,7 +1346,9 @@ public class ModelVfxRigService {
 
         try {
             store.removeEntity(rig.entityRef, RemoveReason.REMOVE);
+            this.removedRigs.incrementAndGet();
         } catch (Exception ex) {
+            this.failedRemovals.incrementAndGet();
             String warningKey = rig.requestedModelAssetId + "#remove";
             if (this.failedRigWarnings.add(warningKey)) {
                 this.logger.atWarning().withCause(ex).log("[HyPerks] Failed to remove model rig '%s'.", rig.requestedModelAssetId);
@@ -496,22 +1357,38 @@ public class ModelVfxRigService {
     }
 
     private void scheduleRigRemoval(RigInstance rig) {
-        if (rig == null || rig.world == null || !rig.world.isAlive()) {
+        if (rig == null || rig.world == null) {
+            return;
+        }
+        if (!rig.world.isAlive()) {
+            this.leakedRemovals.incrementAndGet();
             return;
         }
 
-        rig.world.execute(() -> {
-            Store<EntityStore> store = rig.world.getEntityStore().getStore();
-            removeRigInternal(store, rig);
-        });
+        WorldRigState state = worldState(rig.world);
+        state.pendingRemovals.add(rig);
+        state.queuedRemovals.incrementAndGet();
     }
-    private ModelAsset resolveModelAsset(String requestedModelAssetId) {
+
+    private RigPrototype resolveRigPrototype(String requestedModelAssetId) {
         String resolvedModelId = resolveModelAssetId(requestedModelAssetId);
         if (resolvedModelId.isBlank()) {
             return null;
         }
 
-        return ModelAsset.getAssetMap().getAssetMap().get(resolvedModelId);
+        RigPrototype cached = this.rigPrototypes.get(resolvedModelId);
+        if (cached != null) {
+            return cached;
+        }
+
+        ModelAsset asset = ModelAsset.getAssetMap().getAssetMap().get(resolvedModelId);
+        if (asset == null) {
+            return null;
+        }
+
+        RigPrototype prototype = new RigPrototype(resolvedModelId, Model.createUnitScaleModel(asset));
+        RigPrototype raced = this.rigPrototypes.putIfAbsent(resolvedModelId, prototype);
+        return raced == null ? prototype : raced;
     }
 
     private String resolveModelAssetId(String configuredModelAssetId) {
@@ -520,20 +1397,56 @@ public class ModelVfxRigService {
             return "";
         }
 
-        return this.resolvedModelIds.computeIfAbsent(normalized, this::resolveModelAssetIdFromAssets);
+        try {
+            // Cheap generation check (map identity and size) so an asset reload drops stale resolutions.
+            ModelAssetIndex index = currentModelAssetIndex();
+            return this.resolvedModelIds.computeIfAbsent(normalized, candidate -> resolveModelAssetIdFromAssets(index, candidate));
+        } catch (Exception ex) {
+            if (this.missingModelWarnings.add(normalized + "#assetLookup")) {
+                this.logger.atWarning().withCause(ex).log("[HyPerks] Could not resolve model asset '%s'.", normalized);
+            }
+            return "";
+        }
+    }
+
+    private ModelAssetIndex currentModelAssetIndex() {
+        Map<String, ModelAsset> modelMap = ModelAsset.getAssetMap().getAssetMap();
+        ModelAssetIndex index = this.modelAssetIndex;
+        if (index != null && index.isCurrent(modelMap)) {
+            return index;
+        }
+
+        synchronized (this.modelAssetIndexLock) {
+            index = this.modelAssetIndex;
+            if (index != null && index.isCurrent(modelMap)) {
+                return index;
+            }
+
+            // The asset map changed under us (asset reload or late pack load): everything resolved
+            // against the previous key set is stale.
+            if (index != null) {
+                this.resolvedModelIds.clear();
+                this.partVariants.clear();
+                this.rigPrototypes.clear();
+                this.missingModelWarnings.clear();
+            }
+            index = ModelAssetIndex.build(modelMap);
+            this.modelAssetIndex = index;
+            this.modelAssetIndexBuilds.incrementAndGet();
+            return index;
+        }
     }
 
-    private String resolveModelAssetIdFromAssets(String candidate) {
+    private String resolveModelAssetIdFromAssets(ModelAssetIndex index, String candidate) {
         try {
-            Map<String, ModelAsset> modelMap = ModelAsset.getAssetMap().getAssetMap();
-            String resolved = findModelKey(modelMap, candidate);
+            String resolved = index.find(candidate);
             if (!resolved.isBlank()) {
                 return resolved;
             }
 
             String noExt = stripModelExtension(candidate);
             if (!noExt.equalsIgnoreCase(candidate)) {
-                resolved = findModelKey(modelMap, noExt);
+                resolved = index.find(noExt);
                 if (!resolved.isBlank()) {
                     return resolved;
                 }
@@ -541,7 +1454,7 @@ public class ModelVfxRigService {
 
             String baseName = basename(noExt);
             if (!baseName.isBlank()) {
-                resolved = findModelKey(modelMap, baseName);
+                resolved = index.find(baseName);
                 if (!resolved.isBlank()) {
                     return resolved;
                 }
@@ -559,33 +1472,8 @@ public class ModelVfxRigService {
         return "";
     }
 
-    private String findModelKey(Map<String, ModelAsset> modelMap, String candidate) {
-        if (candidate == null || candidate.isBlank()) {
-            return "";
-        }
-
-        String normalizedCandidate = normalizeAssetId(candidate);
-        if (modelMap.containsKey(normalizedCandidate)) {
-            return normalizedCandidate;
-        }
-
-        String lowerCandidate = stripServerModelPrefix(stripModelExtension(normalizedCandidate.toLowerCase(Locale.ROOT)));
-        for (String key : modelMap.keySet()) {
-            if (key == null || key.isBlank()) {
-                continue;
-            }
-
-            String lowerKey = stripServerModelPrefix(stripModelExtension(normalizeAssetId(key).toLowerCase(Locale.ROOT)));
-            if (lowerKey.equals(lowerCandidate) || lowerKey.endsWith("/" + lowerCandidate) || lowerCandidate.endsWith("/" + lowerKey)) {
-                return key;
-            }
-        }
-
-        return "";
-    }
-
-    private String resolvePreferredAnimation(Model model, String rigProfile, String partId) {
-        if (model == null) {
+    private String resolvePreferredAnimation(RigPrototype prototype, String rigProfile, String partId) {
+        if (prototype == null) {
             return "";
         }
 
@@ -593,20 +1481,29 @@ public class ModelVfxRigService {
         String part = partId == null ? "" : partId.trim().toLowerCase(Locale.ROOT);
 
         return switch (profile) {
-            case "fire_ice_cone", "storm_clouds" -> safeAnimation(model.getFirstBoundAnimationId("Idle", "Loop"));
-            case "wingwang_sigil" -> safeAnimation(model.getFirstBoundAnimationId("Idle", "Action", "Loop"));
+            case "fire_ice_cone", "storm_clouds" -> prototype.idleLoopAnimation;
+            case "wingwang_sigil" -> prototype.idleActionLoopAnimation;
             case "fireworks_show" -> "launcher".equals(part)
-                ? safeAnimation(model.getFirstBoundAnimationId("Action", "Idle", "Loop"))
-                : safeAnimation(model.getFirstBoundAnimationId("Idle", "Loop", "Action"));
-            default -> safeAnimation(model.getFirstBoundAnimationId("Idle", "Loop", "Action"));
+                ? prototype.actionIdleLoopAnimation
+                : prototype.idleLoopActionAnimation;
+            default -> prototype.idleLoopActionAnimation;
         };
     }
 
-    private String safeAnimation(String animationId) {
+    private static String safeAnimation(String animationId) {
         return animationId == null ? "" : animationId;
     }
 
-    private Vector3d computeRigPosition(String rigProfile, String partId, Vector3d playerPosition, Vector3f playerRotation, long frame) {
+    private Vector3d computeRigPosition(
+        String rigProfile,
+        String partId,
+        double ownerX,
+        double ownerY,
+        double ownerZ,
+        Vector3f playerRotation,
+        long frame,
+        Vector3d out
+    ) {
         String profile = rigProfile == null ? "" : rigProfile.trim().toLowerCase(Locale.ROOT);
         String part = partId == null ? "" : partId.trim().toLowerCase(Locale.ROOT);
 
@@ -686,11 +1583,11 @@ public class ModelVfxRigService {
         double sin = Math.sin(yawRadians);
         double rotatedX = (localX * cos) - (localZ * sin);
         double rotatedZ = (localX * sin) + (localZ * cos);
-        return new Vector3d(playerPosition.x + rotatedX, playerPosition.y + localY, playerPosition.z + rotatedZ);
+        return out.assign(ownerX + rotatedX, ownerY + localY, ownerZ + rotatedZ);
     }
 
-    private Vector3f computeRigRotation(String rigProfile, String partId, Vector3f playerRotation, long frame) {
-        Vector3f base = playerRotation == null ? new Vector3f(0F, 0F, 0F) : new Vector3f(playerRotation);
+    private Vector3f computeRigRotation(String rigProfile, String partId, Vector3f playerRotation, long frame, Vector3f out) {
+        Vector3f base = playerRotation == null ? out.assign(0F, 0F, 0F) : out.assign(playerRotation);
         String profile = rigProfile == null ? "" : rigProfile.trim().toLowerCase(Locale.ROOT);
         String part = partId == null ? "" : partId.trim().toLowerCase(Locale.ROOT);
 
@@ -725,6 +1622,24 @@ public class ModelVfxRigService {
 
         return base;
     }
+    private static com.sun.management.ThreadMXBean resolveAllocationProbe() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean
+                && threadBean.isThreadAllocatedMemorySupported()
+                && threadBean.isThreadAllocatedMemoryEnabled()) {
+                return threadBean;
+            }
+        } catch (Exception | LinkageError ignored) {
+            // Not a HotSpot-compatible runtime: the sync allocation diagnostic stays unavailable.
+        }
+        return null;
+    }
+
+    private static long threadAllocatedBytes() {
+        com.sun.management.ThreadMXBean probe = ALLOCATION_PROBE;
+        return probe == null ? -1L : probe.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
     private String normalizeAssetId(String value) {
         if (value == null) {
             return "";
@@ -756,18 +1671,6 @@ public class ModelVfxRigService {
         return value;
     }
 
-    private String stripServerModelPrefix(String value) {
-        if (value == null || value.isBlank()) {
-            return "";
-        }
-
-        String normalized = value.toLowerCase(Locale.ROOT);
-        if (normalized.startsWith("server/models/")) {
-            return normalized.substring("server/models/".length());
-        }
-        return normalized;
-    }
-
     private String basename(String value) {
         if (value == null || value.isBlank()) {
             return "";
@@ -817,6 +1720,328 @@ public class ModelVfxRigService {
             }
             return value.trim().toLowerCase(Locale.ROOT);
         }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof DesiredRig that)) {
+                return false;
+            }
+            return this.categoryId.equals(that.categoryId)
+                && this.cosmeticId.equals(that.cosmeticId)
+                && this.modelAssetId.equals(that.modelAssetId)
+                && this.rigProfile.equals(that.rigProfile);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.categoryId, this.cosmeticId, this.modelAssetId, this.rigProfile);
+        }
+    }
+
+    public static final class RigRequest {
+        private UUID playerUuid;
+        private Vector3d position;
+        private Vector3f rotation;
+        private List<DesiredRig> desiredRigs = List.of();
+        private int nearbyPlayers;
+        private double priority;
+
+        // Pooled by the render frame and refilled through reset() every tick.
+        RigRequest() {
+        }
+
+        public RigRequest(
+            UUID playerUuid,
+            Vector3d position,
+            Vector3f rotation,
+            List<DesiredRig> desiredRigs,
+            int nearbyPlayers,
+            double priority
+        ) {
+            reset(playerUuid, position, rotation, desiredRigs, nearbyPlayers, priority);
+        }
+
+        RigRequest reset(
+            UUID playerUuid,
+            Vector3d position,
+            Vector3f rotation,
+            List<DesiredRig> desiredRigs,
+            int nearbyPlayers,
+            double priority
+        ) {
+            this.playerUuid = playerUuid;
+            this.position = position;
+            this.rotation = rotation;
+            this.desiredRigs = desiredRigs == null ? List.of() : desiredRigs;
+            this.nearbyPlayers = nearbyPlayers;
+            this.priority = priority;
+            return this;
+        }
+    }
+
+    public static final class ShowcaseRig {
+        private final String showcaseId;
+        private final String worldName;
+        private final DesiredRig desired;
+        private final Vector3d position;
+        private final Vector3f rotation;
+        private final double viewRadius;
+
+        public ShowcaseRig(
+            String showcaseId,
+            String worldName,
+            DesiredRig desired,
+            Vector3d position,
+            Vector3f rotation,
+            double viewRadius
+        ) {
+            this.showcaseId = showcaseId;
+            this.worldName = worldName;
+            this.desired = desired;
+            this.position = position;
+            this.rotation = rotation;
+            this.viewRadius = viewRadius;
+        }
+
+        public String showcaseId() {
+            return this.showcaseId;
+        }
+    }
+
+    private static final class ShowcaseState {
+        private final ShowcaseRig definition;
+        private volatile List<RigInstance> rigs = List.of();
+        private volatile boolean spawned;
+        // Parts still being spawned across ticks; only touched on the world thread.
+        private List<DesiredPart> parts;
+        private int nextPart;
+
+        private ShowcaseState(ShowcaseRig definition) {
+            this.definition = definition;
+        }
+    }
+
+    // One phase per archetype, each sampled over real world ticks. The world thread's CPU time
+    // over the window covers every system that touches the rigs (collision, spatial, tracking),
+    // which a single world task cannot see. The first phase spawns nothing and is the baseline.
+    private final class ArchetypeBench {
+        private final World world;
+        private final RigPrototype prototype;
+        private final Vector3d position;
+        private final Vector3f rotation = new Vector3f(0F, 0F, 0F);
+        private final int entityCount;
+        private final Consumer<List<ArchetypeBenchResult>> onComplete;
+        private final List<ArchetypeBenchResult> results = new ArrayList<>();
+        private final List<Ref<EntityStore>> refs = new ArrayList<>();
+        private int phase;
+        private long spawnNanos;
+        private long sampleThreadId;
+        private long sampleStartCpuNanos;
+        private long sampleStartNanos;
+        private long baselineBusyMicrosPerSecond = -1L;
+
+        private ArchetypeBench(
+            World world,
+            RigPrototype prototype,
+            Vector3d position,
+            int entityCount,
+            Consumer<List<ArchetypeBenchResult>> onComplete
+        ) {
+            this.world = world;
+            this.prototype = prototype;
+            this.position = position;
+            this.entityCount = entityCount;
+            this.onComplete = onComplete;
+        }
+
+        private void startPhase() {
+            try {
+                String archetype = BENCH_PHASES.get(this.phase);
+                long startedAt = System.nanoTime();
+                if (!BENCH_BASELINE.equals(archetype)) {
+                    Store<EntityStore> store = this.world.getEntityStore().getStore();
+                    boolean cosmeticArchetype = HyPerksConfig.RigProfileConfig.ARCHETYPE_COSMETIC.equals(archetype);
+                    for (int i = 0; i < this.entityCount; i++) {
+                        Holder<EntityStore> holder = newRigHolder(
+                            store,
+                            this.prototype,
+                            this.position,
+                            this.rotation,
+                            cosmeticArchetype,
+                            BENCH_RIG_ID,
+                            ""
+                        );
+                        Ref<EntityStore> ref = store.addEntity(holder, AddReason.SPAWN);
+                        if (ref != null) {
+                            this.refs.add(ref);
+                        }
+                    }
+                }
+                this.spawnNanos = System.nanoTime() - startedAt;
+                this.sampleThreadId = Thread.currentThread().getId();
+                this.sampleStartCpuNanos = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+                this.sampleStartNanos = System.nanoTime();
+                HytaleServer.SCHEDULED_EXECUTOR.schedule(this::scheduleFinish, BENCH_SAMPLE_MS, TimeUnit.MILLISECONDS);
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+
+        private void scheduleFinish() {
+            if (!this.world.isAlive()) {
+                // The rigs went away with the world.
+                this.refs.clear();
+                complete(List.of());
+                return;
+            }
+            this.world.execute(this::finishPhase);
+        }
+
+        private void finishPhase() {
+            try {
+                long cpuNanos = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime() - this.sampleStartCpuNanos;
+                long elapsedNanos = System.nanoTime() - this.sampleStartNanos;
+                // CPU time is per thread; a world that moved threads mid-sample has no usable reading.
+                long busyMicrosPerSecond = Thread.currentThread().getId() == this.sampleThreadId && elapsedNanos > 0L
+                    ? (cpuNanos / 1_000L) * 1_000_000_000L / elapsedNanos
+                    : -1L;
+
+                Store<EntityStore> store = this.world.getEntityStore().getStore();
+                long startedAt = System.nanoTime();
+                for (int i = 0; i < this.refs.size(); i++) {
+                    Ref<EntityStore> ref = this.refs.get(i);
+                    TransformComponent transform = ref.isValid() ? store.getComponent(ref, TransformComponent.getComponentType()) : null;
+                    if (transform != null) {
+                        transform.setPosition(new Vector3d(this.position.x, this.position.y + (i % 4), this.position.z));
+                        transform.setRotation(this.rotation);
+                    }
+                }
+                long updateNanos = System.nanoTime() - startedAt;
+                long removeNanos = removeAll(store);
+
+                String archetype = BENCH_PHASES.get(this.phase);
+                int measured = Math.max(1, this.refs.size());
+                if (BENCH_BASELINE.equals(archetype)) {
+                    this.baselineBusyMicrosPerSecond = busyMicrosPerSecond;
+                    this.results.add(new ArchetypeBenchResult(archetype, 0, 0L, 0L, 0L, busyMicrosPerSecond, 0L));
+                } else {
+                    long busyNanosPerEntity = busyMicrosPerSecond >= 0L && this.baselineBusyMicrosPerSecond >= 0L
+                        ? (busyMicrosPerSecond - this.baselineBusyMicrosPerSecond) * 1_000L / measured
+                        : -1L;
+                    this.results.add(new ArchetypeBenchResult(
+                        archetype,
+                        this.refs.size(),
+                        this.spawnNanos / measured,
+                        updateNanos / measured,
+                        removeNanos / measured,
+                        busyMicrosPerSecond,
+                        busyNanosPerEntity
+                    ));
+                }
+                this.refs.clear();
+
+                this.phase++;
+                if (this.phase < BENCH_PHASES.size()) {
+                    startPhase();
+                    return;
+                }
+                complete(this.results);
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+
+        private long removeAll(Store<EntityStore> store) {
+            long startedAt = System.nanoTime();
+            for (Ref<EntityStore> ref : this.refs) {
+                if (ref.isValid()) {
+                    store.removeEntity(ref, RemoveReason.REMOVE);
+                }
+            }
+            return System.nanoTime() - startedAt;
+        }
+
+        private void fail(Exception ex) {
+            if (ModelVfxRigService.this.failedRigWarnings.add("bench")) {
+                ModelVfxRigService.this.logger.atWarning().withCause(ex).log("[HyPerks] Model rig archetype bench failed.");
+            }
+            try {
+                removeAll(this.world.getEntityStore().getStore());
+            } catch (Exception ignored) {
+                // Leftovers carry the bench marker and are swept as orphans once the bench is over.
+            }
+            this.refs.clear();
+            complete(List.of());
+        }
+
+        private void complete(List<ArchetypeBenchResult> completed) {
+            ModelVfxRigService.this.debugRigIds.remove(BENCH_RIG_ID);
+            ModelVfxRigService.this.archetypeBenchRunning.set(false);
+            this.onComplete.accept(List.copyOf(completed));
+        }
+    }
+
+    public static final class ArchetypeBenchResult {
+        private final String archetype;
+        private final int entityCount;
+        private final long spawnNanosPerEntity;
+        private final long updateNanosPerEntity;
+        private final long removeNanosPerEntity;
+        private final long worldBusyMicrosPerSecond;
+        private final long tickNanosPerEntityPerSecond;
+
+        private ArchetypeBenchResult(
+            String archetype,
+            int entityCount,
+            long spawnNanosPerEntity,
+            long updateNanosPerEntity,
+            long removeNanosPerEntity,
+            long worldBusyMicrosPerSecond,
+            long tickNanosPerEntityPerSecond
+        ) {
+            this.archetype = archetype;
+            this.entityCount = entityCount;
+            this.spawnNanosPerEntity = spawnNanosPerEntity;
+            this.updateNanosPerEntity = updateNanosPerEntity;
+            this.removeNanosPerEntity = removeNanosPerEntity;
+            this.worldBusyMicrosPerSecond = worldBusyMicrosPerSecond;
+            this.tickNanosPerEntityPerSecond = tickNanosPerEntityPerSecond;
+        }
+
+        public boolean isBaseline() {
+            return BENCH_BASELINE.equals(archetype);
+        }
+
+        public String getArchetype() {
+            return archetype;
+        }
+
+        public int getEntityCount() {
+            return entityCount;
+        }
+
+        public long getSpawnNanosPerEntity() {
+            return spawnNanosPerEntity;
+        }
+
+        public long getUpdateNanosPerEntity() {
+            return updateNanosPerEntity;
+        }
+
+        public long getRemoveNanosPerEntity() {
+            return removeNanosPerEntity;
+        }
+
+        public long getWorldBusyMicrosPerSecond() {
+            return worldBusyMicrosPerSecond;
+        }
+
+        public long getTickNanosPerEntityPerSecond() {
+            return tickNanosPerEntityPerSecond;
+        }
     }
 
     public static final class DebugSpawnResult {
@@ -881,13 +2106,122 @@ public class ModelVfxRigService {
         private final String rigProfile;
         private final String partId;
         private final String modelAssetId;
+        private final Integer keyId;
 
-        private DesiredPart(String categoryId, String cosmeticId, String rigProfile, String partId, String modelAssetId) {
+        private DesiredPart(String categoryId, String cosmeticId, String rigProfile, String partId, String modelAssetId, Integer keyId) {
             this.categoryId = DesiredRig.normalize(categoryId);
             this.cosmeticId = DesiredRig.normalize(cosmeticId);
             this.rigProfile = DesiredRig.normalize(rigProfile);
             this.partId = DesiredRig.normalize(partId);
             this.modelAssetId = modelAssetId == null ? "" : modelAssetId.trim();
+            this.keyId = keyId;
+        }
+    }
+
+    private static final class WorldRigState {
+        private final AtomicLong evictions = new AtomicLong();
+        private final AtomicLong deferredSpawns = new AtomicLong();
+        private final SpawnAllowance allowance = new SpawnAllowance();
+        private final ConcurrentLinkedQueue<RigInstance> pendingRemovals = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queuedRemovals = new AtomicInteger();
+        private volatile World world;
+        private volatile int pendingSpawns;
+        private volatile long lastSyncAllocatedBytes = -1L;
+        private final RigSyncPlan plan = new RigSyncPlan();
+        private boolean[] keep = new boolean[0];
+        // Scratch buffer reused by every sync of this world; only touched on the world thread.
+        private PlayerRigs[] playerRigs = new PlayerRigs[0];
+
+        // The first caller of a render frame resets the allowance; later callers share what is left.
+        private SpawnAllowance allowance(long frame, int budget) {
+            if (this.allowance.frame != frame) {
+                this.allowance.frame = frame;
+                this.allowance.remaining = budget;
+            }
+            return this.allowance;
+        }
+
+        private PlayerRigs[] playerRigs(int size) {
+            if (this.playerRigs.length < size) {
+                this.playerRigs = new PlayerRigs[Math.max(size, this.playerRigs.length * 2)];
+            }
+            return this.playerRigs;
+        }
+    }
+
+    private static final class PlayerRigs {
+        private final Map<Integer, RigInstance> rigs = new ConcurrentHashMap<>();
+        private final OwnerMotion motion = new OwnerMotion();
+        private List<DesiredRig> expandedFrom;
+        private QualityTier expandedTier;
+        private int expandedBudget;
+        private DesiredPart[] parts = NO_PARTS;
+    }
+
+    private static final class SpawnAllowance {
+        private long frame = -1L;
+        private int remaining;
+        private int deferred;
+    }
+
+    private static final class RigPrototype {
+        private final String resolvedModelAssetId;
+        private final Model model;
+        private final Box boundingBox;
+        private final String idleLoopAnimation;
+        private final String idleActionLoopAnimation;
+        private final String actionIdleLoopAnimation;
+        private final String idleLoopActionAnimation;
+
+        private RigPrototype(String resolvedModelAssetId, Model model) {
+            this.resolvedModelAssetId = resolvedModelAssetId;
+            this.model = model;
+            this.boundingBox = model == null ? null : model.getBoundingBox();
+            this.idleLoopAnimation = model == null ? "" : safeAnimation(model.getFirstBoundAnimationId("Idle", "Loop"));
+            this.idleActionLoopAnimation = model == null ? "" : safeAnimation(model.getFirstBoundAnimationId("Idle", "Action", "Loop"));
+            this.actionIdleLoopAnimation = model == null ? "" : safeAnimation(model.getFirstBoundAnimationId("Action", "Idle", "Loop"));
+            this.idleLoopActionAnimation = model == null ? "" : safeAnimation(model.getFirstBoundAnimationId("Idle", "Loop", "Action"));
+        }
+    }
+
+    private static final class OwnerMotion {
+        private boolean sampled;
+        private double lastX;
+        private double lastY;
+        private double lastZ;
+        private long lastSampleAtMs;
+        private double velocityX;
+        private double velocityY;
+        private double velocityZ;
+
+        private void sample(Vector3d position, long nowMs) {
+            if (position == null) {
+                return;
+            }
+
+            long elapsedMs = nowMs - this.lastSampleAtMs;
+            if (this.sampled && elapsedMs > 0L) {
+                this.velocityX = (position.x - this.lastX) / elapsedMs;
+                this.velocityY = (position.y - this.lastY) / elapsedMs;
+                this.velocityZ = (position.z - this.lastZ) / elapsedMs;
+                double speedSquared = (this.velocityX * this.velocityX) + (this.velocityY * this.velocityY) + (this.velocityZ * this.velocityZ);
+                if (speedSquared > MAX_EXTRAPOLATED_SPEED_PER_MS * MAX_EXTRAPOLATED_SPEED_PER_MS) {
+                    // Faster than any walk, sprint or flight: treat it as a teleport, not as motion to extrapolate.
+                    this.velocityX = 0.0D;
+                    this.velocityY = 0.0D;
+                    this.velocityZ = 0.0D;
+                }
+            } else if (!this.sampled) {
+                this.velocityX = 0.0D;
+                this.velocityY = 0.0D;
+                this.velocityZ = 0.0D;
+            }
+
+            this.lastX = position.x;
+            this.lastY = position.y;
+            this.lastZ = position.z;
+            this.lastSampleAtMs = nowMs;
+            this.sampled = true;
         }
     }
 
@@ -923,29 +2257,111 @@ public class ModelVfxRigService {
 
     private static final class RigInstance {
         private final Ref<EntityStore> entityRef;
+        private final String rigId;
+        private final String categoryId;
         private final World world;
         private final String rigProfile;
         private final String partId;
         private final String requestedModelAssetId;
         private final String resolvedModelAssetId;
+        private final boolean idleSkip;
+        private final int updateIntervalMs;
+        private final double maxFollowError;
+        private final double maxFollowErrorSquared;
+        private final int generation;
+        private final Vector3d position = new Vector3d();
+        private final Vector3f rotation = new Vector3f();
         private volatile long lastSeenMs;
+        private long syncStamp;
+        private long lastWriteAtMs;
+        private double anchorX;
+        private double anchorY;
+        private double anchorZ;
+        private double ownerX;
+        private double ownerY;
+        private double ownerZ;
+        private float ownerYaw;
 
         private RigInstance(
             Ref<EntityStore> entityRef,
+            String rigId,
+            String categoryId,
             World world,
             String rigProfile,
             String partId,
             String requestedModelAssetId,
             String resolvedModelAssetId,
+            boolean idleSkip,
+            int updateIntervalMs,
+            double maxFollowError,
+            int generation,
             long lastSeenMs
         ) {
             this.entityRef = entityRef;
+            this.rigId = rigId == null ? "" : rigId;
+            this.categoryId = categoryId == null ? "" : categoryId;
             this.world = world;
             this.rigProfile = rigProfile == null ? "" : rigProfile;
             this.partId = partId == null ? "" : partId;
             this.requestedModelAssetId = requestedModelAssetId == null ? "" : requestedModelAssetId;
             this.resolvedModelAssetId = resolvedModelAssetId == null ? "" : resolvedModelAssetId;
+            this.idleSkip = idleSkip;
+            this.updateIntervalMs = Math.max(0, updateIntervalMs);
+            this.maxFollowError = maxFollowError;
+            this.maxFollowErrorSquared = maxFollowError * maxFollowError;
+            this.generation = generation;
             this.lastSeenMs = lastSeenMs;
         }
+
+        private void recordWrite(long nowMs, double anchorX, double anchorY, double anchorZ) {
+            this.lastWriteAtMs = nowMs;
+            this.anchorX = anchorX;
+            this.anchorY = anchorY;
+            this.anchorZ = anchorZ;
+        }
+
+        // The entity stays where it was last written, so the visible error is the owner's distance
+        // from that anchor, not from any predicted path.
+        private boolean exceedsFollowError(Vector3d position, Vector3f rotation) {
+            if (position == null) {
+                return false;
+            }
+
+            double dx = position.x - this.anchorX;
+            double dy = position.y - this.anchorY;
+            double dz = position.z - this.anchorZ;
+            if ((dx * dx) + (dy * dy) + (dz * dz) > this.maxFollowErrorSquared) {
+                return true;
+            }
+
+            float yaw = rotation == null ? 0F : rotation.getYaw();
+            float turn = Math.abs(yaw - this.ownerYaw) % 360.0F;
+            return Math.min(turn, 360.0F - turn) > SHARP_TURN_DEGREES;
+        }
+
+        private void recordOwnerPose(Vector3d position, Vector3f rotation) {
+            if (position != null) {
+                this.ownerX = position.x;
+                this.ownerY = position.y;
+                this.ownerZ = position.z;
+            }
+            this.ownerYaw = rotation == null ? 0F : rotation.getYaw();
+        }
+
+        private boolean ownerPoseChanged(Vector3d position, Vector3f rotation) {
+            if (position == null) {
+                return false;
+            }
+
+            double dx = position.x - this.ownerX;
+            double dy = position.y - this.ownerY;
+            double dz = position.z - this.ownerZ;
+            if ((dx * dx) + (dy * dy) + (dz * dz) > IDLE_SKIP_MOVE_EPSILON_SQUARED) {
+                return true;
+            }
+
+            float yaw = rotation == null ? 0F : rotation.getYaw();
+            return Math.abs(yaw - this.ownerYaw) > IDLE_SKIP_TURN_EPSILON_DEGREES;
+        }
     }
 }
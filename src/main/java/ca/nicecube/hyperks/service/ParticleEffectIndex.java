@@ -0,0 +1,246 @@
+package ca.nicecube.hyperks.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+final class ParticleEffectIndex {
+    private static final String PARTICLE_EXTENSION = ".particlesystem";
+    private static final int GRAM = 3;
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final Map<String, ?> source;
+    private final int sourceSize;
+    private final String[] keys;
+    private final String[] noExtensions;
+    // Lowest ordinal per lowercase key, per key without extension and per basename.
+    private final Map<String, Integer> byLower = new HashMap<>();
+    private final Map<String, Integer> byNoExtension = new HashMap<>();
+    private final Map<String, Integer> byBaseName = new HashMap<>();
+    // Reversed keys without extension: walking a reversed query finds every key ending with it.
+    private final TrieNode suffixTrie = new TrieNode();
+    // Forward tries used to find keys (or basenames) contained in a query.
+    private final TrieNode noExtensionTrie = new TrieNode();
+    private final TrieNode baseNameTrie = new TrieNode();
+    private final Map<String, int[]> grams;
+
+    private ParticleEffectIndex(Map<String, ?> source) {
+        this.source = source;
+        this.sourceSize = source.size();
+
+        List<String> keyList = new ArrayList<>();
+        List<String> noExtensionList = new ArrayList<>();
+        Map<String, List<Integer>> gramLists = new HashMap<>();
+        for (String key : source.keySet()) {
+            if (key == null || key.isBlank()) {
+                continue;
+            }
+
+            int ordinal = keyList.size();
+            String lower = normalize(key).toLowerCase(Locale.ROOT);
+            String noExtension = stripExtension(lower);
+            String baseName = baseName(noExtension);
+            keyList.add(key);
+            noExtensionList.add(noExtension);
+
+            this.byLower.putIfAbsent(lower, ordinal);
+            this.byNoExtension.putIfAbsent(noExtension, ordinal);
+            this.byBaseName.putIfAbsent(baseName, ordinal);
+            this.suffixTrie.insertReversed(noExtension, ordinal);
+            this.noExtensionTrie.insert(noExtension, ordinal);
+            this.baseNameTrie.insert(baseName, ordinal);
+            for (int i = 0; i + GRAM <= noExtension.length(); i++) {
+                List<Integer> postings = gramLists.computeIfAbsent(noExtension.substring(i, i + GRAM), ignored -> new ArrayList<>());
+                if (postings.isEmpty() || postings.get(postings.size() - 1) != ordinal) {
+                    postings.add(ordinal);
+                }
+            }
+        }
+
+        this.keys = keyList.toArray(new String[0]);
+        this.noExtensions = noExtensionList.toArray(new String[0]);
+        this.grams = new HashMap<>(gramLists.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : gramLists.entrySet()) {
+            List<Integer> postings = entry.getValue();
+            int[] ordinals = new int[postings.size()];
+            for (int i = 0; i < ordinals.length; i++) {
+                ordinals[i] = postings.get(i);
+            }
+            this.grams.put(entry.getKey(), ordinals);
+        }
+    }
+
+    static ParticleEffectIndex build(Map<String, ?> particleMap) {
+        return new ParticleEffectIndex(particleMap);
+    }
+
+    boolean isCurrent(Map<String, ?> particleMap) {
+        return particleMap == this.source && particleMap.size() == this.sourceSize;
+    }
+
+    int size() {
+        return this.keys.length;
+    }
+
+    // Same result as scoring every key and keeping the first best score:
+    // 100 exact, 95 no extension, 90 basename, 85 path suffix, 80 basename suffix,
+    // 70 contains, 65 basename contains, 0 anything else.
+    String find(String candidate) {
+        if (candidate == null || candidate.isBlank()) {
+            return "";
+        }
+
+        String candidateNormalized = normalize(candidate);
+        if (this.source.containsKey(candidateNormalized)) {
+            return candidateNormalized;
+        }
+        if (this.keys.length == 0) {
+            return "";
+        }
+
+        String candidateLower = candidateNormalized.toLowerCase(Locale.ROOT);
+        String candidateNoExtension = stripExtension(candidateLower);
+        String candidateBaseName = baseName(candidateNoExtension);
+
+        int match = lookup(this.byLower, candidateLower);
+        if (match == NONE) {
+            match = lookup(this.byNoExtension, candidateNoExtension);
+        }
+        if (match == NONE) {
+            match = lookup(this.byBaseName, candidateBaseName);
+        }
+        if (match == NONE) {
+            match = Math.min(
+                this.suffixTrie.minEndingWith("/" + candidateNoExtension),
+                minTailMatch(candidateNoExtension)
+            );
+        }
+        if (match == NONE) {
+            match = this.suffixTrie.minEndingWith("/" + candidateBaseName);
+            if (candidateNoExtension.indexOf('/') >= 0) {
+                match = Math.min(match, lookup(this.byBaseName, candidateBaseName));
+            }
+        }
+        if (match == NONE) {
+            match = Math.min(minContaining(candidateNoExtension), this.noExtensionTrie.minContainedIn(candidateNoExtension));
+        }
+        if (match == NONE) {
+            match = Math.min(minContaining(candidateBaseName), this.baseNameTrie.minContainedIn(candidateNoExtension));
+        }
+        if (match == NONE) {
+            match = 0;
+        }
+        return this.keys[match];
+    }
+
+    private int minTailMatch(String candidateNoExtension) {
+        int best = NONE;
+        for (int slash = candidateNoExtension.indexOf('/'); slash >= 0; slash = candidateNoExtension.indexOf('/', slash + 1)) {
+            best = Math.min(best, lookup(this.byNoExtension, candidateNoExtension.substring(slash + 1)));
+        }
+        return best;
+    }
+
+    private int minContaining(String query) {
+        if (query.length() < GRAM) {
+            for (int ordinal = 0; ordinal < this.noExtensions.length; ordinal++) {
+                if (this.noExtensions[ordinal].contains(query)) {
+                    return ordinal;
+                }
+            }
+            return NONE;
+        }
+
+        int[] narrowest = null;
+        for (int i = 0; i + GRAM <= query.length(); i++) {
+            int[] postings = this.grams.get(query.substring(i, i + GRAM));
+            if (postings == null) {
+                return NONE;
+            }
+            if (narrowest == null || postings.length < narrowest.length) {
+                narrowest = postings;
+            }
+        }
+        for (int ordinal : narrowest) {
+            if (this.noExtensions[ordinal].contains(query)) {
+                return ordinal;
+            }
+        }
+        return NONE;
+    }
+
+    private static int lookup(Map<String, Integer> index, String key) {
+        Integer ordinal = index.get(key);
+        return ordinal == null ? NONE : ordinal;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().replace('\\', '/');
+    }
+
+    private static String stripExtension(String value) {
+        if (value.isBlank()) {
+            return "";
+        }
+        if (value.endsWith(PARTICLE_EXTENSION)) {
+            return value.substring(0, value.length() - PARTICLE_EXTENSION.length());
+        }
+        return value;
+    }
+
+    private static String baseName(String value) {
+        if (value.isBlank()) {
+            return "";
+        }
+        int slash = value.lastIndexOf('/');
+        return slash >= 0 ? value.substring(slash + 1) : value;
+    }
+
+    private static final class TrieNode {
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private int minOrdinal = NONE;
+        private int terminalOrdinal = NONE;
+
+        private void insert(String value, int ordinal) {
+            TrieNode node = this;
+            for (int i = 0; i < value.length(); i++) {
+                node = node.children.computeIfAbsent(value.charAt(i), ignored -> new TrieNode());
+            }
+            node.terminalOrdinal = Math.min(node.terminalOrdinal, ordinal);
+        }
+
+        private void insertReversed(String value, int ordinal) {
+            TrieNode node = this;
+            node.minOrdinal = Math.min(node.minOrdinal, ordinal);
+            for (int i = value.length() - 1; i >= 0; i--) {
+                node = node.children.computeIfAbsent(value.charAt(i), ignored -> new TrieNode());
+                node.minOrdinal = Math.min(node.minOrdinal, ordinal);
+            }
+        }
+
+        private int minEndingWith(String suffix) {
+            TrieNode node = this;
+            for (int i = suffix.length() - 1; i >= 0 && node != null; i--) {
+                node = node.children.get(suffix.charAt(i));
+            }
+            return node == null ? NONE : node.minOrdinal;
+        }
+
+        private int minContainedIn(String text) {
+            int best = this.terminalOrdinal;
+            for (int start = 0; start < text.length(); start++) {
+                TrieNode node = this;
+                for (int i = start; i < text.length(); i++) {
+                    node = node.children.get(text.charAt(i));
+                    if (node == null) {
+                        break;
+                    }
+                    best = Math.min(best, node.terminalOrdinal);
+                }
+            }
+            return best;
+        }
+    }
+}
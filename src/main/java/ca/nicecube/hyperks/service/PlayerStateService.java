@@ -5,40 +5,115 @@ import ca.nicecube.hyperks.model.PlayerState;
 import com.hypixel.hytale.logger.HytaleLogger;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class PlayerStateService {
+    private static final long WRITER_SHUTDOWN_TIMEOUT_MS = 5000L;
+
     private final HytaleLogger logger;
     private final Path dataRoot;
     private final Path playersDirectory;
     private final JsonConfigStore configStore;
     private final Map<UUID, PlayerState> cache = new ConcurrentHashMap<>();
+    // Latest unsaved snapshot per player; a newer save replaces the queued one.
+    private final Map<UUID, PlayerState> pendingSaves = new ConcurrentHashMap<>();
+    // Held while a player's snapshot is being written, so a load never reads past an unfinished save.
+    private final Map<UUID, CountDownLatch> savesInFlight = new ConcurrentHashMap<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicLong queuedSaves = new AtomicLong();
+    private final AtomicLong coalescedSaves = new AtomicLong();
+    private final AtomicLong writtenSaves = new AtomicLong();
+    private final AtomicLong failedSaves = new AtomicLong();
+    private final AtomicLong cleanSkips = new AtomicLong();
+    private final Set<UUID> onlinePlayers = ConcurrentHashMap.newKeySet();
+    // Access-ordered; guarded by itself. Only profiles of players who are not online.
+    private final LinkedHashMap<UUID, Boolean> offlineProfiles = new LinkedHashMap<>(16, 0.75F, true);
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong cacheEvictions = new AtomicLong();
+    private volatile int maxOfflineProfiles = 256;
+    private final Map<UUID, CompletableFuture<PlayerState>> prefetches = new ConcurrentHashMap<>();
     private volatile PlayerStateStore stateStore;
+    private volatile int saveDelayMs;
+    // Serializes configure and close. Writers never take it, so it may be held while waiting on savesInFlight.
+    private final Object lifecycleLock = new Object();
+    // Guards swapping stateStore. Taken by writers on the JSON fallback, so nothing waits on a save while holding it.
+    private final Object storeLock = new Object();
+    private final Object writerLock = new Object();
+    private ScheduledExecutorService writer;
 
     public PlayerStateService(HytaleLogger logger, Path dataRoot, Path playersDirectory, JsonConfigStore configStore) {
+        this(logger, dataRoot, playersDirectory, configStore, new JsonPlayerStateStore(playersDirectory, configStore));
+    }
+
+    PlayerStateService(
+        HytaleLogger logger,
+        Path dataRoot,
+        Path playersDirectory,
+        JsonConfigStore configStore,
+        PlayerStateStore initialStore
+    ) {
         this.logger = logger;
         this.dataRoot = dataRoot;
         this.playersDirectory = playersDirectory;
         this.configStore = configStore;
-        this.stateStore = new JsonPlayerStateStore(this.playersDirectory, this.configStore);
+        this.stateStore = initialStore;
     }
 
-    public synchronized void configure(HyPerksConfig.PersistenceConfig persistenceConfig) {
-        PlayerStateStore nextStore = buildStore(persistenceConfig);
-        PlayerStateStore previous = this.stateStore;
-        this.stateStore = nextStore;
-        this.cache.clear();
-        closeQuietly(previous);
-        this.logger.atInfo().log("[HyPerks] Player persistence backend: %s", this.stateStore.describe());
+    public void configure(HyPerksConfig.PersistenceConfig persistenceConfig) {
+        synchronized (this.lifecycleLock) {
+            // Queued writes belong to the backend they were made against.
+            drainPendingSaves();
+            awaitSavesInFlight();
+            this.saveDelayMs = persistenceConfig == null ? 0 : persistenceConfig.getSaveDelayMs();
+            this.maxOfflineProfiles = persistenceConfig == null ? 256 : persistenceConfig.getMaxOfflineProfiles();
+            PlayerStateStore nextStore = buildStore(persistenceConfig);
+            PlayerStateStore previous;
+            synchronized (this.storeLock) {
+                previous = this.stateStore;
+                this.stateStore = nextStore;
+                this.cache.clear();
+                clearOfflineProfiles();
+            }
+            closeQuietly(previous);
+            this.logger.atInfo().log("[HyPerks] Player persistence backend: %s", nextStore.describe());
+        }
     }
 
     public PlayerState get(UUID playerUuid) {
-        return this.cache.computeIfAbsent(playerUuid, this::loadPlayerState);
+        PlayerState state = this.cache.get(playerUuid);
+        if (state != null) {
+            this.cacheHits.incrementAndGet();
+        } else {
+            this.cacheMisses.incrementAndGet();
+            // Outside computeIfAbsent: a save of this player may be in flight and must land first.
+            writePending(playerUuid);
+            state = this.cache.computeIfAbsent(playerUuid, this::loadPlayerState);
+        }
+
+        if (!this.onlinePlayers.contains(playerUuid)) {
+            touchOfflineProfile(playerUuid);
+        }
+        return state;
     }
 
     public PlayerState refresh(UUID playerUuid) {
+        writePending(playerUuid);
         PlayerState refreshed = loadPlayerState(playerUuid);
         this.cache.put(playerUuid, refreshed);
         return refreshed;
@@ -46,6 +121,55 @@ public class PlayerStateService {
 
     public void invalidate(UUID playerUuid) {
         this.cache.remove(playerUuid);
+        forgetOfflineProfile(playerUuid);
+    }
+
+    private void markOnline(UUID playerUuid) {
+        this.onlinePlayers.add(playerUuid);
+        forgetOfflineProfile(playerUuid);
+    }
+
+    public CompletableFuture<PlayerState> prefetch(UUID playerUuid) {
+        markOnline(playerUuid);
+        return this.prefetches.computeIfAbsent(playerUuid, ignored -> {
+            // Connect reloads from the store, as other servers may share an SQL backend.
+            this.cache.remove(playerUuid);
+            return CompletableFuture.supplyAsync(() -> {
+                writePending(playerUuid);
+                return loadPlayerState(playerUuid);
+            }, writer());
+        });
+    }
+
+    public PlayerState completePrefetch(UUID playerUuid, CompletableFuture<PlayerState> prefetch, PlayerState loaded) {
+        if (!this.prefetches.remove(playerUuid, prefetch)) {
+            return null;
+        }
+        // prefetch() dropped the cached profile, so one cached now was read or edited after the load
+        // started, and may already be saved: it is never older than what the prefetch read.
+        return this.cache.computeIfAbsent(playerUuid, ignored -> loaded);
+    }
+
+    public void abandonPrefetch(UUID playerUuid, CompletableFuture<PlayerState> prefetch) {
+        this.prefetches.remove(playerUuid, prefetch);
+    }
+
+    public boolean isLoading(UUID playerUuid) {
+        return this.prefetches.containsKey(playerUuid);
+    }
+
+    public int getLoadingProfileCount() {
+        return this.prefetches.size();
+    }
+
+    public void release(UUID playerUuid) {
+        this.onlinePlayers.remove(playerUuid);
+        this.prefetches.remove(playerUuid);
+        PlayerState state = this.cache.get(playerUuid);
+        if (state == null && !this.pendingSaves.containsKey(playerUuid)) {
+            return;
+        }
+        writer().execute(() -> evict(playerUuid, state));
     }
 
     public void save(UUID playerUuid) {
@@ -54,25 +178,74 @@ public class PlayerStateService {
             return;
         }
 
-        try {
-            state.normalize();
-            this.stateStore.save(playerUuid, state);
-        } catch (Exception ex) {
-            switchToJsonFallback("save", ex);
-            this.stateStore.save(playerUuid, state);
+        state.normalize();
+        if (!state.isDirty()) {
+            this.cleanSkips.incrementAndGet();
+            return;
         }
+        if (this.saveDelayMs <= 0) {
+            writeNow(playerUuid, state);
+            return;
+        }
+
+        this.queuedSaves.incrementAndGet();
+        if (this.pendingSaves.put(playerUuid, state.copy()) != null) {
+            this.coalescedSaves.incrementAndGet();
+        }
+        scheduleDrain();
     }
 
     public void flush() {
-        for (UUID uuid : this.cache.keySet()) {
-            save(uuid);
+        long startedAt = System.nanoTime();
+        for (Map.Entry<UUID, PlayerState> entry : this.cache.entrySet()) {
+            PlayerState state = entry.getValue();
+            state.normalize();
+            if (!state.isDirty()) {
+                this.cleanSkips.incrementAndGet();
+                continue;
+            }
+            this.pendingSaves.put(entry.getKey(), state.copy());
         }
+        int written = drainPendingSaves();
         this.stateStore.flush();
-        this.logger.atInfo().log("[HyPerks] Saved %s player profile(s).", this.cache.size());
+        this.logger.atInfo().log(
+            "[HyPerks] Saved %s player profile(s) in %sms.",
+            written,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)
+        );
+    }
+
+    public void close() {
+        synchronized (this.lifecycleLock) {
+            shutdownWriter();
+            drainPendingSaves();
+            awaitSavesInFlight();
+            closeQuietly(this.stateStore);
+        }
     }
 
-    public synchronized void close() {
-        closeQuietly(this.stateStore);
+    private void shutdownWriter() {
+        ScheduledExecutorService current;
+        synchronized (this.writerLock) {
+            current = this.writer;
+            this.writer = null;
+        }
+        if (current != null) {
+            // Queued evictions, prefetches and delayed drains still run; only a writer stuck on the store is cut off.
+            current.shutdown();
+            try {
+                if (!current.awaitTermination(WRITER_SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    this.logger.atWarning().log(
+                        "[HyPerks] Player state writer did not finish within %sms. Saving what is still queued.",
+                        WRITER_SHUTDOWN_TIMEOUT_MS
+                    );
+                    current.shutdownNow();
+                }
+            } catch (InterruptedException ex) {
+                current.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     public int getCachedProfileCount() {
@@ -83,27 +256,353 @@ public class PlayerStateService {
         return this.stateStore.describe();
     }
 
+    public int getSaveDelayMs() {
+        return this.saveDelayMs;
+    }
+
+    public int getPendingSaveCount() {
+        return this.pendingSaves.size();
+    }
+
+    public long getQueuedSaves() {
+        return this.queuedSaves.get();
+    }
+
+    public long getCoalescedSaves() {
+        return this.coalescedSaves.get();
+    }
+
+    public long getWrittenSaves() {
+        return this.writtenSaves.get();
+    }
+
+    public long getFailedSaves() {
+        return this.failedSaves.get();
+    }
+
+    public long getCleanSkips() {
+        return this.cleanSkips.get();
+    }
+
+    public int getOnlineProfileCount() {
+        return this.onlinePlayers.size();
+    }
+
+    public int getOfflineProfileCount() {
+        synchronized (this.offlineProfiles) {
+            return this.offlineProfiles.size();
+        }
+    }
+
+    public int getMaxOfflineProfiles() {
+        return this.maxOfflineProfiles;
+    }
+
+    public long getCacheHits() {
+        return this.cacheHits.get();
+    }
+
+    public long getCacheMisses() {
+        return this.cacheMisses.get();
+    }
+
+    public long getCacheEvictions() {
+        return this.cacheEvictions.get();
+    }
+
+    public boolean isLogStore() {
+        return this.stateStore instanceof LogPlayerStateStore;
+    }
+
+    public String getStoreMetrics() {
+        String metrics = this.stateStore.describeMetrics();
+        return metrics == null ? "" : metrics;
+    }
+
     private PlayerState loadPlayerState(UUID playerUuid) {
+        PlayerStateStore store = this.stateStore;
+        PlayerState loaded;
         try {
-            return this.stateStore.load(playerUuid);
+            loaded = store.load(playerUuid);
         } catch (Exception ex) {
-            switchToJsonFallback("load", ex);
-            return this.stateStore.load(playerUuid);
+            switchToJsonFallback(store, "load", ex);
+            loaded = this.stateStore.load(playerUuid);
         }
+        loaded.markSaved();
+        return loaded;
     }
 
-    private synchronized void switchToJsonFallback(String operation, Exception cause) {
-        if (this.stateStore instanceof JsonPlayerStateStore) {
+    private void scheduleDrain() {
+        if (!this.drainScheduled.compareAndSet(false, true)) {
             return;
         }
+        try {
+            writer().schedule(() -> {
+                this.drainScheduled.set(false);
+                drainPendingSaves();
+            }, this.saveDelayMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ex) {
+            this.drainScheduled.set(false);
+            drainPendingSaves();
+        }
+    }
+
+    private ScheduledExecutorService writer() {
+        synchronized (this.writerLock) {
+            if (this.writer == null) {
+                this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "HyPerks-PlayerState-Writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return this.writer;
+        }
+    }
+
+    // Store I/O runs outside the service monitor; only the players in the batch are held in flight.
+    private int drainPendingSaves() {
+        Map<UUID, PlayerState> batch = new LinkedHashMap<>();
+        Map<UUID, CountDownLatch> claims = new HashMap<>();
+        List<UUID> contended = null;
+        for (UUID playerUuid : this.pendingSaves.keySet()) {
+            CountDownLatch claim = new CountDownLatch(1);
+            if (this.savesInFlight.putIfAbsent(playerUuid, claim) != null) {
+                if (contended == null) {
+                    contended = new ArrayList<>();
+                }
+                contended.add(playerUuid);
+                continue;
+            }
+            PlayerState state = this.pendingSaves.remove(playerUuid);
+            if (state == null) {
+                releaseSave(playerUuid, claim);
+                continue;
+            }
+            batch.put(playerUuid, state);
+            claims.put(playerUuid, claim);
+        }
+
+        int written = 0;
+        try {
+            written = writeBatch(batch);
+        } finally {
+            for (Map.Entry<UUID, CountDownLatch> claim : claims.entrySet()) {
+                releaseSave(claim.getKey(), claim.getValue());
+            }
+        }
+
+        // Claimed by a load or another drain; wait for it one player at a time so no batch is held while waiting.
+        if (contended != null) {
+            for (UUID playerUuid : contended) {
+                if (writePending(playerUuid)) {
+                    written++;
+                }
+            }
+        }
+        return written;
+    }
+
+    private int writeBatch(Map<UUID, PlayerState> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            PlayerStateStore store = this.stateStore;
+            try {
+                store.saveAll(batch);
+            } catch (Exception ex) {
+                switchToJsonFallback(store, "save", ex);
+                this.stateStore.saveAll(batch);
+            }
+            this.writtenSaves.addAndGet(batch.size());
+            for (Map.Entry<UUID, PlayerState> entry : batch.entrySet()) {
+                markSaved(entry.getKey(), entry.getValue());
+            }
+            return batch.size();
+        } catch (Exception ex) {
+            this.failedSaves.addAndGet(batch.size());
+            this.logger.atWarning().withCause(ex).log("[HyPerks] Could not save %s player profile(s).", batch.size());
+            // Put the snapshots back for the next drain unless a newer save has already replaced them.
+            for (Map.Entry<UUID, PlayerState> entry : batch.entrySet()) {
+                this.pendingSaves.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            return 0;
+        }
+    }
+
+    // A load inside the save delay must not read the previous profile back.
+    private boolean writePending(UUID playerUuid) {
+        if (!this.pendingSaves.containsKey(playerUuid) && !this.savesInFlight.containsKey(playerUuid)) {
+            return false;
+        }
+
+        CountDownLatch claim = claimSave(playerUuid);
+        try {
+            PlayerState state = this.pendingSaves.remove(playerUuid);
+            if (state == null) {
+                return false;
+            }
+            if (writeState(playerUuid, state)) {
+                return true;
+            }
+            this.pendingSaves.putIfAbsent(playerUuid, state);
+            return false;
+        } finally {
+            releaseSave(playerUuid, claim);
+        }
+    }
+
+    private void writeNow(UUID playerUuid, PlayerState state) {
+        CountDownLatch claim = claimSave(playerUuid);
+        try {
+            this.pendingSaves.remove(playerUuid);
+            writeState(playerUuid, state);
+        } finally {
+            releaseSave(playerUuid, claim);
+        }
+    }
+
+    private boolean writeState(UUID playerUuid, PlayerState state) {
+        try {
+            PlayerStateStore store = this.stateStore;
+            try {
+                store.save(playerUuid, state);
+            } catch (Exception ex) {
+                switchToJsonFallback(store, "save", ex);
+                this.stateStore.save(playerUuid, state);
+            }
+            this.writtenSaves.incrementAndGet();
+            markSaved(playerUuid, state);
+            return true;
+        } catch (Exception ex) {
+            this.failedSaves.incrementAndGet();
+            this.logger.atWarning().withCause(ex).log("[HyPerks] Could not save player profile %s.", playerUuid);
+            return false;
+        }
+    }
+
+    // Waits for any write of this player already in flight, then holds the player until releaseSave.
+    private CountDownLatch claimSave(UUID playerUuid) {
+        CountDownLatch claim = new CountDownLatch(1);
+        while (true) {
+            CountDownLatch inFlight = this.savesInFlight.putIfAbsent(playerUuid, claim);
+            if (inFlight == null) {
+                return claim;
+            }
+            awaitQuietly(inFlight);
+        }
+    }
+
+    private void releaseSave(UUID playerUuid, CountDownLatch claim) {
+        this.savesInFlight.remove(playerUuid, claim);
+        claim.countDown();
+    }
+
+    private void awaitSavesInFlight() {
+        for (CountDownLatch inFlight : this.savesInFlight.values()) {
+            awaitQuietly(inFlight);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void touchOfflineProfile(UUID playerUuid) {
+        List<UUID> overflow = null;
+        synchronized (this.offlineProfiles) {
+            this.offlineProfiles.put(playerUuid, Boolean.TRUE);
+            Iterator<UUID> eldest = this.offlineProfiles.keySet().iterator();
+            while (this.offlineProfiles.size() > this.maxOfflineProfiles && eldest.hasNext()) {
+                UUID evicted = eldest.next();
+                eldest.remove();
+                if (overflow == null) {
+                    overflow = new ArrayList<>();
+                }
+                overflow.add(evicted);
+            }
+        }
+
+        if (overflow == null) {
+            return;
+        }
+        for (UUID evicted : overflow) {
+            PlayerState state = this.cache.get(evicted);
+            if (state != null) {
+                writer().execute(() -> evict(evicted, state));
+            }
+        }
+    }
+
+    private void forgetOfflineProfile(UUID playerUuid) {
+        synchronized (this.offlineProfiles) {
+            this.offlineProfiles.remove(playerUuid);
+        }
+    }
+
+    private void clearOfflineProfiles() {
+        synchronized (this.offlineProfiles) {
+            this.offlineProfiles.clear();
+        }
+    }
+
+    // Runs on the writer, so it is ordered after any write-behind work already queued.
+    private void evict(UUID playerUuid, PlayerState state) {
+        writePending(playerUuid);
+        if (state == null || this.onlinePlayers.contains(playerUuid)) {
+            return;
+        }
+
+        state.normalize();
+        if (state.isDirty()) {
+            writeNow(playerUuid, state.copy());
+        }
+        // A failed write keeps the profile dirty and cached, so the next flush retries it.
+        if (!state.isDirty() && this.cache.remove(playerUuid, state)) {
+            forgetOfflineProfile(playerUuid);
+            this.cacheEvictions.incrementAndGet();
+        }
+    }
+
+    private void markSaved(UUID playerUuid, PlayerState written) {
+        written.markSaved();
+        PlayerState live = this.cache.get(playerUuid);
+        if (live != null && live != written) {
+            // Edits made after the snapshot was taken keep the live profile dirty.
+            live.markSaved(written.getVersion());
+        }
+    }
+
+    // Swaps out only the store that failed; a failure on a store that configure already replaced is retried as is.
+    private void switchToJsonFallback(PlayerStateStore failed, String operation, Exception cause) {
+        synchronized (this.storeLock) {
+            if (this.stateStore != failed || failed instanceof JsonPlayerStateStore) {
+                return;
+            }
+            this.stateStore = new JsonPlayerStateStore(this.playersDirectory, this.configStore);
+            this.cache.clear();
+            clearOfflineProfiles();
+        }
 
         this.logger.atWarning().withCause(cause).log(
-            "[HyPerks] SQL persistence %s failed. Falling back to JSON store.",
-            operation
+            "[HyPerks] Persistence %s failed on %s. Falling back to JSON store.",
+            operation,
+            failed.describe()
         );
-        closeQuietly(this.stateStore);
-        this.stateStore = new JsonPlayerStateStore(this.playersDirectory, this.configStore);
-        this.cache.clear();
+        closeQuietly(failed);
     }
 
     private PlayerStateStore buildStore(HyPerksConfig.PersistenceConfig persistenceConfig) {
@@ -111,6 +610,17 @@ public class PlayerStateService {
             return new JsonPlayerStateStore(this.playersDirectory, this.configStore);
         }
 
+        if ("log".equals(persistenceConfig.getMode())) {
+            try {
+                return LogPlayerStateStore.open(this.logger, this.dataRoot.resolve("player-log"));
+            } catch (Exception ex) {
+                this.logger.atWarning().withCause(ex).log(
+                    "[HyPerks] Could not open the player state log. JSON fallback will be used."
+                );
+                return new JsonPlayerStateStore(this.playersDirectory, this.configStore);
+            }
+        }
+
         try {
             return SqlPlayerStateStore.create(this.logger, this.dataRoot, persistenceConfig);
         } catch (Exception ex) {
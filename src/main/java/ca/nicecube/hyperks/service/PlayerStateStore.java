@@ -2,6 +2,7 @@ package ca.nicecube.hyperks.service;
 
 import ca.nicecube.hyperks.model.PlayerState;
 
+import java.util.Map;
 import java.util.UUID;
 
 public interface PlayerStateStore {
@@ -9,11 +10,21 @@ public interface PlayerStateStore {
 
     void save(UUID playerUuid, PlayerState state);
 
+    default void saveAll(Map<UUID, PlayerState> states) {
+        for (Map.Entry<UUID, PlayerState> entry : states.entrySet()) {
+            save(entry.getKey(), entry.getValue());
+        }
+    }
+
     default void flush() {
     }
 
     default void close() {
     }
 
+    default String describeMetrics() {
+        return "";
+    }
+
     String describe();
 }
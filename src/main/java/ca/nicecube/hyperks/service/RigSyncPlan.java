@@ -0,0 +1,131 @@
+package ca.nicecube.hyperks.service;
+
+import java.util.Arrays;
+
+// Per-world scratch buffers for the rig sync: sync order and world budget selection.
+// Buffers only grow, so a steady-state tick allocates nothing. Only touched on the world thread.
+final class RigSyncPlan {
+    private int[] partOffsets = new int[0];
+    private int[] syncOrder = new int[0];
+    private double[] requestPriorities = new double[0];
+    private double[] partPriorities = new double[0];
+    private double[] ranked = new double[0];
+    private boolean[] keep = new boolean[0];
+
+    int[] partOffsets(int size) {
+        if (this.partOffsets.length < size) {
+            this.partOffsets = new int[grow(this.partOffsets.length, size)];
+        }
+        return this.partOffsets;
+    }
+
+    double[] requestPriorities(int size) {
+        if (this.requestPriorities.length < size) {
+            this.requestPriorities = new double[grow(this.requestPriorities.length, size)];
+        }
+        return this.requestPriorities;
+    }
+
+    double[] partPriorities(int size) {
+        if (this.partPriorities.length < size) {
+            this.partPriorities = new double[grow(this.partPriorities.length, size)];
+        }
+        return this.partPriorities;
+    }
+
+    // Request indexes by descending requestPriorities; equal priorities keep request order.
+    int[] syncOrder(int requestCount) {
+        if (this.syncOrder.length < requestCount) {
+            this.syncOrder = new int[grow(this.syncOrder.length, requestCount)];
+        }
+
+        int[] order = this.syncOrder;
+        double[] priorities = this.requestPriorities;
+        for (int requestIndex = 0; requestIndex < requestCount; requestIndex++) {
+            int insertAt = requestIndex;
+            double priority = priorities[requestIndex];
+            while (insertAt > 0 && priorities[order[insertAt - 1]] < priority) {
+                order[insertAt] = order[insertAt - 1];
+                insertAt--;
+            }
+            order[insertAt] = requestIndex;
+        }
+        return order;
+    }
+
+    // Keeps the `budget` highest partPriorities; equal priorities at the cut go to the earliest parts.
+    boolean[] selectWithinBudget(int totalParts, int budget) {
+        if (this.keep.length < totalParts) {
+            this.keep = new boolean[grow(this.keep.length, totalParts)];
+        }
+
+        boolean[] kept = this.keep;
+        if (totalParts <= budget) {
+            Arrays.fill(kept, 0, totalParts, true);
+            return kept;
+        }
+        if (budget <= 0) {
+            Arrays.fill(kept, 0, totalParts, false);
+            return kept;
+        }
+
+        double[] priorities = this.partPriorities;
+        if (this.ranked.length < totalParts) {
+            this.ranked = new double[grow(this.ranked.length, totalParts)];
+        }
+        System.arraycopy(priorities, 0, this.ranked, 0, totalParts);
+        double threshold = select(this.ranked, totalParts, totalParts - budget);
+        int tiesAllowed = budget;
+        for (int i = 0; i < totalParts; i++) {
+            if (priorities[i] > threshold) {
+                tiesAllowed--;
+            }
+        }
+
+        for (int i = 0; i < totalParts; i++) {
+            kept[i] = priorities[i] > threshold || (priorities[i] == threshold && tiesAllowed-- > 0);
+        }
+        return kept;
+    }
+
+    // Value that would sit at `rank` if values[0, size) were sorted ascending. Reorders values in place;
+    // Arrays.sort is avoided because it allocates a run buffer on partly ordered input.
+    private static double select(double[] values, int size, int rank) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            double pivot = median(values[low], values[(low + high) >>> 1], values[high]);
+            int lessEnd = low;
+            int greaterStart = high;
+            int i = low;
+            while (i <= greaterStart) {
+                double value = values[i];
+                if (value < pivot) {
+                    values[i++] = values[lessEnd];
+                    values[lessEnd++] = value;
+                } else if (value > pivot) {
+                    values[i] = values[greaterStart];
+                    values[greaterStart--] = value;
+                } else {
+                    i++;
+                }
+            }
+            if (rank < lessEnd) {
+                high = lessEnd - 1;
+            } else if (rank > greaterStart) {
+                low = greaterStart + 1;
+            } else {
+                return pivot;
+            }
+        }
+        return values[rank];
+    }
+
+    private static double median(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static int grow(int current, int required) {
+        return Math.max(required, current * 2);
+    }
+}
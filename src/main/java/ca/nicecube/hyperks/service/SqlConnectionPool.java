@@ -0,0 +1,290 @@
+package ca.nicecube.hyperks.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class SqlConnectionPool {
+    private static final long VALIDATION_INTERVAL_MS = 30_000L;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final List<String> initStatements;
+    private final ArrayDeque<Lease> idle = new ArrayDeque<>();
+    private int openCount;
+    private boolean closed;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    SqlConnectionPool(
+        String jdbcUrl,
+        String username,
+        String password,
+        int maxSize,
+        int connectTimeoutSeconds,
+        long idleTimeoutMs,
+        List<String> initStatements
+    ) {
+        this.jdbcUrl = jdbcUrl;
+        this.username = username == null ? "" : username;
+        this.password = password == null ? "" : password;
+        this.maxSize = Math.max(1, maxSize);
+        this.borrowTimeoutMs = TimeUnit.SECONDS.toMillis(Math.max(1, connectTimeoutSeconds));
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.initStatements = initStatements == null ? List.of() : List.copyOf(initStatements);
+        // Process-wide driver setting: set once here instead of on every connection.
+        DriverManager.setLoginTimeout(Math.max(1, connectTimeoutSeconds));
+    }
+
+    Lease borrow() throws SQLException {
+        long deadline = System.currentTimeMillis() + this.borrowTimeoutMs;
+        boolean waited = false;
+        while (true) {
+            Lease candidate = null;
+            boolean mayOpen = false;
+            List<Lease> expired;
+            synchronized (this) {
+                if (this.closed) {
+                    throw new SQLException("Connection pool is closed.");
+                }
+
+                expired = evictIdleLocked(System.currentTimeMillis());
+                if (!this.idle.isEmpty()) {
+                    candidate = this.idle.pollLast();
+                } else if (this.openCount < this.maxSize) {
+                    this.openCount++;
+                    mayOpen = true;
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0L) {
+                        throw new SQLException("Timed out waiting for a pooled SQL connection (max " + this.maxSize + ").");
+                    }
+                    if (!waited) {
+                        waited = true;
+                        this.waits.incrementAndGet();
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a pooled SQL connection.", ex);
+                    }
+                    continue;
+                }
+            }
+            // A driver close can block on the network; other borrowers and returns must not wait behind it.
+            closeAll(expired);
+
+            if (mayOpen) {
+                try {
+                    Lease opened = new Lease(this, openPhysical());
+                    this.created.incrementAndGet();
+                    this.borrowed.incrementAndGet();
+                    return opened;
+                } catch (SQLException | RuntimeException ex) {
+                    releaseSlot();
+                    throw ex;
+                }
+            }
+
+            if (isUsable(candidate)) {
+                this.borrowed.incrementAndGet();
+                return candidate;
+            }
+            this.invalidated.incrementAndGet();
+            closePhysical(candidate);
+            releaseSlot();
+        }
+    }
+
+    void close() {
+        List<Lease> idleLeases;
+        synchronized (this) {
+            this.closed = true;
+            idleLeases = new ArrayList<>(this.idle);
+            this.openCount -= this.idle.size();
+            this.idle.clear();
+            notifyAll();
+        }
+        closeAll(idleLeases);
+    }
+
+    synchronized String describeMetrics() {
+        return String.format(
+            "open=%d/%d, idle=%d, created=%d, borrowed=%d, waits=%d, evicted=%d, invalid=%d, statements=%d hit/%d miss",
+            this.openCount,
+            this.maxSize,
+            this.idle.size(),
+            this.created.get(),
+            this.borrowed.get(),
+            this.waits.get(),
+            this.evicted.get(),
+            this.invalidated.get(),
+            this.statementHits.get(),
+            this.statementMisses.get()
+        );
+    }
+
+    private void giveBack(Lease lease) {
+        boolean discard = lease.broken;
+        synchronized (this) {
+            if (!discard && !this.closed) {
+                lease.idleSinceMs = System.currentTimeMillis();
+                this.idle.addLast(lease);
+                notifyAll();
+                return;
+            }
+        }
+        if (discard) {
+            this.invalidated.incrementAndGet();
+        }
+        closePhysical(lease);
+        releaseSlot();
+    }
+
+    private synchronized void releaseSlot() {
+        this.openCount--;
+        notifyAll();
+    }
+
+    // Unlinks expired connections and frees their slots; the caller closes them once it drops the lock.
+    private List<Lease> evictIdleLocked(long nowMs) {
+        if (this.idleTimeoutMs <= 0L) {
+            return List.of();
+        }
+        List<Lease> expired = List.of();
+        // Oldest connections sit at the head; the most recently used one is reused first.
+        for (Iterator<Lease> iterator = this.idle.iterator(); iterator.hasNext(); ) {
+            Lease lease = iterator.next();
+            if ((nowMs - lease.idleSinceMs) < this.idleTimeoutMs) {
+                break;
+            }
+            iterator.remove();
+            this.openCount--;
+            this.evicted.incrementAndGet();
+            if (expired.isEmpty()) {
+                expired = new ArrayList<>();
+            }
+            expired.add(lease);
+        }
+        return expired;
+    }
+
+    private static void closeAll(List<Lease> leases) {
+        for (Lease lease : leases) {
+            closePhysical(lease);
+        }
+    }
+
+    private boolean isUsable(Lease lease) {
+        try {
+            if (lease.connection.isClosed()) {
+                return false;
+            }
+            if ((System.currentTimeMillis() - lease.idleSinceMs) < VALIDATION_INTERVAL_MS) {
+                return true;
+            }
+            return lease.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection connection = this.username.isBlank()
+            ? DriverManager.getConnection(this.jdbcUrl)
+            : DriverManager.getConnection(this.jdbcUrl, this.username, this.password);
+        if (this.initStatements.isEmpty()) {
+            return connection;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : this.initStatements) {
+                statement.execute(sql);
+            }
+        } catch (SQLException ex) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+            }
+            throw ex;
+        }
+        return connection;
+    }
+
+    private static void closePhysical(Lease lease) {
+        for (PreparedStatement statement : lease.statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        lease.statements.clear();
+        try {
+            lease.connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    static final class Lease implements AutoCloseable {
+        private final SqlConnectionPool pool;
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private long idleSinceMs;
+        private boolean broken;
+
+        private Lease(SqlConnectionPool pool, Connection connection) {
+            this.pool = pool;
+            this.connection = connection;
+            this.idleSinceMs = System.currentTimeMillis();
+        }
+
+        Connection connection() {
+            return this.connection;
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = this.statements.get(sql);
+            if (statement != null && !statement.isClosed()) {
+                this.pool.statementHits.incrementAndGet();
+                statement.clearParameters();
+                return statement;
+            }
+
+            this.pool.statementMisses.incrementAndGet();
+            statement = this.connection.prepareStatement(sql);
+            this.statements.put(sql, statement);
+            return statement;
+        }
+
+        void invalidate() {
+            this.broken = true;
+        }
+
+        @Override
+        public void close() {
+            this.pool.giveBack(this);
+        }
+    }
+}
@@ -2,16 +2,12 @@ package ca.nicecube.hyperks.service;
 
 import ca.nicecube.hyperks.config.HyPerksConfig;
 import ca.nicecube.hyperks.model.PlayerState;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import ca.nicecube.hyperks.model.PlayerStateTypeAdapter;
 import com.hypixel.hytale.logger.HytaleLogger;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -20,19 +16,39 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class SqlPlayerStateStore implements PlayerStateStore {
-    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+    // journal_mode=WAL is persistent in the database file; the writer sets it on every open anyway.
+    private static final List<String> SQLITE_WRITER_PRAGMAS = List.of(
+        "PRAGMA journal_mode=WAL",
+        "PRAGMA synchronous=NORMAL",
+        "PRAGMA busy_timeout=5000"
+    );
+    private static final List<String> SQLITE_READER_PRAGMAS = List.of(
+        "PRAGMA busy_timeout=5000",
+        "PRAGMA query_only=ON"
+    );
 
     private final HytaleLogger logger;
     private final String mode;
     private final String jdbcUrl;
-    private final String username;
-    private final String password;
     private final String tableName;
-    private final int connectTimeoutSeconds;
     private final boolean autoCreateTable;
+    private final SqlConnectionPool pool;
+    // SQLite: one long-lived connection driven by one thread. MySQL: the shared pool, written inline.
+    private final SqlConnectionPool writerPool;
+    private final ExecutorService writer;
+    private final String selectSql;
+    private final String upsertSql;
+    private final int batchSize;
+    private final int connectTimeoutSeconds;
 
     private SqlPlayerStateStore(
         HytaleLogger logger,
@@ -42,16 +58,41 @@ public class SqlPlayerStateStore implements PlayerStateStore {
         String password,
         String tableName,
         int connectTimeoutSeconds,
-        boolean autoCreateTable
+        boolean autoCreateTable,
+        int poolMaxSize,
+        long poolIdleTimeoutMs,
+        int batchSize
     ) {
         this.logger = logger;
         this.mode = mode;
         this.jdbcUrl = jdbcUrl;
-        this.username = username;
-        this.password = password;
         this.tableName = tableName;
-        this.connectTimeoutSeconds = connectTimeoutSeconds;
         this.autoCreateTable = autoCreateTable;
+        if (isMysql()) {
+            this.pool = new SqlConnectionPool(jdbcUrl, username, password, poolMaxSize, connectTimeoutSeconds, poolIdleTimeoutMs, List.of());
+            this.writerPool = this.pool;
+            this.writer = null;
+        } else {
+            this.pool = new SqlConnectionPool(
+                jdbcUrl,
+                username,
+                password,
+                poolMaxSize,
+                connectTimeoutSeconds,
+                poolIdleTimeoutMs,
+                SQLITE_READER_PRAGMAS
+            );
+            this.writerPool = new SqlConnectionPool(jdbcUrl, username, password, 1, connectTimeoutSeconds, 0L, SQLITE_WRITER_PRAGMAS);
+            this.writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "HyPerks-SQLite-Writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.selectSql = "SELECT locale, active_cosmetics FROM " + tableName + " WHERE player_uuid = ?";
+        this.upsertSql = upsertStatement();
+        this.batchSize = Math.max(1, batchSize);
+        this.connectTimeoutSeconds = connectTimeoutSeconds;
     }
 
     public static SqlPlayerStateStore create(
@@ -72,7 +113,10 @@ public class SqlPlayerStateStore implements PlayerStateStore {
             config.getPassword(),
             tableName,
             timeoutSeconds,
-            config.isAutoCreateTable()
+            config.isAutoCreateTable(),
+            config.getPoolMaxSize(),
+            config.getPoolIdleTimeoutMs(),
+            config.getBatchSize()
         );
         store.initialize();
         return store;
@@ -80,23 +124,21 @@ public class SqlPlayerStateStore implements PlayerStateStore {
 
     @Override
     public PlayerState load(UUID playerUuid) {
-        PlayerState state = PlayerState.defaults();
-        String sql = "SELECT locale, active_cosmetics FROM " + this.tableName + " WHERE player_uuid = ?";
-
-        try (Connection connection = openConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+        try (SqlConnectionPool.Lease lease = this.pool.borrow()) {
+            PreparedStatement statement = prepare(lease, this.selectSql);
             statement.setString(1, playerUuid.toString());
 
             try (ResultSet resultSet = statement.executeQuery()) {
                 if (!resultSet.next()) {
-                    state.normalize();
-                    return state;
+                    PlayerState defaults = PlayerState.defaults();
+                    defaults.normalize();
+                    return defaults;
                 }
 
-                state.setLocale(resultSet.getString("locale"));
-                applyActiveCosmetics(resultSet.getString("active_cosmetics"), state);
-                state.normalize();
-                return state;
+                return readRow(resultSet.getString("locale"), resultSet.getString("active_cosmetics"));
+            } catch (SQLException ex) {
+                lease.invalidate();
+                throw ex;
             }
         } catch (SQLException ex) {
             throw new IllegalStateException("Failed to load player state for " + playerUuid + " from SQL store.", ex);
@@ -105,35 +147,123 @@ public class SqlPlayerStateStore implements PlayerStateStore {
 
     @Override
     public void save(UUID playerUuid, PlayerState state) {
-        state.normalize();
-        String activeJson = GSON.toJson(state.getStorageActiveCosmetics());
+        String activeJson = storageJson(state);
         long updatedAt = Instant.now().toEpochMilli();
+        onWriter(() -> saveRow(playerUuid, state.getLocale(), activeJson, updatedAt));
+    }
 
-        String sql = upsertStatement();
-        try (Connection connection = openConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+    private void saveRow(UUID playerUuid, String locale, String activeJson, long updatedAt) {
+        try (SqlConnectionPool.Lease lease = this.writerPool.borrow()) {
+            PreparedStatement statement = prepare(lease, this.upsertSql);
             statement.setString(1, playerUuid.toString());
-            statement.setString(2, state.getLocale());
+            statement.setString(2, locale);
             statement.setString(3, activeJson);
             statement.setLong(4, updatedAt);
 
             if (isMysql()) {
-                statement.setString(5, state.getLocale());
+                statement.setString(5, locale);
                 statement.setString(6, activeJson);
                 statement.setLong(7, updatedAt);
             }
 
-            statement.executeUpdate();
+            try {
+                statement.executeUpdate();
+            } catch (SQLException ex) {
+                lease.invalidate();
+                throw ex;
+            }
         } catch (SQLException ex) {
             throw new IllegalStateException("Failed to save player state for " + playerUuid + " to SQL store.", ex);
         }
     }
 
+    @Override
+    public void saveAll(Map<UUID, PlayerState> states) {
+        if (states.isEmpty()) {
+            return;
+        }
+        if (states.size() == 1) {
+            Map.Entry<UUID, PlayerState> only = states.entrySet().iterator().next();
+            save(only.getKey(), only.getValue());
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(states.size());
+        long updatedAt = Instant.now().toEpochMilli();
+        for (Map.Entry<UUID, PlayerState> entry : states.entrySet()) {
+            PlayerState state = entry.getValue();
+            String activeJson = storageJson(state);
+            rows.add(new Object[] {
+                entry.getKey().toString(),
+                state.getLocale(),
+                activeJson,
+                updatedAt
+            });
+        }
+        onWriter(() -> saveRows(rows));
+    }
+
+    private void saveRows(List<Object[]> rows) {
+        try (SqlConnectionPool.Lease lease = this.writerPool.borrow()) {
+            Connection connection = lease.connection();
+            try {
+                connection.setAutoCommit(false);
+                if (isMysql()) {
+                    upsertMultiRow(lease, rows);
+                } else {
+                    upsertBatched(lease, rows);
+                }
+                connection.setAutoCommit(true);
+            } catch (SQLException ex) {
+                lease.invalidate();
+                try {
+                    connection.rollback();
+                } catch (SQLException ignored) {
+                }
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to save " + rows.size() + " player states to SQL store.", ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.writer != null) {
+            this.writer.shutdown();
+            try {
+                this.writer.awaitTermination(this.connectTimeoutSeconds, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.pool.close();
+        if (this.writerPool != this.pool) {
+            this.writerPool.close();
+        }
+    }
+
+    @Override
+    public String describeMetrics() {
+        if (this.writerPool == this.pool) {
+            return this.pool.describeMetrics();
+        }
+        return "readers[" + this.pool.describeMetrics() + "], writer[" + this.writerPool.describeMetrics() + "]";
+    }
+
     @Override
     public String describe() {
         return this.mode + ":" + this.jdbcUrl + " (table=" + this.tableName + ")";
     }
 
+    SqlConnectionPool readerPool() {
+        return this.pool;
+    }
+
+    SqlConnectionPool writerPool() {
+        return this.writerPool;
+    }
+
     private void initialize() {
         loadDriver();
         if (!this.autoCreateTable) {
@@ -141,18 +271,40 @@ public class SqlPlayerStateStore implements PlayerStateStore {
             return;
         }
 
-        try (Connection connection = openConnection();
-             Statement statement = connection.createStatement()) {
-            statement.execute(
-                "CREATE TABLE IF NOT EXISTS " + this.tableName + " (" +
-                    "player_uuid VARCHAR(36) PRIMARY KEY, " +
-                    "locale VARCHAR(16) NOT NULL, " +
-                    "active_cosmetics TEXT NOT NULL, " +
-                    "updated_at BIGINT NOT NULL" +
-                    ")"
-            );
-        } catch (SQLException ex) {
-            throw new IllegalStateException("Could not create SQL table '" + this.tableName + "'.", ex);
+        onWriter(() -> {
+            try (SqlConnectionPool.Lease lease = this.writerPool.borrow();
+                 Statement statement = lease.connection().createStatement()) {
+                statement.execute(
+                    "CREATE TABLE IF NOT EXISTS " + this.tableName + " (" +
+                        "player_uuid VARCHAR(36) PRIMARY KEY, " +
+                        "locale VARCHAR(16) NOT NULL, " +
+                        "active_cosmetics TEXT NOT NULL, " +
+                        "updated_at BIGINT NOT NULL" +
+                        ")"
+                );
+            } catch (SQLException ex) {
+                throw new IllegalStateException("Could not create SQL table '" + this.tableName + "'.", ex);
+            }
+        });
+    }
+
+    private void onWriter(Runnable work) {
+        if (this.writer == null) {
+            work.run();
+            return;
+        }
+
+        Future<?> result = this.writer.submit(work);
+        try {
+            result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the SQLite writer.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("SQLite write failed.", ex.getCause());
         }
     }
 
@@ -171,12 +323,76 @@ public class SqlPlayerStateStore implements PlayerStateStore {
         }
     }
 
-    private Connection openConnection() throws SQLException {
-        DriverManager.setLoginTimeout(this.connectTimeoutSeconds);
-        if (this.username.isBlank()) {
-            return DriverManager.getConnection(this.jdbcUrl);
+    private void upsertBatched(SqlConnectionPool.Lease lease, List<Object[]> rows) throws SQLException {
+        PreparedStatement statement = lease.prepare(this.upsertSql);
+        int inBatch = 0;
+        for (Object[] row : rows) {
+            statement.setString(1, (String) row[0]);
+            statement.setString(2, (String) row[1]);
+            statement.setString(3, (String) row[2]);
+            statement.setLong(4, (Long) row[3]);
+            statement.addBatch();
+            if (++inBatch == this.batchSize) {
+                statement.executeBatch();
+                lease.connection().commit();
+                inBatch = 0;
+            }
+        }
+        if (inBatch > 0) {
+            statement.executeBatch();
+            lease.connection().commit();
+        }
+    }
+
+    private void upsertMultiRow(SqlConnectionPool.Lease lease, List<Object[]> rows) throws SQLException {
+        for (int start = 0; start < rows.size(); start += this.batchSize) {
+            int count = Math.min(this.batchSize, rows.size() - start);
+            String sql = multiRowUpsertStatement(count);
+            // Only full chunks reuse a cached statement; the remainder size varies per flush.
+            if (count == this.batchSize) {
+                bindMultiRow(lease.prepare(sql), rows, start, count).executeUpdate();
+            } else {
+                try (PreparedStatement statement = lease.connection().prepareStatement(sql)) {
+                    bindMultiRow(statement, rows, start, count).executeUpdate();
+                }
+            }
+            lease.connection().commit();
+        }
+    }
+
+    private static PreparedStatement bindMultiRow(PreparedStatement statement, List<Object[]> rows, int start, int count)
+        throws SQLException {
+        int index = 1;
+        for (int i = start; i < start + count; i++) {
+            Object[] row = rows.get(i);
+            statement.setString(index++, (String) row[0]);
+            statement.setString(index++, (String) row[1]);
+            statement.setString(index++, (String) row[2]);
+            statement.setLong(index++, (Long) row[3]);
+        }
+        return statement;
+    }
+
+    private String multiRowUpsertStatement(int rowCount) {
+        StringBuilder sql = new StringBuilder(128 + rowCount * 16)
+            .append("INSERT INTO ")
+            .append(this.tableName)
+            .append(" (player_uuid, locale, active_cosmetics, updated_at) VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        return sql.append(
+            " ON DUPLICATE KEY UPDATE locale = VALUES(locale), active_cosmetics = VALUES(active_cosmetics), updated_at = VALUES(updated_at)"
+        ).toString();
+    }
+
+    private static PreparedStatement prepare(SqlConnectionPool.Lease lease, String sql) throws SQLException {
+        try {
+            return lease.prepare(sql);
+        } catch (SQLException ex) {
+            lease.invalidate();
+            throw ex;
         }
-        return DriverManager.getConnection(this.jdbcUrl, this.username, this.password);
     }
 
     private boolean isMysql() {
@@ -237,41 +453,23 @@ public class SqlPlayerStateStore implements PlayerStateStore {
         return normalized;
     }
 
-    private void applyActiveCosmetics(String rawJson, PlayerState state) {
-        if (rawJson == null || rawJson.isBlank()) {
-            return;
-        }
+    private PlayerState readRow(String locale, String rawJson) {
         try {
-            JsonElement root = JsonParser.parseString(rawJson);
-            if (!root.isJsonObject()) {
-                return;
-            }
-
-            JsonObject object = root.getAsJsonObject();
-            for (String categoryId : object.keySet()) {
-                JsonElement value = object.get(categoryId);
-                if (value == null || value.isJsonNull()) {
-                    continue;
-                }
-
-                if (value.isJsonArray()) {
-                    List<String> cosmetics = new ArrayList<>();
-                    for (JsonElement arrayEntry : value.getAsJsonArray()) {
-                        if (arrayEntry == null || arrayEntry.isJsonNull() || !arrayEntry.isJsonPrimitive()) {
-                            continue;
-                        }
-                        cosmetics.add(arrayEntry.getAsString());
-                    }
-                    state.setActiveList(categoryId, cosmetics);
-                    continue;
-                }
-
-                if (value.isJsonPrimitive()) {
-                    state.setActive(categoryId, value.getAsString());
-                }
-            }
+            return PlayerStateTypeAdapter.fromStorage(locale, rawJson);
         } catch (Exception ex) {
             this.logger.atWarning().withCause(ex).log("[HyPerks] Invalid active_cosmetics JSON in SQL row.");
+            PlayerState state = PlayerState.defaults();
+            state.setLocale(locale);
+            state.normalize();
+            return state;
+        }
+    }
+
+    private static String storageJson(PlayerState state) {
+        try {
+            return PlayerStateTypeAdapter.toStorageJson(state);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not encode active cosmetics.", ex);
         }
     }
 }
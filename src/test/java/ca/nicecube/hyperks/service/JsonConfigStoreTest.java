@@ -0,0 +1,101 @@
+package ca.nicecube.hyperks.service;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonConfigStoreTest {
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    @TempDir
+    Path directory;
+
+    private final JsonConfigStore store = new JsonConfigStore(LOGGER);
+
+    @Test
+    void numberSpellingAloneDoesNotRewriteTheFile() throws Exception {
+        // Integral doubles, a float Gson itself would write as 0.1, and a long written as 5.0.
+        String content = "{\"_comment\":\"hand edited\",\"distance\":0,\"yaw\":0.1,\"limit\":5.0,\"names\":[\"a\"],\"nested\":{\"scale\":1}}";
+        Path path = write(content);
+
+        Sample loaded = load(path);
+
+        assertEquals(5L, loaded.limit);
+        assertEquals(0.1F, loaded.yaw);
+        assertEquals(content, Files.readString(path, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void savedFileIsStableAcrossReloads() throws Exception {
+        Path path = this.directory.resolve("sample.json");
+        load(path);
+        String saved = Files.readString(path, StandardCharsets.UTF_8);
+
+        load(path);
+
+        assertEquals(saved, Files.readString(path, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void correctedValueRewritesTheFile() throws Exception {
+        Path path = write("{\"_comment\":\"hand edited\",\"distance\":-4,\"yaw\":0.1,\"limit\":5,\"names\":[\"a\"],\"nested\":{\"scale\":1}}");
+
+        Sample loaded = load(path);
+
+        assertEquals(0.0D, loaded.distance);
+        assertTrue(Files.readString(path, StandardCharsets.UTF_8).contains("\"distance\": 0.0"));
+    }
+
+    @Test
+    void missingOrObsoleteKeysRewriteTheFile() throws Exception {
+        String missing = "{\"_comment\":\"hand edited\",\"distance\":0,\"yaw\":0.1,\"limit\":5,\"names\":[\"a\"],\"nested\":{}}";
+        Path path = write(missing);
+        load(path);
+        assertTrue(Files.readString(path, StandardCharsets.UTF_8).contains("\"scale\": 1.0"));
+
+        String obsolete = "{\"_comment\":\"hand edited\",\"distance\":0,\"yaw\":0.1,\"limit\":5,\"names\":[\"a\"],\"nested\":{\"scale\":1},\"retired\":true}";
+        write(obsolete);
+        load(path);
+        assertFalse(Files.readString(path, StandardCharsets.UTF_8).contains("retired"));
+    }
+
+    private Path write(String content) throws Exception {
+        Path path = this.directory.resolve("sample.json");
+        Files.writeString(path, content, StandardCharsets.UTF_8);
+        return path;
+    }
+
+    private Sample load(Path path) {
+        return this.store.loadOrCreate(path, Sample.class, Sample::new, Sample::normalize);
+    }
+
+    private static final class Sample {
+        private String _comment = "hand edited";
+        private double distance;
+        private float yaw = 0.1F;
+        private long limit = 5L;
+        private List<String> names = new ArrayList<>(List.of("a"));
+        private Nested nested = new Nested();
+
+        void normalize() {
+            this.distance = Math.max(0.0D, this.distance);
+            if (this.nested == null) {
+                this.nested = new Nested();
+            }
+        }
+    }
+
+    private static final class Nested {
+        private double scale = 1.0D;
+    }
+}
@@ -0,0 +1,256 @@
+package ca.nicecube.hyperks.service;
+
+import ca.nicecube.hyperks.model.PlayerState;
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogPlayerStateStoreTest {
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final long SMALL_SEGMENT_BYTES = 4L * 1024L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tornTailIsTruncatedWhenTheIndexIsRebuilt() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        LogPlayerStateStore store = LogPlayerStateStore.open(LOGGER, this.directory);
+        store.save(first, state("fr"));
+        store.save(second, state("en"));
+        store.close();
+
+        // A crash mid-append: the header promises a payload that never reached the disk.
+        Path segment = single(files("segment-"));
+        long intactBytes = Files.size(segment);
+        ByteBuffer torn = ByteBuffer.allocate(24 + 10);
+        torn.putInt(400).putInt(0).putLong(7L).putLong(9L);
+        torn.position(torn.capacity()).flip();
+        append(segment, torn);
+        markIndexUnclean();
+
+        store = LogPlayerStateStore.open(LOGGER, this.directory);
+        try {
+            assertEquals(intactBytes, Files.size(segment));
+            assertTrue(store.describeMetrics().contains("truncated=34 bytes"), store.describeMetrics());
+            assertEquals("fr", store.load(first).getLocale());
+            assertEquals("en", store.load(second).getLocale());
+            store.save(second, state("de"));
+        } finally {
+            store.close();
+        }
+
+        // The next record lands where the torn one started, so a clean reopen reads it back.
+        store = LogPlayerStateStore.open(LOGGER, this.directory);
+        try {
+            assertEquals("de", store.load(second).getLocale());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void missingIndexIsRebuiltFromSegments() throws Exception {
+        Map<UUID, String> saved = saveProfiles(50);
+        for (Path index : files("index-")) {
+            Files.delete(index);
+        }
+
+        assertProfiles(saved);
+        assertEquals(1, files("index-").size());
+    }
+
+    @Test
+    void corruptIndexIsRebuiltFromSegments() throws Exception {
+        Map<UUID, String> saved = saveProfiles(50);
+        // Garbage over the header and the first slots, on an index that claims a clean close.
+        try (FileChannel channel = FileChannel.open(single(files("index-")), StandardOpenOption.WRITE)) {
+            ByteBuffer garbage = ByteBuffer.allocate(256);
+            for (int i = 0; i < garbage.capacity(); i++) {
+                garbage.put((byte) (i * 31 + 7));
+            }
+            garbage.putInt(16, 1);
+            garbage.flip();
+            channel.write(garbage, 0L);
+        }
+
+        assertProfiles(saved);
+    }
+
+    @Test
+    void indexGrowsPastItsInitialCapacity() throws Exception {
+        Map<UUID, String> saved = new LinkedHashMap<>();
+        LogPlayerStateStore store = LogPlayerStateStore.open(LOGGER, this.directory);
+        try {
+            Map<UUID, PlayerState> batch = new LinkedHashMap<>();
+            for (int i = 0; i < 2_000; i++) {
+                UUID playerUuid = UUID.randomUUID();
+                saved.put(playerUuid, "p" + i);
+                batch.put(playerUuid, state("p" + i));
+            }
+            store.saveAll(batch);
+            assertTrue(store.describeMetrics().contains("index=4096 slots"), store.describeMetrics());
+            for (Map.Entry<UUID, String> entry : saved.entrySet()) {
+                assertEquals(entry.getValue(), store.load(entry.getKey()).getLocale());
+            }
+        } finally {
+            store.close();
+        }
+
+        assertEquals(List.of("index-4096.dat"), names(files("index-")));
+        assertProfiles(saved);
+        markIndexUnclean();
+        assertProfiles(saved);
+    }
+
+    @Test
+    void rebuildCapacityStaysWithinOneMapping() {
+        assertEquals(1024, LogPlayerStateStore.rebuildCapacity(0L));
+        assertEquals(4096, LogPlayerStateStore.rebuildCapacity(200_000L));
+        assertEquals(LogPlayerStateStore.INDEX_MAX_CAPACITY, LogPlayerStateStore.rebuildCapacity(Long.MAX_VALUE / 4L));
+        assertTrue(64L + (long) LogPlayerStateStore.INDEX_MAX_CAPACITY * 32L <= Integer.MAX_VALUE);
+    }
+
+    @Test
+    void compactionKeepsTheLatestStateWhileSavesRace() throws Exception {
+        List<UUID> players = new ArrayList<>();
+        Map<UUID, String> latest = new ConcurrentHashMap<>();
+        LogPlayerStateStore store = LogPlayerStateStore.open(LOGGER, this.directory, SMALL_SEGMENT_BYTES);
+        try {
+            // Rewrite every profile a few times so the sealed segments are mostly dead records.
+            for (int round = 0; round < 4; round++) {
+                Map<UUID, PlayerState> batch = new HashMap<>();
+                for (int i = 0; i < 60; i++) {
+                    if (round == 0) {
+                        players.add(UUID.randomUUID());
+                    }
+                    UUID playerUuid = players.get(i);
+                    latest.put(playerUuid, "r" + round);
+                    batch.put(playerUuid, state("r" + round));
+                }
+                store.saveAll(batch);
+            }
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            LogPlayerStateStore saving = store;
+            Thread saver = new Thread(() -> {
+                try {
+                    for (int write = 0; running.get() || write < 200; write++) {
+                        UUID playerUuid = players.get(write % players.size());
+                        String locale = "w" + write;
+                        saving.save(playerUuid, state(locale));
+                        latest.put(playerUuid, locale);
+                    }
+                } catch (Throwable ex) {
+                    failure.set(ex);
+                }
+            }, "saver");
+            saver.setDaemon(true);
+            saver.start();
+            for (int pass = 0; pass < 50; pass++) {
+                store.compactOnce();
+            }
+            running.set(false);
+            saver.join(10_000L);
+
+            assertNull(failure.get());
+            assertTrue(store.describeMetrics().matches(".*compactions=[1-9].*"), store.describeMetrics());
+            for (UUID playerUuid : players) {
+                assertEquals(latest.get(playerUuid), store.load(playerUuid).getLocale());
+            }
+        } finally {
+            store.close();
+        }
+
+        Map<UUID, String> expected = new HashMap<>(latest);
+        assertProfiles(expected);
+        markIndexUnclean();
+        assertProfiles(expected);
+    }
+
+    private Map<UUID, String> saveProfiles(int count) {
+        Map<UUID, String> saved = new LinkedHashMap<>();
+        LogPlayerStateStore store = LogPlayerStateStore.open(LOGGER, this.directory);
+        try {
+            for (int i = 0; i < count; i++) {
+                UUID playerUuid = UUID.randomUUID();
+                saved.put(playerUuid, "p" + i);
+                store.save(playerUuid, state("p" + i));
+            }
+        } finally {
+            store.close();
+        }
+        return saved;
+    }
+
+    private void assertProfiles(Map<UUID, String> expected) {
+        LogPlayerStateStore store = LogPlayerStateStore.open(LOGGER, this.directory);
+        try {
+            for (Map.Entry<UUID, String> entry : expected.entrySet()) {
+                assertEquals(entry.getValue(), store.load(entry.getKey()).getLocale());
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    // Clears the clean-close flag, as a crash before close() would leave it.
+    private void markIndexUnclean() throws IOException {
+        try (FileChannel channel = FileChannel.open(single(files("index-")), StandardOpenOption.WRITE)) {
+            ByteBuffer flag = ByteBuffer.allocate(4);
+            channel.write(flag, 16L);
+        }
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)).sorted().toList();
+        }
+    }
+
+    private static Path single(List<Path> paths) {
+        assertEquals(1, paths.size(), paths::toString);
+        return paths.get(0);
+    }
+
+    private static List<String> names(List<Path> paths) {
+        return paths.stream().map(path -> path.getFileName().toString()).toList();
+    }
+
+    private static void append(Path path, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    private static PlayerState state(String locale) {
+        PlayerState state = PlayerState.defaults();
+        state.setLocale(locale);
+        return state;
+    }
+}
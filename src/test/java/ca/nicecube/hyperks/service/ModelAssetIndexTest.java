@@ -0,0 +1,141 @@
+package ca.nicecube.hyperks.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ModelAssetIndexTest {
+    private static final String[] SEGMENTS = {
+        "Server", "Models", "server", "models", "VFX", "Aura", "aura", "Fire", "Fire_Core", "x", "HyPerks", "Cloud"
+    };
+    private static final int QUERIES_PER_KEY_SET = 200;
+
+    static Stream<Arguments> rules() {
+        return Stream.of(
+            Arguments.of("exact key", List.of("VFX/Aura_Fire", "VFX/Aura"), "VFX/Aura", "VFX/Aura"),
+            Arguments.of("exact key after trim and separators", List.of("VFX/Aura"), " VFX\\Aura ", "VFX/Aura"),
+            Arguments.of("normalized key", List.of("Server/Models/VFX/Aura.json"), "vfx/AURA", "Server/Models/VFX/Aura.json"),
+            Arguments.of("normalized candidate", List.of("VFX/Aura"), "Server/Models/VFX/Aura.JSON", "VFX/Aura"),
+            Arguments.of("key path suffix", List.of("Server/Models/HyPerks/VFX/Fire_Core.json"), "Fire_Core", "Server/Models/HyPerks/VFX/Fire_Core.json"),
+            Arguments.of("candidate path suffix", List.of("VFX/Cloud"), "Server/Models/Extra/VFX/Cloud.json", "VFX/Cloud"),
+            Arguments.of("first key in map order", List.of("A/Fire", "B/Fire"), "fire", "A/Fire"),
+            Arguments.of("earlier suffix beats later normalized key", List.of("A/VFX/Aura", "VFX/Aura.json"), "vfx/aura", "A/VFX/Aura"),
+            Arguments.of("partial segment is not a suffix", List.of("VFX/Aura_Fire"), "Fire", ""),
+            Arguments.of("blank keys are skipped", List.of(" ", "VFX/Aura"), "aura", "VFX/Aura"),
+            Arguments.of("blank candidate", List.of("VFX/Aura"), " ", ""),
+            Arguments.of("miss", List.of("VFX/Aura"), "Cloud", "")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("rules")
+    void resolvesLikeLinearScan(String rule, List<String> keys, String candidate, String expected) {
+        Map<String, Object> assets = assets(keys);
+
+        assertEquals(expected, linearScan(assets, candidate), rule + " (linear scan)");
+        assertEquals(expected, ModelAssetIndex.build(assets).find(candidate), rule);
+    }
+
+    static Stream<Arguments> seeds() {
+        return IntStream.range(0, 50).mapToObj(Arguments::of);
+    }
+
+    @ParameterizedTest(name = "seed {0}")
+    @MethodSource("seeds")
+    void matchesLinearScanOnRandomKeySets(int seed) {
+        Random random = new Random(seed);
+        Map<String, Object> assets = new LinkedHashMap<>();
+        int size = 1 + random.nextInt(40);
+        for (int i = 0; i < size; i++) {
+            assets.put(randomId(random), Boolean.TRUE);
+        }
+        List<String> keys = new ArrayList<>(assets.keySet());
+        ModelAssetIndex index = ModelAssetIndex.build(assets);
+
+        for (int query = 0; query < QUERIES_PER_KEY_SET; query++) {
+            String candidate = randomId(random);
+            if (random.nextInt(4) == 0) {
+                candidate = keys.get(random.nextInt(keys.size()));
+                if (random.nextBoolean()) {
+                    candidate = candidate.toUpperCase(Locale.ROOT);
+                }
+                if (random.nextBoolean() && candidate.contains("/")) {
+                    candidate = candidate.substring(candidate.indexOf('/') + 1);
+                }
+            }
+
+            String probe = candidate;
+            assertEquals(linearScan(assets, probe), index.find(probe), () -> "candidate '" + probe + "' in " + keys);
+        }
+    }
+
+    // findModelKey as it was before the index: the first key in map order whose normalised form
+    // equals the candidate's, or where either one is a '/'-suffix of the other.
+    private static String linearScan(Map<String, ?> assets, String candidate) {
+        if (candidate == null || candidate.isBlank()) {
+            return "";
+        }
+
+        String normalizedCandidate = candidate.trim().replace('\\', '/');
+        if (assets.containsKey(normalizedCandidate)) {
+            return normalizedCandidate;
+        }
+
+        String lowerCandidate = stripServerModelPrefix(stripModelExtension(normalizedCandidate.toLowerCase(Locale.ROOT)));
+        for (String key : assets.keySet()) {
+            if (key == null || key.isBlank()) {
+                continue;
+            }
+
+            String lowerKey = stripServerModelPrefix(stripModelExtension(key.trim().replace('\\', '/').toLowerCase(Locale.ROOT)));
+            if (lowerKey.equals(lowerCandidate)
+                || lowerKey.endsWith("/" + lowerCandidate)
+                || lowerCandidate.endsWith("/" + lowerKey)) {
+                return key;
+            }
+        }
+        return "";
+    }
+
+    private static String stripModelExtension(String value) {
+        return value.endsWith(".json") ? value.substring(0, value.length() - ".json".length()) : value;
+    }
+
+    private static String stripServerModelPrefix(String value) {
+        return value.startsWith("server/models/") ? value.substring("server/models/".length()) : value;
+    }
+
+    private static Map<String, Object> assets(List<String> keys) {
+        Map<String, Object> assets = new LinkedHashMap<>();
+        for (String key : keys) {
+            assets.put(key, Boolean.TRUE);
+        }
+        return assets;
+    }
+
+    private static String randomId(Random random) {
+        StringBuilder id = new StringBuilder();
+        int depth = 1 + random.nextInt(4);
+        for (int i = 0; i < depth; i++) {
+            if (i > 0) {
+                id.append(random.nextInt(10) == 0 ? '\\' : '/');
+            }
+            id.append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+        }
+        if (random.nextBoolean()) {
+            id.append(random.nextBoolean() ? ".json" : ".JSON");
+        }
+        return id.toString();
+    }
+}
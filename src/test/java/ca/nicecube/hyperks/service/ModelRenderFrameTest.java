@@ -0,0 +1,174 @@
+package ca.nicecube.hyperks.service;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.math.vector.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ModelRenderFrameTest {
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final int CLUSTERS = 20;
+    private static final int OWNERS_PER_CLUSTER = 10;
+    private static final int OWNERS = CLUSTERS * OWNERS_PER_CLUSTER;
+    private static final double LOD_RADIUS = 24.0D;
+    private static final int WORLD_BUDGET = 512;
+    private static final int POSE_FRAMES = 8;
+    private static final int WARMUP_TICKS = 5_000;
+    private static final int MEASURED_TICKS = 5_000;
+    // A handful of bytes absorbs probe noise; any per-tick list, request or boxed index would be kilobytes.
+    private static final long MAX_BYTES_PER_TICK = 16L;
+
+    @Test
+    void nearbyLookupMatchesBruteForce() {
+        Random random = new Random(33L);
+        ModelRenderFrame frame = new ModelRenderFrame();
+        for (int tick = 0; tick < 50; tick++) {
+            int owners = 1 + random.nextInt(120);
+            double cellSize = 4.0D + random.nextInt(40);
+            double radiusSquared = cellSize * cellSize;
+            frame.begin();
+            for (int i = 0; i < owners; i++) {
+                Vector3d position = new Vector3d(
+                    (random.nextDouble() - 0.5D) * 400.0D,
+                    random.nextDouble() * 64.0D,
+                    (random.nextDouble() - 0.5D) * 400.0D
+                );
+                frame.add(UUID.randomUUID(), null, position, null);
+            }
+
+            frame.index(cellSize);
+            for (int i = 0; i < owners; i++) {
+                frame.resolveNearby(i, radiusSquared);
+                ModelRenderFrame.Owner owner = frame.owner(i);
+                int nearby = 0;
+                double nearest = Double.MAX_VALUE;
+                for (int j = 0; j < owners; j++) {
+                    double distanceSquared = owner.position.distanceSquaredTo(frame.owner(j).position);
+                    if (distanceSquared <= radiusSquared) {
+                        nearby++;
+                    }
+                    if (j != i && distanceSquared <= radiusSquared && distanceSquared < nearest) {
+                        nearest = distanceSquared;
+                    }
+                }
+
+                assertEquals(nearby, owner.nearbyPlayers, "tick " + tick + " owner " + i);
+                if (nearest < Double.MAX_VALUE) {
+                    assertEquals(nearest, owner.nearestViewerDistanceSquared, "tick " + tick + " owner " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void requestsReuseThePooledOwnerPose() {
+        ModelRenderFrame frame = new ModelRenderFrame();
+        UUID playerUuid = UUID.randomUUID();
+        Vector3d position = new Vector3d(1.0D, 2.0D, 3.0D);
+        frame.begin();
+        ModelRenderFrame.Owner owner = frame.add(playerUuid, null, position, new Vector3f(0F, 90F, 0F));
+        frame.request(owner, List.of(), 0.0D);
+        ModelVfxRigService.RigRequest first = frame.requests().get(0);
+
+        position.assign(7.0D, 8.0D, 9.0D);
+        frame.begin();
+        frame.request(frame.add(playerUuid, null, position, null), List.of(), 0.0D);
+
+        assertEquals(1, frame.requests().size());
+        assertTrue(first == frame.requests().get(0), "request was not reused");
+        assertEquals(7.0D, frame.owner(0).position.x);
+        assertEquals(0.0D, (double) frame.owner(0).rotation.y);
+    }
+
+    @Test
+    void steadyStateWorldTickDoesNotAllocate() {
+        com.sun.management.ThreadMXBean probe = allocationProbe();
+        assumeTrue(probe != null, "thread allocation counter unavailable");
+
+        // Owners shuffle inside fixed clusters, like players milling around spawn, so every tick moves
+        // positions and priorities without changing who is near whom.
+        Random random = new Random(7L);
+        UUID[] playerUuids = new UUID[OWNERS];
+        List<List<ModelVfxRigService.DesiredRig>> desiredRigs = new ArrayList<>();
+        Vector3d[][] poses = new Vector3d[POSE_FRAMES][OWNERS];
+        for (int owner = 0; owner < OWNERS; owner++) {
+            playerUuids[owner] = UUID.randomUUID();
+            desiredRigs.add(List.of(
+                new ModelVfxRigService.DesiredRig("auras", "aura_" + owner, "HyPerks/Aura", "default"),
+                new ModelVfxRigService.DesiredRig("trails", "trail_" + owner, "HyPerks/Trail", "default"),
+                new ModelVfxRigService.DesiredRig("badges", "badge_" + owner, "HyPerks/Badge", "default")
+            ));
+            double clusterX = (owner / OWNERS_PER_CLUSTER) * 200.0D;
+            for (int pose = 0; pose < POSE_FRAMES; pose++) {
+                poses[pose][owner] = new Vector3d(clusterX + random.nextDouble() * 4.0D, 64.0D, random.nextDouble() * 4.0D);
+            }
+        }
+
+        ModelVfxRigService rigService = new ModelVfxRigService(LOGGER);
+        rigService.configure(6, WORLD_BUDGET, 8, 64, OWNERS_PER_CLUSTER);
+        ModelRenderFrame frame = new ModelRenderFrame();
+        Vector3f rotation = new Vector3f();
+        long checksum = 0L;
+        for (int tick = 0; tick < WARMUP_TICKS; tick++) {
+            checksum += tick(frame, rigService, playerUuids, desiredRigs, poses[tick % POSE_FRAMES], rotation);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = probe.getThreadAllocatedBytes(threadId);
+        for (int tick = 0; tick < MEASURED_TICKS; tick++) {
+            checksum += tick(frame, rigService, playerUuids, desiredRigs, poses[tick % POSE_FRAMES], rotation);
+        }
+        long bytesPerTick = (probe.getThreadAllocatedBytes(threadId) - before) / MEASURED_TICKS;
+
+        assertTrue(checksum > 0L);
+        assertEquals(OWNERS, frame.requests().size());
+        assertTrue(bytesPerTick <= MAX_BYTES_PER_TICK, () -> "world render tick allocated " + bytesPerTick + " bytes per tick");
+    }
+
+    // The same calls HyPerksCoreService.renderWorldModels makes, minus the entity store reads and writes.
+    private static long tick(
+        ModelRenderFrame frame,
+        ModelVfxRigService rigService,
+        UUID[] playerUuids,
+        List<List<ModelVfxRigService.DesiredRig>> desiredRigs,
+        Vector3d[] poses,
+        Vector3f rotation
+    ) {
+        frame.begin();
+        for (int owner = 0; owner < OWNERS; owner++) {
+            frame.add(playerUuids[owner], null, poses[owner], rotation);
+        }
+        long viewers = frame.viewerPositions().size();
+
+        double lodRadiusSquared = LOD_RADIUS * LOD_RADIUS;
+        frame.index(LOD_RADIUS);
+        for (int index = 0; index < frame.size(); index++) {
+            ModelRenderFrame.Owner owner = frame.owner(index);
+            frame.resolveNearby(index, lodRadiusSquared);
+            double closeness = 1.0D - Math.min(1.0D, Math.sqrt(owner.nearestViewerDistanceSquared / lodRadiusSquared));
+            frame.request(owner, desiredRigs.get(index), closeness * 100.0D);
+        }
+
+        int[] syncOrder = rigService.planWorldSync("world", frame.requests());
+        return viewers + syncOrder[0];
+    }
+
+    private static com.sun.management.ThreadMXBean allocationProbe() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean
+            && threadBean.isThreadAllocatedMemorySupported()
+            && threadBean.isThreadAllocatedMemoryEnabled()) {
+            return threadBean;
+        }
+        return null;
+    }
+}
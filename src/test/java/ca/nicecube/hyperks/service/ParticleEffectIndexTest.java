@@ -0,0 +1,185 @@
+package ca.nicecube.hyperks.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParticleEffectIndexTest {
+    private static final String PARTICLE_EXTENSION = ".particlesystem";
+    private static final String[] SEGMENTS = {
+        "Server", "Particles", "fire", "Fire_Aura", "aura", "ice", "Ice_Ring", "ring", "x", "ab", "Spark", "sparks", "", "Aura_Fire"
+    };
+    private static final int QUERIES_PER_KEY_SET = 300;
+
+    // Each case puts a lower-scoring key first, so the expected key only wins through its tier.
+    static Stream<Arguments> tiers() {
+        return Stream.of(
+            Arguments.of("exact key", List.of("Fx/Fire_Big", "Fx/Fire"), " Fx\\Fire ", "Fx/Fire"),
+            Arguments.of("100 lowercase", List.of("Fx/Fire_Big", "Fx/Fire.particlesystem"), "FX/FIRE.PARTICLESYSTEM", "Fx/Fire.particlesystem"),
+            Arguments.of("95 no extension", List.of("Fx/Fire_Big", "Fx/Fire"), "fx/fire.particlesystem", "Fx/Fire"),
+            Arguments.of("90 basename", List.of("Other/Fire_Big", "Other/Fire"), "Fx/Fire", "Other/Fire"),
+            // A '/'-suffix always shares its basename, so 85 and 80 tie with 90 and map order decides.
+            Arguments.of("85 key ends with candidate", List.of("Misc/Smoke", "Server/Particles/Fx/Spark"), "fx/spark", "Server/Particles/Fx/Spark"),
+            Arguments.of("85 candidate ends with key", List.of("Misc/Smoke", "Fx/Spark"), "server/particles/fx/spark", "Fx/Spark"),
+            Arguments.of("80 basename suffix", List.of("Misc/Smoke", "Fx/Spark"), "other/spark", "Fx/Spark"),
+            Arguments.of("suffix does not beat an earlier basename", List.of("Other/Spark", "Fx/Spark"), "a/fx/spark", "Other/Spark"),
+            Arguments.of("70 key contains candidate", List.of("Misc/Smoke", "Fx/Fire_Ring_Big"), "fire_ring", "Fx/Fire_Ring_Big"),
+            Arguments.of("70 candidate contains key", List.of("Misc/Smoke", "Ring"), "fx/ring_of_fire", "Ring"),
+            Arguments.of("65 key contains basename", List.of("Misc/Smoke", "Fx/Big_Ember_Glow"), "other/ember", "Fx/Big_Ember_Glow"),
+            Arguments.of("65 candidate contains basename", List.of("Misc/Smoke", "Fx/Glow"), "other/big_glow_ember", "Fx/Glow"),
+            Arguments.of("fallback to first key", List.of("Misc/Smoke", "Fx/Fire"), "water", "Misc/Smoke"),
+            Arguments.of("fallback skips blank keys", List.of(" ", "Misc/Smoke"), "water", "Misc/Smoke"),
+            Arguments.of("blank candidate", List.of("Misc/Smoke"), " ", ""),
+            Arguments.of("empty map", List.of(), "water", "")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("tiers")
+    void resolvesLikeScoringScan(String tier, List<String> keys, String candidate, String expected) {
+        Map<String, Object> particles = particles(keys);
+
+        assertEquals(expected, scoringScan(particles, candidate), tier + " (scoring scan)");
+        assertEquals(expected, ParticleEffectIndex.build(particles).find(candidate), tier);
+    }
+
+    static Stream<Arguments> seeds() {
+        return IntStream.range(0, 50).mapToObj(Arguments::of);
+    }
+
+    @ParameterizedTest(name = "seed {0}")
+    @MethodSource("seeds")
+    void matchesScoringScanOnRandomKeySets(int seed) {
+        Random random = new Random(seed);
+        Map<String, Object> particles = new LinkedHashMap<>();
+        int size = random.nextInt(50);
+        for (int i = 0; i < size; i++) {
+            particles.put(randomId(random), Boolean.TRUE);
+        }
+        if (random.nextInt(10) == 0) {
+            particles.put("  ", Boolean.TRUE);
+        }
+        List<String> keys = new ArrayList<>(particles.keySet());
+        ParticleEffectIndex index = ParticleEffectIndex.build(particles);
+
+        for (int query = 0; query < QUERIES_PER_KEY_SET; query++) {
+            String candidate = randomId(random);
+            if (random.nextInt(4) == 0 && !keys.isEmpty()) {
+                candidate = keys.get(random.nextInt(keys.size()));
+                if (random.nextBoolean()) {
+                    candidate = candidate.toUpperCase(Locale.ROOT);
+                }
+                if (random.nextBoolean() && candidate.length() > 2) {
+                    candidate = candidate.substring(random.nextInt(candidate.length() / 2));
+                }
+            }
+
+            String probe = candidate;
+            assertEquals(scoringScan(particles, probe), index.find(probe), () -> "candidate '" + probe + "' in " + keys);
+        }
+    }
+
+    // findParticleKey as it was before the index: score every key, keep the first best score.
+    private static String scoringScan(Map<String, ?> particles, String candidate) {
+        if (candidate == null || candidate.isBlank()) {
+            return "";
+        }
+
+        String candidateNormalized = normalize(candidate);
+        if (particles.containsKey(candidateNormalized)) {
+            return candidateNormalized;
+        }
+
+        String candidateLower = candidateNormalized.toLowerCase(Locale.ROOT);
+        String candidateNoExtension = stripExtension(candidateLower);
+        String candidateBaseName = baseName(candidateNoExtension);
+
+        String bestKey = "";
+        int bestScore = -1;
+        for (String key : particles.keySet()) {
+            if (key == null || key.isBlank()) {
+                continue;
+            }
+
+            String keyLower = normalize(key).toLowerCase(Locale.ROOT);
+            String keyNoExtension = stripExtension(keyLower);
+            String keyBaseName = baseName(keyNoExtension);
+
+            int score = 0;
+            if (keyLower.equals(candidateLower)) {
+                score = 100;
+            } else if (keyNoExtension.equals(candidateNoExtension)) {
+                score = 95;
+            } else if (keyBaseName.equals(candidateBaseName)) {
+                score = 90;
+            } else if (keyNoExtension.endsWith("/" + candidateNoExtension) || candidateNoExtension.endsWith("/" + keyNoExtension)) {
+                score = 85;
+            } else if (keyNoExtension.endsWith("/" + candidateBaseName) || candidateNoExtension.endsWith("/" + keyBaseName)) {
+                score = 80;
+            } else if (keyNoExtension.contains(candidateNoExtension) || candidateNoExtension.contains(keyNoExtension)) {
+                score = 70;
+            } else if (keyNoExtension.contains(candidateBaseName) || candidateNoExtension.contains(keyBaseName)) {
+                score = 65;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestKey = key;
+            }
+        }
+        return bestScore >= 0 ? bestKey : "";
+    }
+
+    private static String normalize(String value) {
+        return value.trim().replace('\\', '/');
+    }
+
+    private static String stripExtension(String value) {
+        if (value.isBlank()) {
+            return "";
+        }
+        return value.endsWith(PARTICLE_EXTENSION) ? value.substring(0, value.length() - PARTICLE_EXTENSION.length()) : value;
+    }
+
+    private static String baseName(String value) {
+        int slash = value.lastIndexOf('/');
+        return slash >= 0 ? value.substring(slash + 1) : value;
+    }
+
+    private static Map<String, Object> particles(List<String> keys) {
+        Map<String, Object> particles = new LinkedHashMap<>();
+        for (String key : keys) {
+            particles.put(key, Boolean.TRUE);
+        }
+        return particles;
+    }
+
+    private static String randomId(Random random) {
+        StringBuilder id = new StringBuilder();
+        int depth = 1 + random.nextInt(4);
+        for (int i = 0; i < depth; i++) {
+            if (i > 0) {
+                id.append(random.nextInt(10) == 0 ? '\\' : '/');
+            }
+            id.append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+        }
+        int extension = random.nextInt(4);
+        if (extension == 0) {
+            id.append(PARTICLE_EXTENSION);
+        } else if (extension == 1) {
+            id.append(".ParticleSystem");
+        }
+        return id.toString();
+    }
+}
@@ -0,0 +1,167 @@
+package ca.nicecube.hyperks.service;
+
+import ca.nicecube.hyperks.model.PlayerState;
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerStateServiceTest {
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final long TIMEOUT_MS = 10_000L;
+
+    @TempDir
+    Path dataRoot;
+
+    @Test
+    void configureWaitsOutASaveThatFallsBackToJson() throws Exception {
+        runWhileSaveFails(service -> service.configure(null));
+    }
+
+    @Test
+    void closeWaitsOutASaveThatFallsBackToJson() throws Exception {
+        runWhileSaveFails(PlayerStateService::close);
+    }
+
+    @Test
+    void completedPrefetchKeepsAProfileEditedAndSavedWhileItLoaded() throws Exception {
+        Path playersDirectory = this.dataRoot.resolve("players");
+        UUID playerUuid = UUID.randomUUID();
+        SlowFirstLoadStore store = new SlowFirstLoadStore();
+        store.saved.put(playerUuid, "en");
+        PlayerStateService service = new PlayerStateService(LOGGER, this.dataRoot, playersDirectory, new JsonConfigStore(LOGGER), store);
+        try {
+            CompletableFuture<PlayerState> prefetch = service.prefetch(playerUuid);
+            assertTrue(store.firstLoadEntered.await(TIMEOUT_MS, TimeUnit.MILLISECONDS), "prefetch never reached the store");
+
+            // A command edits and saves the profile while the prefetch still holds the old read.
+            service.get(playerUuid).setLocale("fr");
+            service.save(playerUuid);
+            assertEquals("fr", store.saved.get(playerUuid));
+
+            store.releaseFirstLoad.countDown();
+            PlayerState loaded = prefetch.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            assertEquals("en", loaded.getLocale());
+
+            assertEquals("fr", service.completePrefetch(playerUuid, prefetch, loaded).getLocale());
+            assertEquals("fr", service.get(playerUuid).getLocale());
+        } finally {
+            service.close();
+        }
+    }
+
+    // The save holds its player's in-flight latch while the store fails; the fallback must not need
+    // anything the lifecycle call holds while it waits on that latch.
+    private void runWhileSaveFails(Consumer<PlayerStateService> lifecycle) throws Exception {
+        Path playersDirectory = this.dataRoot.resolve("players");
+        JsonConfigStore configStore = new JsonConfigStore(LOGGER);
+        BlockingFailingStore failing = new BlockingFailingStore();
+        PlayerStateService service = new PlayerStateService(LOGGER, this.dataRoot, playersDirectory, configStore, failing);
+        UUID playerUuid = UUID.randomUUID();
+        service.get(playerUuid).setLocale("fr");
+
+        Thread saver = daemon("saver", () -> service.save(playerUuid));
+        saver.start();
+        assertTrue(failing.saveEntered.await(TIMEOUT_MS, TimeUnit.MILLISECONDS), "save never reached the store");
+
+        Thread lifecycleThread = daemon("lifecycle", () -> lifecycle.accept(service));
+        lifecycleThread.start();
+        awaitParked(lifecycleThread);
+        failing.release.countDown();
+
+        lifecycleThread.join(TIMEOUT_MS);
+        saver.join(TIMEOUT_MS);
+        assertFalse(lifecycleThread.isAlive(), "lifecycle call deadlocked against the JSON fallback");
+        assertFalse(saver.isAlive(), "save deadlocked against the lifecycle call");
+        assertEquals("fr", new JsonPlayerStateStore(playersDirectory, configStore).load(playerUuid).getLocale());
+    }
+
+    private static void awaitParked(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            Thread.State state = thread.getState();
+            if (state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING || state == Thread.State.BLOCKED) {
+                return;
+            }
+            Thread.sleep(5L);
+        }
+    }
+
+    private static Thread daemon(String name, Runnable task) {
+        Thread thread = new Thread(task, "PlayerStateServiceTest-" + name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    // The first load reads its snapshot, then waits to be released; later loads return at once.
+    private static final class SlowFirstLoadStore implements PlayerStateStore {
+        private final Map<UUID, String> saved = new ConcurrentHashMap<>();
+        private final AtomicBoolean firstLoad = new AtomicBoolean(true);
+        private final CountDownLatch firstLoadEntered = new CountDownLatch(1);
+        private final CountDownLatch releaseFirstLoad = new CountDownLatch(1);
+
+        @Override
+        public PlayerState load(UUID playerUuid) {
+            PlayerState state = PlayerState.defaults();
+            state.setLocale(this.saved.get(playerUuid));
+            if (this.firstLoad.compareAndSet(true, false)) {
+                this.firstLoadEntered.countDown();
+                try {
+                    this.releaseFirstLoad.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return state;
+        }
+
+        @Override
+        public void save(UUID playerUuid, PlayerState state) {
+            this.saved.put(playerUuid, state.getLocale());
+        }
+
+        @Override
+        public String describe() {
+            return "slow-first-load";
+        }
+    }
+
+    private static final class BlockingFailingStore implements PlayerStateStore {
+        private final CountDownLatch saveEntered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public PlayerState load(UUID playerUuid) {
+            return PlayerState.defaults();
+        }
+
+        @Override
+        public void save(UUID playerUuid, PlayerState state) {
+            this.saveEntered.countDown();
+            try {
+                this.release.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("database went away");
+        }
+
+        @Override
+        public String describe() {
+            return "failing";
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ca.nicecube.hyperks.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RigSyncPlanTest {
+    @Test
+    void syncOrderIsDescendingAndStable() {
+        RigSyncPlan plan = new RigSyncPlan();
+        double[] priorities = plan.requestPriorities(6);
+        double[] values = {1.0D, 5.0D, 3.0D, 5.0D, -2.0D, 3.0D};
+        System.arraycopy(values, 0, priorities, 0, values.length);
+
+        int[] order = plan.syncOrder(values.length);
+
+        assertArrayEquals(new int[] {1, 3, 2, 5, 0, 4}, slice(order, values.length));
+    }
+
+    @Test
+    void budgetKeepsHighestPrioritiesWithTiesToEarliestParts() {
+        RigSyncPlan plan = new RigSyncPlan();
+        double[] priorities = plan.partPriorities(6);
+        double[] values = {2.0D, 9.0D, 2.0D, 7.0D, 2.0D, 1.0D};
+        System.arraycopy(values, 0, priorities, 0, values.length);
+
+        boolean[] keep = plan.selectWithinBudget(values.length, 4);
+
+        assertArrayEquals(new boolean[] {true, true, true, true, false, false}, slice(keep, values.length));
+    }
+
+    @Test
+    void budgetKeepsEverythingWhenUnderBudget() {
+        RigSyncPlan plan = new RigSyncPlan();
+        plan.partPriorities(3);
+
+        boolean[] keep = plan.selectWithinBudget(3, 8);
+
+        assertArrayEquals(new boolean[] {true, true, true}, slice(keep, 3));
+    }
+
+    @Test
+    void matchesSortedSelectionOnRandomTicks() {
+        Random random = new Random(33L);
+        RigSyncPlan plan = new RigSyncPlan();
+        for (int tick = 0; tick < 500; tick++) {
+            int totalParts = 1 + random.nextInt(300);
+            int budget = 1 + random.nextInt(300);
+            double[] priorities = plan.partPriorities(totalParts);
+            for (int i = 0; i < totalParts; i++) {
+                priorities[i] = random.nextInt(20);
+            }
+
+            boolean[] expected = referenceSelection(priorities, totalParts, budget);
+            boolean[] keep = plan.selectWithinBudget(totalParts, budget);
+
+            assertArrayEquals(expected, slice(keep, totalParts), "tick " + tick);
+        }
+    }
+
+    @Test
+    void spawnedPartsHoldTheirSlotAgainstCloseContenders() {
+        RigSyncPlan plan = new RigSyncPlan();
+        boolean[] spawned = new boolean[3];
+        int swaps = 0;
+        // Two owners jitter around each other at the budget line; a third sits clearly below.
+        for (int tick = 0; tick < 200; tick++) {
+            double jitter = (tick % 2 == 0 ? 1.0D : -1.0D) * (ModelVfxRigService.SPAWNED_PART_RETENTION_BONUS - 1.0D) / 2.0D;
+            swaps += budgetTick(plan, spawned, 50.0D + jitter, 50.0D - jitter, 20.0D);
+        }
+        assertEquals(1, swaps, "only the first tick should spawn");
+
+        // A contender that pulls clearly ahead still takes the slot on the next tick.
+        boolean holderWasFirst = spawned[0];
+        double far = 50.0D + ModelVfxRigService.SPAWNED_PART_RETENTION_BONUS + 1.0D;
+        budgetTick(plan, spawned, holderWasFirst ? 50.0D : far, holderWasFirst ? far : 50.0D, 20.0D);
+        assertArrayEquals(new boolean[] {!holderWasFirst, holderWasFirst, false}, spawned);
+    }
+
+    @Test
+    void retentionBonusNeverOutranksARankTier() {
+        assertTrue(ModelVfxRigService.budgetPriority(0.0D, 0, true) < ModelVfxRigService.budgetPriority(1000.0D, 5, false));
+        assertTrue(ModelVfxRigService.budgetPriority(50.0D, 0, false) > ModelVfxRigService.budgetPriority(50.0D, 1, false));
+    }
+
+    // One owner part each, one budget slot; returns how many spawned flags changed.
+    private static int budgetTick(RigSyncPlan plan, boolean[] spawned, double... ownerPriorities) {
+        double[] priorities = plan.partPriorities(ownerPriorities.length);
+        for (int owner = 0; owner < ownerPriorities.length; owner++) {
+            priorities[owner] = ModelVfxRigService.budgetPriority(ownerPriorities[owner], 0, spawned[owner]);
+        }
+        boolean[] keep = plan.selectWithinBudget(ownerPriorities.length, 1);
+        int changes = 0;
+        for (int owner = 0; owner < ownerPriorities.length; owner++) {
+            if (spawned[owner] != keep[owner]) {
+                changes++;
+            }
+            spawned[owner] = keep[owner];
+        }
+        return changes;
+    }
+
+    private static boolean[] referenceSelection(double[] priorities, int totalParts, int budget) {
+        List<Integer> ranked = new ArrayList<>();
+        for (int i = 0; i < totalParts; i++) {
+            ranked.add(i);
+        }
+        // Stable sort: equal priorities stay in part order, so the earliest ones are kept first.
+        ranked.sort(Comparator.comparingDouble((Integer i) -> priorities[i]).reversed());
+        boolean[] keep = new boolean[totalParts];
+        for (int i = 0; i < Math.min(budget, totalParts); i++) {
+            keep[ranked.get(i)] = true;
+        }
+        return keep;
+    }
+
+    private static int[] slice(int[] values, int length) {
+        int[] slice = new int[length];
+        System.arraycopy(values, 0, slice, 0, length);
+        return slice;
+    }
+
+    private static boolean[] slice(boolean[] values, int length) {
+        boolean[] slice = new boolean[length];
+        System.arraycopy(values, 0, slice, 0, length);
+        return slice;
+    }
+}
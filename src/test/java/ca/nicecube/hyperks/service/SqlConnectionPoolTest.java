@@ -0,0 +1,298 @@
+package ca.nicecube.hyperks.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlConnectionPoolTest {
+    private static final long TIMEOUT_MS = 10_000L;
+
+    @TempDir
+    Path directory;
+
+    private final BlockingCloseDriver driver = new BlockingCloseDriver();
+    private String jdbcUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.jdbcUrl = "jdbc:sqlite:" + this.directory.resolve("pool.db").toAbsolutePath();
+        DriverManager.registerDriver(this.driver);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        this.driver.releaseClose.countDown();
+        DriverManager.deregisterDriver(this.driver);
+    }
+
+    @Test
+    void returnedConnectionIsReusedMostRecentFirst() throws Exception {
+        SqlConnectionPool pool = pool(this.jdbcUrl, 2, 0L, List.of());
+        try {
+            SqlConnectionPool.Lease first = pool.borrow();
+            SqlConnectionPool.Lease second = pool.borrow();
+            Connection secondConnection = second.connection();
+            assertNotSame(first.connection(), secondConnection);
+            first.close();
+            second.close();
+
+            try (SqlConnectionPool.Lease reused = pool.borrow()) {
+                assertSame(secondConnection, reused.connection());
+                assertEquals(1, queryInt(reused.connection(), "SELECT 1"));
+            }
+            assertMetric(pool, "open=2/2");
+            assertMetric(pool, "created=2, borrowed=3");
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void borrowWaitsForAReturnAndTimesOutWhenNoneComes() throws Exception {
+        SqlConnectionPool pool = pool(this.jdbcUrl, 1, 0L, List.of());
+        try {
+            SqlConnectionPool.Lease held = pool.borrow();
+            CompletableFuture<SqlConnectionPool.Lease> waiting = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return pool.borrow();
+                } catch (SQLException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+            Thread.sleep(100L);
+            Connection heldConnection = held.connection();
+            held.close();
+            try (SqlConnectionPool.Lease handedOver = waiting.get(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                assertSame(heldConnection, handedOver.connection());
+                SQLException timeout = assertThrows(SQLException.class, pool::borrow);
+                assertTrue(timeout.getMessage().contains("Timed out"), timeout.getMessage());
+            }
+            assertMetric(pool, "waits=2");
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void closedOrInvalidatedConnectionsAreReplaced() throws Exception {
+        SqlConnectionPool pool = pool(this.jdbcUrl, 1, 0L, List.of());
+        try {
+            SqlConnectionPool.Lease lease = pool.borrow();
+            Connection closedBehindThePool = lease.connection();
+            closedBehindThePool.close();
+            lease.close();
+
+            SqlConnectionPool.Lease replacement = pool.borrow();
+            assertNotSame(closedBehindThePool, replacement.connection());
+            assertEquals(1, queryInt(replacement.connection(), "SELECT 1"));
+            Connection broken = replacement.connection();
+            replacement.invalidate();
+            replacement.close();
+            assertTrue(broken.isClosed());
+
+            try (SqlConnectionPool.Lease fresh = pool.borrow()) {
+                assertNotSame(broken, fresh.connection());
+            }
+            assertMetric(pool, "created=3");
+            assertMetric(pool, "invalid=2");
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void idleConnectionsAreEvictedAndClosed() throws Exception {
+        SqlConnectionPool pool = pool(this.jdbcUrl, 2, 1L, List.of("PRAGMA busy_timeout=1234"));
+        try {
+            SqlConnectionPool.Lease lease = pool.borrow();
+            Connection idleConnection = lease.connection();
+            lease.close();
+            Thread.sleep(20L);
+
+            try (SqlConnectionPool.Lease fresh = pool.borrow()) {
+                assertNotSame(idleConnection, fresh.connection());
+                assertTrue(idleConnection.isClosed());
+                // Init statements run again on the replacement connection.
+                assertEquals(1234, queryInt(fresh.connection(), "PRAGMA busy_timeout"));
+            }
+            assertMetric(pool, "evicted=1");
+            assertMetric(pool, "open=1/2");
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void evictionClosesConnectionsOutsideThePoolLock() throws Exception {
+        SqlConnectionPool pool = pool(BlockingCloseDriver.PREFIX + this.directory.resolve("pool.db").toAbsolutePath(), 2, 1L, List.of());
+        try {
+            pool.borrow().close();
+            Thread.sleep(20L);
+            this.driver.blockClose = true;
+
+            // This borrow evicts the idle connection and stalls inside its close().
+            CompletableFuture<SqlConnectionPool.Lease> evicting = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return pool.borrow();
+                } catch (SQLException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+            assertTrue(this.driver.closeEntered.await(TIMEOUT_MS, TimeUnit.MILLISECONDS), "eviction never closed the connection");
+
+            String metrics = CompletableFuture.supplyAsync(pool::describeMetrics).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            assertTrue(metrics.contains("evicted=1"), metrics);
+            this.driver.blockClose = false;
+            try (SqlConnectionPool.Lease other = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return pool.borrow();
+                } catch (SQLException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }).get(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                assertFalse(other.connection().isClosed());
+            }
+
+            this.driver.releaseClose.countDown();
+            evicting.get(TIMEOUT_MS, TimeUnit.MILLISECONDS).close();
+        } finally {
+            this.driver.releaseClose.countDown();
+            pool.close();
+        }
+    }
+
+    @Test
+    void preparedStatementsAreCachedPerConnection() throws Exception {
+        SqlConnectionPool pool = pool(this.jdbcUrl, 1, 0L, List.of());
+        PreparedStatement first;
+        try {
+            try (SqlConnectionPool.Lease lease = pool.borrow()) {
+                first = lease.prepare("SELECT ?");
+                first.setInt(1, 7);
+                assertEquals(7, queryInt(first));
+                assertSame(first, lease.prepare("SELECT ?"));
+            }
+            try (SqlConnectionPool.Lease lease = pool.borrow()) {
+                PreparedStatement reused = lease.prepare("SELECT ?");
+                assertSame(first, reused);
+                reused.setInt(1, 9);
+                assertEquals(9, queryInt(reused));
+            }
+            assertMetric(pool, "statements=2 hit/1 miss");
+        } finally {
+            pool.close();
+        }
+        assertTrue(first.isClosed());
+    }
+
+    private static SqlConnectionPool pool(String jdbcUrl, int maxSize, long idleTimeoutMs, List<String> initStatements) {
+        return new SqlConnectionPool(jdbcUrl, "", "", maxSize, 1, idleTimeoutMs, initStatements);
+    }
+
+    private static void assertMetric(SqlConnectionPool pool, String expected) {
+        String metrics = pool.describeMetrics();
+        assertTrue(metrics.contains(expected), () -> "expected '" + expected + "' in " + metrics);
+    }
+
+    private static int queryInt(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            assertTrue(result.next());
+            return result.getInt(1);
+        }
+    }
+
+    private static int queryInt(PreparedStatement statement) throws SQLException {
+        try (ResultSet result = statement.executeQuery()) {
+            assertTrue(result.next());
+            return result.getInt(1);
+        }
+    }
+
+    // Hands out SQLite connections whose close() can be held, like a driver waiting on a dead socket.
+    private static final class BlockingCloseDriver implements Driver {
+        private static final String PREFIX = "jdbc:hyperks-blocking:";
+        private final CountDownLatch closeEntered = new CountDownLatch(1);
+        private final CountDownLatch releaseClose = new CountDownLatch(1);
+        private volatile boolean blockClose;
+
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            Connection real = DriverManager.getConnection("jdbc:sqlite:" + url.substring(PREFIX.length()));
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && this.blockClose) {
+                        this.closeEntered.countDown();
+                        this.releaseClose.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    }
+                    try {
+                        return method.invoke(real, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                }
+            );
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url != null && url.startsWith(PREFIX);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package ca.nicecube.hyperks.service;
+
+import ca.nicecube.hyperks.config.HyPerksConfig;
+import ca.nicecube.hyperks.model.PlayerState;
+import com.google.gson.Gson;
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlPlayerStateStoreTest {
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final String TABLE = "hyperks_player_state";
+    private static final int BATCH_SIZE = 3;
+    // Well under the 5 s busy_timeout a blocked statement would sit out.
+    private static final long READ_WAIT_LIMIT_MS = 2_000L;
+
+    @TempDir
+    Path directory;
+
+    private SqlPlayerStateStore store;
+
+    @BeforeEach
+    void setUp() {
+        this.store = SqlPlayerStateStore.create(LOGGER, this.directory, sqliteConfig());
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.store.close();
+    }
+
+    @Test
+    void batchedSaveCommitsEveryChunk() throws Exception {
+        Map<UUID, PlayerState> batch = batch(8, "p");
+        this.store.saveAll(batch);
+
+        assertEquals(expectedLocales(batch), storedLocales());
+        for (Map.Entry<UUID, PlayerState> entry : batch.entrySet()) {
+            assertEquals(entry.getValue().getLocale(), this.store.load(entry.getKey()).getLocale());
+        }
+    }
+
+    @Test
+    void failedChunkRollsBackAloneAndTheReplayedBatchIsIdempotent() throws Exception {
+        Map<UUID, PlayerState> batch = batch(8, "p");
+        List<UUID> players = new ArrayList<>(batch.keySet());
+        // Rows 0..5 fill the first two chunks; the poisoned row sits in the third.
+        UUID poisoned = players.get(7);
+        batch.put(poisoned, state("poison"));
+        execute("CREATE TRIGGER reject_poison BEFORE INSERT ON " + TABLE
+            + " WHEN NEW.locale = 'poison' BEGIN SELECT RAISE(ABORT, 'poisoned row'); END");
+
+        assertThrows(IllegalStateException.class, () -> this.store.saveAll(batch));
+
+        Map<UUID, String> committed = new HashMap<>();
+        for (int i = 0; i < 2 * BATCH_SIZE; i++) {
+            committed.put(players.get(i), batch.get(players.get(i)).getLocale());
+        }
+        assertEquals(committed, storedLocales());
+
+        // The write-behind queue hands the whole batch back, committed chunks included, with newer snapshots winning.
+        execute("DROP TRIGGER reject_poison");
+        batch.put(poisoned, state("p7"));
+        batch.put(players.get(1), state("p1-newer"));
+        this.store.saveAll(batch);
+        this.store.saveAll(batch);
+
+        assertEquals(expectedLocales(batch), storedLocales());
+        assertEquals("p1-newer", this.store.load(players.get(1)).getLocale());
+        assertEquals("p7", this.store.load(poisoned).getLocale());
+    }
+
+    @Test
+    void writerRecoversAfterAFailedBatch() throws Exception {
+        Map<UUID, PlayerState> failing = batch(BATCH_SIZE, "f");
+        failing.put(UUID.randomUUID(), state("poison"));
+        execute("CREATE TRIGGER reject_poison BEFORE INSERT ON " + TABLE
+            + " WHEN NEW.locale = 'poison' BEGIN SELECT RAISE(ABORT, 'poisoned row'); END");
+        assertThrows(IllegalStateException.class, () -> this.store.saveAll(failing));
+
+        // The failed connection is dropped, so the next write does not inherit an open transaction.
+        Map<UUID, PlayerState> next = batch(BATCH_SIZE + 1, "n");
+        this.store.saveAll(next);
+        UUID single = UUID.randomUUID();
+        this.store.save(single, state("solo"));
+
+        Map<UUID, String> expected = expectedLocales(next);
+        failing.entrySet().stream().limit(BATCH_SIZE).forEach(entry -> expected.put(entry.getKey(), entry.getValue().getLocale()));
+        expected.put(single, "solo");
+        assertEquals(expected, storedLocales());
+    }
+
+    @Test
+    void readsProceedWhileTheWriterHoldsATransaction() throws Exception {
+        UUID playerUuid = UUID.randomUUID();
+        this.store.save(playerUuid, state("before"));
+
+        try (SqlConnectionPool.Lease writer = this.store.writerPool().borrow()) {
+            Connection connection = writer.connection();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("UPDATE " + TABLE + " SET locale = 'during' WHERE player_uuid = '" + playerUuid + "'");
+                long startedAt = System.nanoTime();
+                assertEquals("before", this.store.load(playerUuid).getLocale());
+                assertTrue(elapsedMs(startedAt) < READ_WAIT_LIMIT_MS, "reader waited on the open write transaction");
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+
+        // The other way round: an open read snapshot must not hold up a commit.
+        try (SqlConnectionPool.Lease reader = this.store.readerPool().borrow()) {
+            Connection connection = reader.connection();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                assertEquals("before", queryString(statement, "SELECT locale FROM " + TABLE + " WHERE player_uuid = '" + playerUuid + "'"));
+                long startedAt = System.nanoTime();
+                this.store.save(playerUuid, state("after"));
+                assertTrue(elapsedMs(startedAt) < READ_WAIT_LIMIT_MS, "commit waited on the open read transaction");
+                assertEquals("before", queryString(statement, "SELECT locale FROM " + TABLE + " WHERE player_uuid = '" + playerUuid + "'"));
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+        assertEquals("after", this.store.load(playerUuid).getLocale());
+    }
+
+    @Test
+    void connectionPragmasHoldOnFreshConnections() throws Exception {
+        for (int generation = 0; generation < 2; generation++) {
+            // Invalidating drops the connection, so the second pass checks a re-created one.
+            try (SqlConnectionPool.Lease writer = this.store.writerPool().borrow()) {
+                try (Statement statement = writer.connection().createStatement()) {
+                    assertEquals("wal", queryString(statement, "PRAGMA journal_mode"));
+                    assertEquals("1", queryString(statement, "PRAGMA synchronous"));
+                    assertEquals("5000", queryString(statement, "PRAGMA busy_timeout"));
+                    assertEquals("0", queryString(statement, "PRAGMA query_only"));
+                }
+                writer.invalidate();
+            }
+            try (SqlConnectionPool.Lease reader = this.store.readerPool().borrow()) {
+                try (Statement statement = reader.connection().createStatement()) {
+                    assertEquals("1", queryString(statement, "PRAGMA query_only"));
+                    assertEquals("5000", queryString(statement, "PRAGMA busy_timeout"));
+                    assertThrows(SQLException.class, () -> statement.executeUpdate("DELETE FROM " + TABLE));
+                }
+                reader.invalidate();
+            }
+        }
+        String metrics = this.store.describeMetrics();
+        assertTrue(metrics.matches("readers\\[.*created=2,.*\\], writer\\[.*created=2,.*"), metrics);
+
+        UUID playerUuid = UUID.randomUUID();
+        this.store.save(playerUuid, state("fresh"));
+        assertEquals("fresh", this.store.load(playerUuid).getLocale());
+    }
+
+    private HyPerksConfig.PersistenceConfig sqliteConfig() {
+        HyPerksConfig.PersistenceConfig config = new Gson().fromJson(
+            "{\"mode\":\"sqlite\",\"batchSize\":" + BATCH_SIZE + ",\"poolMaxSize\":2}",
+            HyPerksConfig.PersistenceConfig.class
+        );
+        config.normalize();
+        return config;
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(jdbcUrl());
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private Map<UUID, String> storedLocales() throws SQLException {
+        Map<UUID, String> locales = new HashMap<>();
+        try (Connection connection = DriverManager.getConnection(jdbcUrl());
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT player_uuid, locale FROM " + TABLE)) {
+            while (rows.next()) {
+                String previous = locales.put(UUID.fromString(rows.getString(1)), rows.getString(2));
+                assertEquals(null, previous, "duplicate row");
+            }
+        }
+        return locales;
+    }
+
+    private static String queryString(Statement statement, String sql) throws SQLException {
+        try (ResultSet result = statement.executeQuery(sql)) {
+            assertTrue(result.next());
+            return result.getString(1);
+        }
+    }
+
+    private static long elapsedMs(long startedAt) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+
+    private String jdbcUrl() {
+        return "jdbc:sqlite:" + this.directory.resolve("player-state.db").toAbsolutePath();
+    }
+
+    private static Map<UUID, PlayerState> batch(int count, String prefix) {
+        Map<UUID, PlayerState> batch = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            batch.put(UUID.randomUUID(), state(prefix + i));
+        }
+        return batch;
+    }
+
+    private static Map<UUID, String> expectedLocales(Map<UUID, PlayerState> batch) {
+        Map<UUID, String> locales = new HashMap<>();
+        for (Map.Entry<UUID, PlayerState> entry : batch.entrySet()) {
+            locales.put(entry.getKey(), entry.getValue().getLocale());
+        }
+        return locales;
+    }
+
+    private static PlayerState state(String locale) {
+        PlayerState state = PlayerState.defaults();
+        state.setLocale(locale);
+        return state;
+    }
+}